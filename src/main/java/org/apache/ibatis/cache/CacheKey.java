@@ -15,14 +15,31 @@
  */
 package org.apache.ibatis.cache;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 import java.util.StringJoiner;
 
 import org.apache.ibatis.reflection.ArrayUtil;
 
 /**
+ * Key of the local and second level caches, built by {@link #update(Object) updating} it with every value
+ * that identifies a query.
+ * <p>
+ * The values are kept in a plain array sized up front when the number of updates is known, and int values are
+ * stored in primitive slots without boxing. Besides the 32-bit hash code a 64-bit order-dependent fingerprint of
+ * the values is kept, so that keys sharing a hash code are told apart before comparing their values.
+ * <p>
+ * The serialized form is still the one of the list based key, so keys persisted by earlier versions, e.g. in a
+ * distributed second level cache, can be read back and keys written now can be read by earlier versions.
+ *
  * @author Clinton Begin
  */
 public class CacheKey implements Cloneable, Serializable {
@@ -33,40 +50,75 @@ public class CacheKey implements Cloneable, Serializable {
 
   private static final int DEFAULT_MULTIPLYER = 37;
   private static final int DEFAULT_HASHCODE = 17;
+  private static final int DEFAULT_CAPACITY = 8;
+  private static final long FINGERPRINT_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+  // 与基于 List 的旧版本相同的序列化字段，checksum 写入旧版的哈希和
+  private static final ObjectStreamField[] serialPersistentFields = {
+      new ObjectStreamField("multiplier", int.class),
+      new ObjectStreamField("hashcode", int.class),
+      new ObjectStreamField("checksum", long.class),
+      new ObjectStreamField("count", int.class),
+      new ObjectStreamField("updateList", List.class)
+  };
 
-  private final int multiplier;
   private int hashcode;
+  // 64 位指纹，与 hashcode 一起用于在比较元素前快速排除不相等的 key
   private long checksum;
   private int count;
   // 8/21/2017 - Sonarlint flags this as needing to be marked transient.  While true if content is not serializable, this is not always true and thus should not be marked transient.
-  private List<Object> updateList;
+  private Object[] updateList;
+  // int 值的存放处，对应位置在 updateList 中为 Slot.INT
+  private int[] intSlots;
 
   public CacheKey() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param expectedUpdates the number of updates expected, used to size the key
+   * @since 3.5.2
+   */
+  public CacheKey(int expectedUpdates) {
+    reset(expectedUpdates);
+  }
+
+  private void reset(int expectedUpdates) {
     this.hashcode = DEFAULT_HASHCODE;
-    this.multiplier = DEFAULT_MULTIPLYER;
+    this.checksum = 0;
     this.count = 0;
-    this.updateList = new ArrayList<>();
+    this.updateList = new Object[Math.max(expectedUpdates, 1)];
+    this.intSlots = null;
   }
 
   public CacheKey(Object[] objects) {
-    this();
+    this(objects.length);
     updateAll(objects);
   }
 
   public int getUpdateCount() {
-    return updateList.size();
+    return count;
   }
 
   public void update(Object object) {
-    int baseHashCode = object == null ? 1 : ArrayUtil.hashCode(object);
-
-    count++;
-    checksum += baseHashCode;
-    baseHashCode *= count;
+    append(object, baseHashCode(object));
+  }
 
-    hashcode = multiplier * hashcode + baseHashCode;
+  private static int baseHashCode(Object object) {
+    return object == null ? 1 : ArrayUtil.hashCode(object);
+  }
 
-    updateList.add(object);
+  /**
+   * Same as {@code update(Integer.valueOf(value))} without boxing the value: the keys are equal either way.
+   *
+   * @since 3.5.2
+   */
+  public void updateInt(int value) {
+    int index = append(Slot.INT, Integer.hashCode(value));
+    if (intSlots == null) {
+      intSlots = new int[updateList.length];
+    }
+    intSlots[index] = value;
   }
 
   public void updateAll(Object[] objects) {
@@ -75,6 +127,24 @@ public class CacheKey implements Cloneable, Serializable {
     }
   }
 
+  private int append(Object object, int baseHashCode) {
+    int index = count;
+    if (index == updateList.length) {
+      updateList = Arrays.copyOf(updateList, index * 2);
+      if (intSlots != null) {
+        intSlots = Arrays.copyOf(intSlots, index * 2);
+      }
+    }
+    updateList[index] = object;
+
+    count++;
+    checksum = (checksum + baseHashCode) * FINGERPRINT_MULTIPLIER + count;
+    baseHashCode *= count;
+
+    hashcode = DEFAULT_MULTIPLYER * hashcode + baseHashCode;
+    return index;
+  }
+
   @Override
   public boolean equals(Object object) {
     if (this == object) {
@@ -96,16 +166,25 @@ public class CacheKey implements Cloneable, Serializable {
       return false;
     }
 
-    for (int i = 0; i < updateList.size(); i++) {
-      Object thisObject = updateList.get(i);
-      Object thatObject = cacheKey.updateList.get(i);
-      if (!ArrayUtil.equals(thisObject, thatObject)) {
+    for (int i = 0; i < count; i++) {
+      Object thisObject = updateList[i];
+      Object thatObject = cacheKey.updateList[i];
+      if (thisObject == Slot.INT || thatObject == Slot.INT) {
+        if (!Objects.equals(valueAt(i), cacheKey.valueAt(i))) {
+          return false;
+        }
+      } else if (!ArrayUtil.equals(thisObject, thatObject)) {
         return false;
       }
     }
     return true;
   }
 
+  private Object valueAt(int index) {
+    Object value = updateList[index];
+    return value == Slot.INT ? Integer.valueOf(intSlots[index]) : value;
+  }
+
   @Override
   public int hashCode() {
     return hashcode;
@@ -116,15 +195,54 @@ public class CacheKey implements Cloneable, Serializable {
     StringJoiner returnValue = new StringJoiner(":");
     returnValue.add(String.valueOf(hashcode));
     returnValue.add(String.valueOf(checksum));
-    updateList.stream().map(ArrayUtil::toString).forEach(returnValue::add);
+    for (int i = 0; i < count; i++) {
+      returnValue.add(ArrayUtil.toString(valueAt(i)));
+    }
     return returnValue.toString();
   }
 
   @Override
   public CacheKey clone() throws CloneNotSupportedException {
     CacheKey clonedCacheKey = (CacheKey) super.clone();
-    clonedCacheKey.updateList = new ArrayList<>(updateList);
+    clonedCacheKey.updateList = updateList.clone();
+    if (intSlots != null) {
+      clonedCacheKey.intSlots = intSlots.clone();
+    }
     return clonedCacheKey;
   }
 
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    List<Object> values = new ArrayList<>(count);
+    long sumOfHashCodes = 0;
+    for (int i = 0; i < count; i++) {
+      Object value = valueAt(i);
+      values.add(value);
+      sumOfHashCodes += baseHashCode(value);
+    }
+    ObjectOutputStream.PutField fields = out.putFields();
+    fields.put("multiplier", DEFAULT_MULTIPLYER);
+    fields.put("hashcode", hashcode);
+    fields.put("checksum", sumOfHashCodes);
+    fields.put("count", count);
+    fields.put("updateList", values);
+    out.writeFields();
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    ObjectInputStream.GetField fields = in.readFields();
+    List<?> values = (List<?>) fields.get("updateList", null);
+    if (values == null) {
+      throw new InvalidObjectException("CacheKey without values");
+    }
+    // 哈希码与指纹都由元素重新计算，不信任流中的值
+    reset(values.size());
+    for (Object value : values) {
+      append(value, baseHashCode(value));
+    }
+  }
+
+  private enum Slot {
+    INT
+  }
+
 }
@@ -0,0 +1,41 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.Set;
+
+/**
+ * Cache knowing which tables its entries were read from, so that a write only evicts the dependent entries.
+ * <p>
+ * Table names are lower case and without schema, see
+ * {@link org.apache.ibatis.cache.invalidation.SqlTableParser}.
+ *
+ * @since 3.5.2
+ */
+public interface TableAwareCache extends Cache {
+
+  /**
+   * @param tables the tables the value was read from, or null if unknown: the entry is then evicted by any
+   *          invalidation
+   */
+  void putObject(Object key, Object value, Set<String> tables);
+
+  /**
+   * Evicts the entries read from any of the given tables.
+   */
+  void invalidate(Set<String> tables);
+
+}
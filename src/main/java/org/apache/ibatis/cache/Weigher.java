@@ -0,0 +1,36 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * Computes the weight of a cache entry, usually an estimate of the bytes it retains.
+ * <p>
+ * Implementations must be thread safe and have a public no-arg constructor when they are configured by class name.
+ *
+ * @since 3.5.2
+ * @see org.apache.ibatis.cache.decorators.WeightedCache
+ */
+@FunctionalInterface
+public interface Weigher {
+
+  /**
+   * @param key Can be any object but usually it is a {@link CacheKey}
+   * @param value The result of a select, or its serialized form for a read/write cache
+   * @return the weight of the entry, never negative
+   */
+  long weigh(Object key, Object value);
+
+}
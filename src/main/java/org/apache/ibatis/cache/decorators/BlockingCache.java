@@ -15,7 +15,9 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -23,6 +25,8 @@ import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.TableAwareCache;
+import org.apache.ibatis.cache.ThreadSafeCache;
 
 /**
  * Simple blocking decorator
@@ -30,19 +34,27 @@ import org.apache.ibatis.cache.CacheException;
  * Simple and inefficient version of EhCache's BlockingCache decorator.
  * It sets a lock over a cache key when the element is not found in cache.
  * This way, other threads will wait until this element is filled instead of hitting the database.
+ * <p>
+ * In {@link #setCoalescing(boolean) coalescing} mode hits do not lock at all. The first thread missing a key
+ * registers an in-flight load that concurrent misses on the same key wait for, up to the
+ * {@link #setTimeout(long) timeout}, before reading the value it put. The load is unregistered as soon as
+ * the value is put or the key released, so no per-key state is left behind.
  *
  * @author Eduardo Macarron
  *
  */
-public class BlockingCache implements Cache {
+public class BlockingCache implements ThreadSafeCache {
 
   private long timeout;
+  private boolean coalescing;
   private final Cache delegate;
   private final ConcurrentHashMap<Object, ReentrantLock> locks;
+  private final ConcurrentHashMap<Object, Load> loads;
 
   public BlockingCache(Cache delegate) {
     this.delegate = delegate;
     this.locks = new ConcurrentHashMap<>();
+    this.loads = new ConcurrentHashMap<>();
   }
 
   @Override
@@ -60,12 +72,15 @@ public class BlockingCache implements Cache {
     try {
       delegate.putObject(key, value);
     } finally {
-      releaseLock(key);
+      release(key);
     }
   }
 
   @Override
   public Object getObject(Object key) {
+    if (coalescing) {
+      return getObjectOrJoinLoad(key);
+    }
     acquireLock(key);
     Object value = delegate.getObject(key);
     if (value != null) {
@@ -77,7 +92,7 @@ public class BlockingCache implements Cache {
   @Override
   public Object removeObject(Object key) {
     // despite of its name, this method is called only to release locks
-    releaseLock(key);
+    release(key);
     return null;
   }
 
@@ -91,6 +106,65 @@ public class BlockingCache implements Cache {
     return null;
   }
 
+  private Object getObjectOrJoinLoad(Object key) {
+    Object value = delegate.getObject(key);
+    if (value != null) {
+      return value;
+    }
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+    for (;;) {
+      Load load = new Load();
+      Load current = loads.putIfAbsent(key, load);
+      if (current == null) {
+        // the value may have been put between the first read and the registration
+        value = delegate.getObject(key);
+        if (value != null) {
+          releaseLoad(key);
+        }
+        return value;
+      }
+      if (current.owner == Thread.currentThread()) {
+        return delegate.getObject(key);
+      }
+      awaitLoad(key, current, deadline);
+      value = delegate.getObject(key);
+      if (value != null) {
+        return value;
+      }
+      // the load was released without a value (rollback, eviction), try to take it over
+    }
+  }
+
+  private void awaitLoad(Object key, Load load, long deadline) {
+    try {
+      if (timeout > 0) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0 || !load.done.await(remaining, TimeUnit.NANOSECONDS)) {
+          throw new CacheException("Couldn't get a lock in " + timeout + " for the key " +  key + " at the cache " + delegate.getId());
+        }
+      } else {
+        load.done.await();
+      }
+    } catch (InterruptedException e) {
+      throw new CacheException("Got interrupted while trying to acquire lock for key " + key, e);
+    }
+  }
+
+  void release(Object key) {
+    if (coalescing) {
+      releaseLoad(key);
+    } else {
+      releaseLock(key);
+    }
+  }
+
+  private void releaseLoad(Object key) {
+    Load load = loads.get(key);
+    if (load != null && load.owner == Thread.currentThread() && loads.remove(key, load)) {
+      load.done.countDown();
+    }
+  }
+
   private ReentrantLock getLockForKey(Object key) {
     return locks.computeIfAbsent(key, k -> new ReentrantLock());
   }
@@ -125,4 +199,56 @@ public class BlockingCache implements Cache {
   public void setTimeout(long timeout) {
     this.timeout = timeout;
   }
+
+  public boolean isCoalescing() {
+    return coalescing;
+  }
+
+  /**
+   * Enables the coalescing mode. Must be set before the cache is used.
+   *
+   * @since 3.5.2
+   */
+  public void setCoalescing(boolean coalescing) {
+    this.coalescing = coalescing;
+  }
+
+  /**
+   * Blocking cache over a {@link TableAwareCache}, which keeps the tables of the entries it puts and forwards
+   * table invalidations. Invalidations must reach the delegate because {@link #removeObject(Object)} only
+   * releases a lock.
+   *
+   * @since 3.5.2
+   */
+  public static class TableAware extends BlockingCache implements TableAwareCache {
+
+    private final TableAwareCache delegate;
+
+    public TableAware(TableAwareCache delegate) {
+      super(delegate);
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void putObject(Object key, Object value, Set<String> tables) {
+      try {
+        delegate.putObject(key, value, tables);
+      } finally {
+        release(key);
+      }
+    }
+
+    @Override
+    public void invalidate(Set<String> tables) {
+      delegate.invalidate(tables);
+    }
+  }
+
+  /**
+   * Load of a key in progress, owned by the thread that missed it first.
+   */
+  private static final class Load {
+    private final Thread owner = Thread.currentThread();
+    private final CountDownLatch done = new CountDownLatch(1);
+  }
 }
@@ -0,0 +1,151 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.TableAwareCache;
+import org.apache.ibatis.cache.ThreadSafeCache;
+import org.apache.ibatis.cache.invalidation.InvalidationEvent;
+import org.apache.ibatis.cache.invalidation.InvalidationListener;
+import org.apache.ibatis.cache.invalidation.InvalidationTransport;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Broadcasts the clears of the cache to the other nodes of a cluster, and clears it when another node does.
+ * <p>
+ * A statement flushing the cache clears it on commit, see {@link TransactionalCache}, so the other nodes drop
+ * their stale entries too instead of serving them until their {@code flushInterval} expires. Removals of single
+ * keys are not broadcast: they only release entries missed by a rolled back session.
+ * When the delegate is a {@link TableAwareCache}, table invalidations are broadcast as such.
+ * A failure to broadcast is logged and does not fail the commit.
+ *
+ * @since 3.5.2
+ */
+public class BroadcastCache implements TableAwareCache, ThreadSafeCache {
+
+  private static final Log log = LogFactory.getLog(BroadcastCache.class);
+
+  private final Cache delegate;
+  private final InvalidationTransport transport;
+  private final InvalidationListener listener = this::onInvalidation;
+
+  public BroadcastCache(Cache delegate, InvalidationTransport transport) {
+    this.delegate = delegate;
+    this.transport = transport;
+    transport.subscribe(listener);
+  }
+
+  public InvalidationTransport getTransport() {
+    return transport;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object object) {
+    delegate.putObject(key, object);
+  }
+
+  @Override
+  public void putObject(Object key, Object value, Set<String> tables) {
+    if (delegate instanceof TableAwareCache) {
+      ((TableAwareCache) delegate).putObject(key, value, tables);
+    } else {
+      delegate.putObject(key, value);
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    return delegate.getObject(key);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+    publish(new InvalidationEvent(getId()));
+  }
+
+  @Override
+  public void invalidate(Set<String> tables) {
+    if (delegate instanceof TableAwareCache) {
+      ((TableAwareCache) delegate).invalidate(tables);
+      publish(new InvalidationEvent(getId(), tables));
+    } else {
+      clear();
+    }
+  }
+
+  private void publish(InvalidationEvent event) {
+    try {
+      transport.publish(event);
+    } catch (CacheException e) {
+      log.warn("Error broadcasting " + event + ".", e);
+    }
+  }
+
+  /**
+   * Stops listening to the other nodes.
+   */
+  public void detach() {
+    transport.unsubscribe(listener);
+  }
+
+  private void onInvalidation(InvalidationEvent event) {
+    if (!getId().equals(event.getCacheId())) {
+      return;
+    }
+    if (!event.getTables().isEmpty() && delegate instanceof TableAwareCache) {
+      ((TableAwareCache) delegate).invalidate(event.getTables());
+    } else {
+      delegate.clear();
+    }
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  @Override
+  public int hashCode() {
+    return delegate.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return delegate.equals(obj);
+  }
+
+}
@@ -0,0 +1,194 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.ThreadSafeCache;
+import org.apache.ibatis.cache.impl.ObjectSizeWeigher;
+import org.apache.ibatis.cache.metrics.CacheStatistics;
+
+/**
+ * Records the {@link CacheStatistics} of a cache.
+ * <p>
+ * The load time is measured from a miss to the put of the value for the same key, which for the second level
+ * cache includes the rest of the transaction. The size of one value put out of {@value #SAMPLE_RATE} is
+ * estimated, see {@link ObjectSizeWeigher}, to estimate the size of the whole cache.
+ *
+ * @since 3.5.2
+ */
+public class MetricsCache implements ThreadSafeCache {
+
+  private static final int SAMPLE_RATE = 16;
+  private static final int MAX_PENDING_LOADS = 10000;
+
+  private final Cache delegate;
+  private final CacheStatistics statistics;
+  // 未命中的 key 及其时间，用于计算加载耗时
+  private final ConcurrentMap<Object, Long> pendingLoads = new ConcurrentHashMap<>();
+  private final AtomicLong puts = new AtomicLong();
+  private final ObjectSizeWeigher weigher = new ObjectSizeWeigher();
+
+  public MetricsCache(Cache delegate, CacheStatistics statistics) {
+    this.delegate = delegate;
+    this.statistics = statistics;
+    statistics.setEntryCount(delegate::getSize);
+  }
+
+  public CacheStatistics getStatistics() {
+    return statistics;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object object) {
+    delegate.putObject(key, object);
+    Long missedAt = pendingLoads.remove(key);
+    if (object == null) {
+      return;
+    }
+    statistics.recordPut();
+    if (missedAt != null) {
+      statistics.recordLoad(System.nanoTime() - missedAt);
+    }
+    if (puts.getAndIncrement() % SAMPLE_RATE == 0) {
+      statistics.recordSample(weigher.sizeOf(object));
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Object value = delegate.getObject(key);
+    if (value == null) {
+      statistics.recordMiss();
+      if (pendingLoads.size() < MAX_PENDING_LOADS) {
+        pendingLoads.put(key, System.nanoTime());
+      }
+    } else {
+      statistics.recordHit();
+    }
+    return value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    pendingLoads.remove(key);
+    Object removed = delegate.removeObject(key);
+    if (removed != null) {
+      statistics.recordRemoval();
+    }
+    return removed;
+  }
+
+  @Override
+  public void clear() {
+    pendingLoads.clear();
+    delegate.clear();
+    statistics.recordClear();
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  @Override
+  public int hashCode() {
+    return delegate.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return delegate.equals(obj);
+  }
+
+  /**
+   * Wraps the base cache, below the eviction decorators, to count the entries they evict.
+   */
+  public static class EvictionCounter implements Cache {
+
+    private final Cache delegate;
+    private final CacheStatistics statistics;
+
+    public EvictionCounter(Cache delegate, CacheStatistics statistics) {
+      this.delegate = delegate;
+      this.statistics = statistics;
+    }
+
+    @Override
+    public String getId() {
+      return delegate.getId();
+    }
+
+    @Override
+    public int getSize() {
+      return delegate.getSize();
+    }
+
+    @Override
+    public void putObject(Object key, Object value) {
+      delegate.putObject(key, value);
+    }
+
+    @Override
+    public Object getObject(Object key) {
+      return delegate.getObject(key);
+    }
+
+    @Override
+    public Object removeObject(Object key) {
+      Object removed = delegate.removeObject(key);
+      if (removed != null) {
+        statistics.recordDeletion();
+      }
+      return removed;
+    }
+
+    @Override
+    public void clear() {
+      delegate.clear();
+    }
+
+    @Override
+    public ReadWriteLock getReadWriteLock() {
+      return null;
+    }
+
+    @Override
+    public int hashCode() {
+      return delegate.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return delegate.equals(obj);
+    }
+  }
+
+}
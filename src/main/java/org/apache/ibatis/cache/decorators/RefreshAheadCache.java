@@ -0,0 +1,174 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.ThreadSafeCache;
+
+/**
+ * Expires entries one by one, serving the stale value while a single caller reloads it.
+ * <p>
+ * Unlike {@link ScheduledCache}, which clears the whole cache every interval, each entry lives
+ * {@link #setTimeToLive(long) timeToLive} milliseconds minus a random {@link #setJitter(double) jitter}, so that
+ * entries put together do not expire together. The first lookup of an expired entry misses, so that its caller
+ * queries the database and puts the new value; meanwhile the other callers keep getting the stale value, for at
+ * most {@link #setReloadTimeout(long) reloadTimeout} milliseconds after which another caller gets to reload.
+ * Combined with a blocking cache, use its coalescing mode so that the stale hits are not blocked by the reload.
+ * <p>
+ * Enabled with the {@code refreshAhead} property, the {@code flushInterval} being the time to live:
+ *
+ * <pre>
+ * &lt;cache flushInterval="600000"&gt;
+ *   &lt;property name="refreshAhead" value="true"/&gt;
+ *   &lt;property name="jitter" value="0.2"/&gt;
+ * &lt;/cache&gt;
+ * </pre>
+ *
+ * @since 3.5.2
+ */
+public class RefreshAheadCache implements ThreadSafeCache {
+
+  private final Cache delegate;
+  private long timeToLive = 60 * 60 * 1000; // 1 hour
+  private double jitter = 0.1;
+  private long reloadTimeout = 60 * 1000;
+
+  public RefreshAheadCache(Cache delegate) {
+    this.delegate = delegate;
+  }
+
+  public long getTimeToLive() {
+    return timeToLive;
+  }
+
+  public void setTimeToLive(long timeToLive) {
+    this.timeToLive = timeToLive;
+  }
+
+  public double getJitter() {
+    return jitter;
+  }
+
+  /**
+   * Sets the largest fraction of the time to live randomly cut from each entry, 0.1 by default.
+   */
+  public void setJitter(double jitter) {
+    if (jitter < 0 || jitter >= 1) {
+      throw new IllegalArgumentException("Jitter must be in [0, 1): " + jitter);
+    }
+    this.jitter = jitter;
+  }
+
+  public long getReloadTimeout() {
+    return reloadTimeout;
+  }
+
+  /**
+   * Sets how long in milliseconds a caller has to put the reloaded value of an expired entry, one minute by default.
+   */
+  public void setReloadTimeout(long reloadTimeout) {
+    this.reloadTimeout = reloadTimeout;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object object) {
+    if (object == null) {
+      delegate.putObject(key, null);
+      return;
+    }
+    long lifetime = timeToLive;
+    if (jitter > 0) {
+      lifetime -= (long) (ThreadLocalRandom.current().nextDouble(jitter) * timeToLive);
+    }
+    delegate.putObject(key, new Entry(object, currentTime() + lifetime));
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Object stored = delegate.getObject(key);
+    if (!(stored instanceof Entry)) {
+      return stored;
+    }
+    Entry entry = (Entry) stored;
+    long now = currentTime();
+    if (now < entry.expiresAt) {
+      return entry.value;
+    }
+    long reloadingSince = entry.reloadingSince.get();
+    if (reloadingSince != 0 && now - reloadingSince < reloadTimeout) {
+      return entry.value;
+    }
+    // expired and nobody reloading it: this caller gets to reload it
+    return entry.reloadingSince.compareAndSet(reloadingSince, now) ? null : entry.value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    Object removed = delegate.removeObject(key);
+    return removed instanceof Entry ? ((Entry) removed).value : removed;
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  @Override
+  public int hashCode() {
+    return delegate.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return delegate.equals(obj);
+  }
+
+  protected long currentTime() {
+    return System.currentTimeMillis();
+  }
+
+  private static final class Entry {
+    private final Object value;
+    private final long expiresAt;
+    // 开始重新加载的时间，0 表示无人加载
+    private final AtomicLong reloadingSince = new AtomicLong();
+
+    private Entry(Object value, long expiresAt) {
+      this.value = value;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+}
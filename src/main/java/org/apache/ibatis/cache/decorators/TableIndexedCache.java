@@ -0,0 +1,326 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.TableAwareCache;
+import org.apache.ibatis.cache.ThreadSafeCache;
+
+/**
+ * Keeps an index from table to the keys of the entries read from it, so that a write only evicts those entries.
+ * <p>
+ * Entries are evicted with {@link Cache#removeObject(Object)}, so the delegate must remove the entry there, as
+ * the built-in caches do except {@link BlockingCache}: this cache goes below it, see
+ * {@link BlockingCache.TableAware}. Entries whose tables are unknown are evicted by any invalidation.
+ * <p>
+ * The entries the delegate evicts by itself leave the index when an {@link EvictionTracker} below the eviction
+ * decorators reports them. Without one the index may keep keys evicted already. Once it holds
+ * {@link #setMaxTrackedKeys(int) maxTrackedKeys} keys, new entries are not cached until some leave the index, so it
+ * should exceed the size of the delegate.
+ *
+ * @since 3.5.2
+ */
+public class TableIndexedCache implements TableAwareCache, ThreadSafeCache {
+
+  private static final Object CLEARED = new Object();
+
+  private final Cache delegate;
+  // 串行化写操作与索引维护，读操作不加锁
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Map<Object, Set<String>> keyTables = new HashMap<>();
+  private final Map<String, Set<Object>> tableKeys = new HashMap<>();
+  private final Set<Object> untrackedKeys = new HashSet<>();
+  private int maxTrackedKeys = 8192;
+  // 其他线程（如读操作触发的回收）报告的淘汰，持锁时处理
+  private final Queue<Object> evictions = new ConcurrentLinkedQueue<>();
+
+  public TableIndexedCache(Cache delegate) {
+    this(delegate, null);
+  }
+
+  /**
+   * @param tracker the tracker of the entries the delegate evicts, or null if none
+   */
+  public TableIndexedCache(Cache delegate, EvictionTracker tracker) {
+    this.delegate = delegate;
+    if (tracker != null) {
+      tracker.index = this;
+    }
+  }
+
+  public int getMaxTrackedKeys() {
+    return maxTrackedKeys;
+  }
+
+  public void setMaxTrackedKeys(int maxTrackedKeys) {
+    this.maxTrackedKeys = maxTrackedKeys;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    putObject(key, value, null);
+  }
+
+  @Override
+  public void putObject(Object key, Object value, Set<String> tables) {
+    lock.lock();
+    try {
+      applyEvictions(null);
+      untrack(key);
+      if (value != null) {
+        if (keyTables.size() + untrackedKeys.size() >= maxTrackedKeys) {
+          // an entry the index cannot hold could never be invalidated
+          delegate.removeObject(key);
+          return;
+        }
+        track(key, tables);
+      }
+      delegate.putObject(key, value);
+      if (applyEvictions(key)) {
+        untrack(key);
+        delegate.removeObject(key);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    return delegate.getObject(key);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    lock.lock();
+    try {
+      applyEvictions(null);
+      untrack(key);
+      return delegate.removeObject(key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void invalidate(Set<String> tables) {
+    lock.lock();
+    try {
+      applyEvictions(null);
+      List<Object> keys = new ArrayList<>(untrackedKeys);
+      for (String table : tables) {
+        Set<Object> dependents = tableKeys.get(table);
+        if (dependents != null) {
+          keys.addAll(dependents);
+        }
+      }
+      for (Object key : keys) {
+        if (untrack(key)) {
+          delegate.removeObject(key);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      evictions.clear();
+      clearIndex();
+      delegate.clear();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void track(Object key, Set<String> tables) {
+    if (tables == null) {
+      untrackedKeys.add(key);
+      return;
+    }
+    keyTables.put(key, tables);
+    for (String table : tables) {
+      tableKeys.computeIfAbsent(table, k -> new HashSet<>()).add(key);
+    }
+  }
+
+  /**
+   * @return whether the key was tracked
+   */
+  private boolean untrack(Object key) {
+    if (untrackedKeys.remove(key)) {
+      return true;
+    }
+    Set<String> tables = keyTables.remove(key);
+    if (tables == null) {
+      return false;
+    }
+    for (String table : tables) {
+      Set<Object> dependents = tableKeys.get(table);
+      if (dependents != null && dependents.remove(key) && dependents.isEmpty()) {
+        tableKeys.remove(table);
+      }
+    }
+    return true;
+  }
+
+  void evicted(Object key) {
+    if (lock.isHeldByCurrentThread()) {
+      untrack(key);
+    } else {
+      evictions.add(key);
+    }
+  }
+
+  void cleared() {
+    if (lock.isHeldByCurrentThread()) {
+      clearIndex();
+    } else {
+      evictions.add(CLEARED);
+    }
+  }
+
+  /**
+   * Applies the evictions reported by other threads. They are reported before the delegate evicts, so one applied
+   * right after an entry was put may concern that entry.
+   *
+   * @return whether an eviction of the put key, or a clear, was applied
+   */
+  private boolean applyEvictions(Object putKey) {
+    boolean putEvicted = false;
+    Object key;
+    while ((key = evictions.poll()) != null) {
+      if (key == CLEARED) {
+        clearIndex();
+        putEvicted = true;
+      } else {
+        untrack(key);
+        putEvicted |= key.equals(putKey);
+      }
+    }
+    return putEvicted;
+  }
+
+  private void clearIndex() {
+    keyTables.clear();
+    tableKeys.clear();
+    untrackedKeys.clear();
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  @Override
+  public int hashCode() {
+    return delegate.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return delegate.equals(obj);
+  }
+
+  /**
+   * Wraps the base cache, below the eviction decorators, to report the entries they evict to the index.
+   */
+  public static class EvictionTracker implements Cache {
+
+    private final Cache delegate;
+    private TableIndexedCache index;
+
+    public EvictionTracker(Cache delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public String getId() {
+      return delegate.getId();
+    }
+
+    @Override
+    public int getSize() {
+      return delegate.getSize();
+    }
+
+    @Override
+    public void putObject(Object key, Object value) {
+      delegate.putObject(key, value);
+    }
+
+    @Override
+    public Object getObject(Object key) {
+      return delegate.getObject(key);
+    }
+
+    @Override
+    public Object removeObject(Object key) {
+      if (index != null) {
+        index.evicted(key);
+      }
+      return delegate.removeObject(key);
+    }
+
+    @Override
+    public void clear() {
+      if (index != null) {
+        index.cleared();
+      }
+      delegate.clear();
+    }
+
+    @Override
+    public ReadWriteLock getReadWriteLock() {
+      return null;
+    }
+
+    @Override
+    public int hashCode() {
+      return delegate.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return delegate.equals(obj);
+    }
+  }
+
+}
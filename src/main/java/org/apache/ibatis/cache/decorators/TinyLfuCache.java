@@ -0,0 +1,320 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.ThreadSafeCache;
+
+/**
+ * W-TinyLFU (window tiny least frequently used) cache decorator.
+ * <p>
+ * New keys enter a small LRU window. A key leaving the window is only admitted into the main space, a segmented
+ * LRU split in probation and protected parts, if it has been requested more often than the key it would evict,
+ * according to a {@link FrequencySketch}. This keeps popular statements cached when many one-off queries go through.
+ * <p>
+ * Reads do not lock: they are recorded in a lossy ring buffer that is replayed against the policy by whichever
+ * thread next gets the eviction lock. The decorator is therefore thread safe whenever its delegate is.
+ *
+ * @since 3.5.2
+ */
+public class TinyLfuCache implements ThreadSafeCache {
+
+  private static final int READ_BUFFER_SIZE = 128;
+  private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+  private static final int READ_BUFFER_DRAIN_THRESHOLD = 32;
+
+  private final Cache delegate;
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private final Map<Object, Node> nodes = new HashMap<>();
+  private final FrequencySketch sketch = new FrequencySketch();
+  private final AccessOrderDeque window = new AccessOrderDeque();
+  private final AccessOrderDeque probation = new AccessOrderDeque();
+  private final AccessOrderDeque protectedSpace = new AccessOrderDeque();
+  private final AtomicReferenceArray<Object> readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+  private final AtomicLong readBufferWriteCount = new AtomicLong();
+  private volatile long readBufferReadCount;
+
+  private int size;
+  private int windowSize;
+  private int protectedSize;
+
+  public TinyLfuCache(Cache delegate) {
+    this.delegate = delegate;
+    setSize(1024);
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  public void setSize(int size) {
+    evictionLock.lock();
+    try {
+      this.size = Math.max(size, 1);
+      // 1% of the entries for the window, and 80% of the rest for the protected segment
+      this.windowSize = Math.max(this.size / 100, 1);
+      this.protectedSize = (this.size - windowSize) * 4 / 5;
+      sketch.setMaximumSize(this.size);
+      evict();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    evictionLock.lock();
+    try {
+      drainReadBuffer();
+      delegate.putObject(key, value);
+      sketch.increment(key);
+      Node node = nodes.get(key);
+      if (node == null) {
+        node = new Node(key);
+        nodes.put(key, node);
+        window.addLast(node);
+        node.queue = window;
+        evict();
+      } else {
+        onAccess(node);
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Object value = delegate.getObject(key);
+    if (recordRead(key) >= READ_BUFFER_DRAIN_THRESHOLD && evictionLock.tryLock()) {
+      try {
+        drainReadBuffer();
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+    return value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    evictionLock.lock();
+    try {
+      Node node = nodes.remove(key);
+      if (node != null) {
+        node.queue.remove(node);
+      }
+      return delegate.removeObject(key);
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    evictionLock.lock();
+    try {
+      drainReadBuffer();
+      delegate.clear();
+      nodes.clear();
+      window.clear();
+      probation.clear();
+      protectedSpace.clear();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  /**
+   * @return the number of reads waiting to be replayed, or 0 if the buffer is full and the read was dropped
+   */
+  private long recordRead(Object key) {
+    for (;;) {
+      long writeCount = readBufferWriteCount.get();
+      long pending = writeCount - readBufferReadCount;
+      if (pending >= READ_BUFFER_SIZE) {
+        return pending;
+      }
+      if (readBufferWriteCount.compareAndSet(writeCount, writeCount + 1)) {
+        readBuffer.lazySet((int) writeCount & READ_BUFFER_MASK, key);
+        return pending + 1;
+      }
+    }
+  }
+
+  private void drainReadBuffer() {
+    long readCount = readBufferReadCount;
+    long writeCount = readBufferWriteCount.get();
+    for (; readCount < writeCount; readCount++) {
+      int index = (int) readCount & READ_BUFFER_MASK;
+      Object key = readBuffer.get(index);
+      if (key == null) {
+        // the slot was claimed but its key is not published yet
+        break;
+      }
+      readBuffer.lazySet(index, null);
+      sketch.increment(key);
+      Node node = nodes.get(key);
+      if (node != null) {
+        onAccess(node);
+      }
+    }
+    readBufferReadCount = readCount;
+  }
+
+  private void onAccess(Node node) {
+    if (node.queue == probation) {
+      probation.remove(node);
+      protectedSpace.addLast(node);
+      node.queue = protectedSpace;
+      while (protectedSpace.size > protectedSize) {
+        Node demoted = protectedSpace.pollFirst();
+        probation.addLast(demoted);
+        demoted.queue = probation;
+      }
+    } else {
+      node.queue.moveToLast(node);
+    }
+  }
+
+  private void evict() {
+    while (window.size > windowSize || nodes.size() > size) {
+      Node candidate = window.size > windowSize ? window.pollFirst() : null;
+      if (candidate != null && probation.size + protectedSpace.size < size - windowSize) {
+        probation.addLast(candidate);
+        candidate.queue = probation;
+        continue;
+      }
+      Node victim = probation.peekFirst() != null ? probation.peekFirst() : protectedSpace.peekFirst();
+      if (candidate == null) {
+        if (victim == null) {
+          victim = window.peekFirst();
+        }
+        evict(victim);
+      } else if (victim != null && sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+        evict(victim);
+        probation.addLast(candidate);
+        candidate.queue = probation;
+      } else {
+        candidate.queue = null;
+        evictKey(candidate);
+      }
+    }
+  }
+
+  private void evict(Node node) {
+    node.queue.remove(node);
+    node.queue = null;
+    evictKey(node);
+  }
+
+  private void evictKey(Node node) {
+    nodes.remove(node.key);
+    delegate.removeObject(node.key);
+  }
+
+  private static final class Node {
+    private final Object key;
+    private Node previous;
+    private Node next;
+    private AccessOrderDeque queue;
+
+    private Node(Object key) {
+      this.key = key;
+    }
+  }
+
+  /**
+   * Doubly linked list of nodes from the least to the most recently used, guarded by the eviction lock.
+   */
+  private static final class AccessOrderDeque {
+    private Node first;
+    private Node last;
+    private int size;
+
+    Node peekFirst() {
+      return first;
+    }
+
+    Node pollFirst() {
+      Node node = first;
+      if (node != null) {
+        remove(node);
+      }
+      return node;
+    }
+
+    void addLast(Node node) {
+      node.previous = last;
+      node.next = null;
+      if (last == null) {
+        first = node;
+      } else {
+        last.next = node;
+      }
+      last = node;
+      size++;
+    }
+
+    void moveToLast(Node node) {
+      if (node != last) {
+        remove(node);
+        addLast(node);
+      }
+    }
+
+    void remove(Node node) {
+      if (node.previous == null) {
+        first = node.next;
+      } else {
+        node.previous.next = node.next;
+      }
+      if (node.next == null) {
+        last = node.previous;
+      } else {
+        node.next.previous = node.previous;
+      }
+      node.previous = null;
+      node.next = null;
+      size--;
+    }
+
+    void clear() {
+      first = null;
+      last = null;
+      size = 0;
+    }
+  }
+
+}
@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -22,6 +23,7 @@ import java.util.Set;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.TableAwareCache;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 
@@ -32,6 +34,8 @@ import org.apache.ibatis.logging.LogFactory;
  * Entries are sent to the cache when commit is called or discarded if the Session is rolled back.
  * Blocking cache support has been added. Therefore any get() that returns a cache miss
  * will be followed by a put() so any lock associated with the key can be released.
+ * When the delegate is a {@link TableAwareCache}, a write may only invalidate the entries read from the tables it
+ * changed; until commit this session then reads past the cache, like after a clear.
  *
  * @author Clinton Begin
  * @author Eduardo Macarron
@@ -43,12 +47,17 @@ public class TransactionalCache implements Cache {
   private final Cache delegate;
   private boolean clearOnCommit;
   private final Map<Object, Object> entriesToAddOnCommit;
+  // 待提交条目所依赖的表，未知时没有对应项
+  private final Map<Object, Set<String>> tablesOfEntriesToAdd;
+  private final Set<String> tablesToInvalidateOnCommit;
   private final Set<Object> entriesMissedInCache;
 
   public TransactionalCache(Cache delegate) {
     this.delegate = delegate;
     this.clearOnCommit = false;
     this.entriesToAddOnCommit = new HashMap<>();
+    this.tablesOfEntriesToAdd = new HashMap<>();
+    this.tablesToInvalidateOnCommit = new HashSet<>();
     this.entriesMissedInCache = new HashSet<>();
   }
 
@@ -70,7 +79,7 @@ public class TransactionalCache implements Cache {
       entriesMissedInCache.add(key);
     }
     // issue #146
-    if (clearOnCommit) {
+    if (clearOnCommit || !tablesToInvalidateOnCommit.isEmpty()) {
       return null;
     } else {
       return object;
@@ -84,7 +93,20 @@ public class TransactionalCache implements Cache {
 
   @Override
   public void putObject(Object key, Object object) {
+    putObject(key, object, null);
+  }
+
+  /**
+   * @param tables the tables the object was read from, or null if unknown
+   * @since 3.5.2
+   */
+  public void putObject(Object key, Object object, Set<String> tables) {
     entriesToAddOnCommit.put(key, object);
+    if (tables == null) {
+      tablesOfEntriesToAdd.remove(key);
+    } else {
+      tablesOfEntriesToAdd.put(key, tables);
+    }
   }
 
   @Override
@@ -96,11 +118,33 @@ public class TransactionalCache implements Cache {
   public void clear() {
     clearOnCommit = true;
     entriesToAddOnCommit.clear();
+    tablesOfEntriesToAdd.clear();
+  }
+
+  /**
+   * Evicts on commit the entries read from the given tables, or all of them if the delegate does not track tables.
+   *
+   * @since 3.5.2
+   */
+  public void invalidate(Set<String> tables) {
+    if (!(delegate instanceof TableAwareCache)) {
+      clear();
+      return;
+    }
+    tablesToInvalidateOnCommit.addAll(tables);
+    // entries read before this write may be stale
+    entriesToAddOnCommit.keySet().removeIf(key -> {
+      Set<String> read = tablesOfEntriesToAdd.get(key);
+      return read == null || !Collections.disjoint(read, tables);
+    });
+    tablesOfEntriesToAdd.keySet().retainAll(entriesToAddOnCommit.keySet());
   }
 
   public void commit() {
     if (clearOnCommit) {
       delegate.clear();
+    } else if (!tablesToInvalidateOnCommit.isEmpty()) {
+      ((TableAwareCache) delegate).invalidate(new HashSet<>(tablesToInvalidateOnCommit));
     }
     flushPendingEntries();
     reset();
@@ -114,12 +158,18 @@ public class TransactionalCache implements Cache {
   private void reset() {
     clearOnCommit = false;
     entriesToAddOnCommit.clear();
+    tablesOfEntriesToAdd.clear();
+    tablesToInvalidateOnCommit.clear();
     entriesMissedInCache.clear();
   }
 
   private void flushPendingEntries() {
     for (Map.Entry<Object, Object> entry : entriesToAddOnCommit.entrySet()) {
-      delegate.putObject(entry.getKey(), entry.getValue());
+      if (delegate instanceof TableAwareCache) {
+        ((TableAwareCache) delegate).putObject(entry.getKey(), entry.getValue(), tablesOfEntriesToAdd.get(entry.getKey()));
+      } else {
+        delegate.putObject(entry.getKey(), entry.getValue());
+      }
     }
     for (Object entry : entriesMissedInCache) {
       if (!entriesToAddOnCommit.containsKey(entry)) {
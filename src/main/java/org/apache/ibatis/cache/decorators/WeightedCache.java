@@ -0,0 +1,204 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.ThreadSafeCache;
+import org.apache.ibatis.cache.Weigher;
+import org.apache.ibatis.cache.impl.ObjectSizeWeigher;
+import org.apache.ibatis.io.Resources;
+
+/**
+ * Weight bounded LRU (least recently used) cache decorator.
+ * <p>
+ * Each entry is weighed once when it is put, by default with an {@link ObjectSizeWeigher} estimating the bytes
+ * held by the cached list, and the least recently used entries are evicted as long as the total weight is over
+ * {@link #setMaximumWeight(long) maximumWeight}. An entry heavier than the maximum on its own is not cached.
+ * The entry count can additionally be bounded with {@link #setSize(int) size}.
+ *
+ * <pre>
+ * &lt;cache eviction="WEIGHTED"&gt;
+ *   &lt;property name="maximumWeight" value="67108864"/&gt;
+ *   &lt;property name="weigherType" value="com.example.MyWeigher"/&gt;
+ * &lt;/cache&gt;
+ * </pre>
+ *
+ * @since 3.5.2
+ */
+public class WeightedCache implements ThreadSafeCache {
+
+  private final Cache delegate;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Map<Object, Long> weights = new LinkedHashMap<>(16, .75F, true);
+  private Weigher weigher = new ObjectSizeWeigher();
+  private long maximumWeight = 64L * 1024 * 1024;
+  private int size = Integer.MAX_VALUE;
+  private long totalWeight;
+
+  public WeightedCache(Cache delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  public void setSize(int size) {
+    lock.lock();
+    try {
+      this.size = size;
+      evict();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long getMaximumWeight() {
+    return maximumWeight;
+  }
+
+  public void setMaximumWeight(long maximumWeight) {
+    lock.lock();
+    try {
+      this.maximumWeight = maximumWeight;
+      evict();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the sum of the weights of the cached entries
+   */
+  public long getTotalWeight() {
+    lock.lock();
+    try {
+      return totalWeight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public Weigher getWeigher() {
+    return weigher;
+  }
+
+  public void setWeigher(Weigher weigher) {
+    this.weigher = weigher;
+  }
+
+  /**
+   * Sets the weigher from the fully qualified name of a {@link Weigher} implementation.
+   */
+  public void setWeigherType(String weigherClassName) {
+    try {
+      Class<?> weigherClass = Resources.classForName(weigherClassName);
+      setWeigher((Weigher) weigherClass.getDeclaredConstructor().newInstance());
+    } catch (Exception e) {
+      throw new CacheException("Error creating weigher '" + weigherClassName + "' for cache " + getId() + ". Cause: " + e, e);
+    }
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    // weighing walks the whole result, do it before taking the lock
+    long weight = Math.max(weigher.weigh(key, value), 0L);
+    lock.lock();
+    try {
+      if (weight > maximumWeight) {
+        remove(key);
+        delegate.removeObject(key);
+        return;
+      }
+      delegate.putObject(key, value);
+      Long previous = weights.put(key, weight);
+      totalWeight += weight - (previous == null ? 0L : previous);
+      evict();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    lock.lock();
+    try {
+      weights.get(key); //touch
+    } finally {
+      lock.unlock();
+    }
+    return delegate.getObject(key);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    lock.lock();
+    try {
+      remove(key);
+      return delegate.removeObject(key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      delegate.clear();
+      weights.clear();
+      totalWeight = 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  private void remove(Object key) {
+    Long weight = weights.remove(key);
+    if (weight != null) {
+      totalWeight -= weight;
+    }
+  }
+
+  private void evict() {
+    Iterator<Map.Entry<Object, Long>> eldest = weights.entrySet().iterator();
+    while ((totalWeight > maximumWeight || weights.size() > size) && eldest.hasNext()) {
+      Map.Entry<Object, Long> entry = eldest.next();
+      eldest.remove();
+      totalWeight -= entry.getValue();
+      delegate.removeObject(entry.getKey());
+    }
+  }
+
+}
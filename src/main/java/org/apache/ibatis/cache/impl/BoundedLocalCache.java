@@ -0,0 +1,127 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.apache.ibatis.cache.Weigher;
+
+/**
+ * Session cache bounded in entries and estimated bytes, evicting the least recently used entries.
+ * <p>
+ * Entries are only evicted by {@link #trim()}, which the executor calls once no query is running: the entries of
+ * the queries in progress and of the pending deferred loads must stay until then.
+ *
+ * @since 3.5.2
+ */
+public class BoundedLocalCache extends PerpetualCache {
+
+  // 与父类共用的按访问顺序排列的条目，trim() 从最久未使用的一端淘汰
+  private final Map<Object, Object> cache;
+  // 仅在限制字节数时记录每个条目的估算大小
+  private final Map<Object, Long> weights = new HashMap<>();
+  private final int maxSize;
+  private final long maxBytes;
+  private final Weigher weigher;
+  private long totalWeight;
+  private Consumer<Object> evictionListener = key -> { };
+
+  /**
+   * @param maxSize the number of entries kept, or 0 for no bound
+   * @param maxBytes the estimated bytes of the entries kept, see {@link ObjectSizeWeigher}, or 0 for no bound
+   */
+  public BoundedLocalCache(String id, int maxSize, long maxBytes) {
+    this(id, maxSize, maxBytes, new LinkedHashMap<>(16, 0.75f, true));
+  }
+
+  private BoundedLocalCache(String id, int maxSize, long maxBytes, Map<Object, Object> cache) {
+    super(id, cache);
+    this.cache = cache;
+    this.maxSize = maxSize;
+    this.maxBytes = maxBytes;
+    this.weigher = maxBytes > 0 ? new ObjectSizeWeigher() : null;
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  public long getTotalWeight() {
+    return totalWeight;
+  }
+
+  /**
+   * Sets a listener told of the keys evicted by {@link #trim()}.
+   */
+  public void setEvictionListener(Consumer<Object> evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    super.putObject(key, value);
+    if (weigher != null) {
+      long weight = value instanceof Enum ? 0 : weigher.weigh(key, value);
+      Long previous = weights.put(key, weight);
+      totalWeight += weight - (previous == null ? 0 : previous);
+    }
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    Long weight = weights.remove(key);
+    if (weight != null) {
+      totalWeight -= weight;
+    }
+    return super.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    super.clear();
+    weights.clear();
+    totalWeight = 0;
+  }
+
+  /**
+   * Evicts the least recently used entries until the cache is within its bounds.
+   */
+  public void trim() {
+    Iterator<Object> keys = cache.keySet().iterator();
+    while (keys.hasNext() && isOverBounds()) {
+      Object key = keys.next();
+      keys.remove();
+      Long weight = weights.remove(key);
+      if (weight != null) {
+        totalWeight -= weight;
+      }
+      evictionListener.accept(key);
+    }
+  }
+
+  private boolean isOverBounds() {
+    return (maxSize > 0 && cache.size() > maxSize) || (maxBytes > 0 && totalWeight > maxBytes);
+  }
+
+}
@@ -0,0 +1,234 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.cache.Weigher;
+
+/**
+ * Default {@link Weigher}: estimates the bytes retained by a cached value by walking its object graph.
+ * <p>
+ * Sizes assume a 64-bit JVM with compressed references. Common JDK value types and collections are sized from
+ * their content without reflection, other JDK classes count as a small object, and result objects are walked
+ * field by field. Objects reachable more than once are counted once.
+ *
+ * @since 3.5.2
+ */
+public class ObjectSizeWeigher implements Weigher {
+
+  private static final int OBJECT_HEADER = 12;
+  private static final int ARRAY_HEADER = 16;
+  private static final int REFERENCE = 4;
+  // 缓存条目本身（key、map entry、链表节点）的大致开销
+  private static final int ENTRY_OVERHEAD = 64;
+
+  // 布局保存在各个类自身上，不会阻止结果类所在的类加载器被回收
+  private static final ClassValue<ClassLayout> layouts = new ClassValue<ClassLayout>() {
+    @Override
+    protected ClassLayout computeValue(Class<?> type) {
+      return new ClassLayout(type);
+    }
+  };
+
+  @Override
+  public long weigh(Object key, Object value) {
+    return ENTRY_OVERHEAD + sizeOf(value);
+  }
+
+  /**
+   * @return the estimated number of bytes retained by the object and everything it references
+   */
+  public long sizeOf(Object root) {
+    if (root == null) {
+      return 0;
+    }
+    Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    Deque<Object> pending = new ArrayDeque<>();
+    pending.push(root);
+    long size = 0;
+    while (!pending.isEmpty()) {
+      Object object = pending.pop();
+      if (visited.add(object)) {
+        size += shallowSizeOf(object, pending);
+      }
+    }
+    return size;
+  }
+
+  private long shallowSizeOf(Object object, Deque<Object> pending) {
+    Class<?> type = object.getClass();
+    if (type.isArray()) {
+      return arraySizeOf(object, type.getComponentType(), pending);
+    } else if (object instanceof String) {
+      return align(OBJECT_HEADER + REFERENCE + 8) + align(ARRAY_HEADER + 2L * ((String) object).length());
+    } else if (object instanceof Number || object instanceof Boolean || object instanceof Character) {
+      return numberSizeOf(object);
+    } else if (object instanceof Collection) {
+      Collection<?> collection = (Collection<?>) object;
+      for (Object element : collection) {
+        push(element, pending);
+      }
+      return align(OBJECT_HEADER + 16) + align(ARRAY_HEADER + (long) REFERENCE * collection.size())
+          + (object instanceof List ? 0 : 32L * collection.size());
+    } else if (object instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) object;
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        push(entry.getKey(), pending);
+        push(entry.getValue(), pending);
+      }
+      return align(OBJECT_HEADER + 32) + align(ARRAY_HEADER + (long) REFERENCE * map.size() * 4 / 3)
+          + 32L * map.size();
+    } else if (object instanceof Class || object instanceof Enum || isFrameworkClass(type)) {
+      // shared by every result (lazy loading handlers reference the configuration), never retained by the cache alone
+      return 0;
+    } else if (isJdkClass(type)) {
+      return align(OBJECT_HEADER + 12);
+    }
+    return layoutOf(type).sizeOf(object, pending);
+  }
+
+  private long arraySizeOf(Object array, Class<?> componentType, Deque<Object> pending) {
+    int length = Array.getLength(array);
+    if (componentType.isPrimitive()) {
+      return align(ARRAY_HEADER + (long) primitiveSizeOf(componentType) * length);
+    }
+    Object[] elements = (Object[]) array;
+    for (Object element : elements) {
+      push(element, pending);
+    }
+    return align(ARRAY_HEADER + (long) REFERENCE * length);
+  }
+
+  private static long numberSizeOf(Object number) {
+    if (number instanceof BigDecimal) {
+      BigDecimal decimal = (BigDecimal) number;
+      return align(OBJECT_HEADER + 24) + (decimal.precision() > 18 ? bigIntegerSizeOf(decimal.unscaledValue()) : 0);
+    } else if (number instanceof BigInteger) {
+      return bigIntegerSizeOf((BigInteger) number);
+    } else if (number instanceof Long || number instanceof Double) {
+      return align(OBJECT_HEADER + 8);
+    }
+    return align(OBJECT_HEADER + 4);
+  }
+
+  private static long bigIntegerSizeOf(BigInteger value) {
+    return align(OBJECT_HEADER + 24) + align(ARRAY_HEADER + 4L * ((value.bitLength() + 31) / 32));
+  }
+
+  private static void push(Object object, Deque<Object> pending) {
+    if (object != null) {
+      pending.push(object);
+    }
+  }
+
+  private static boolean isJdkClass(Class<?> type) {
+    String name = type.getName();
+    return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.")
+        || name.startsWith("com.sun.") || name.startsWith("jdk.");
+  }
+
+  private static boolean isFrameworkClass(Class<?> type) {
+    String name = type.getName();
+    return name.startsWith("org.apache.ibatis.executor.") || name.startsWith("org.apache.ibatis.session.")
+        || name.startsWith("org.apache.ibatis.reflection.") || name.startsWith("org.apache.ibatis.javassist.")
+        || name.startsWith("net.sf.cglib.");
+  }
+
+  private static int primitiveSizeOf(Class<?> type) {
+    if (type == long.class || type == double.class) {
+      return 8;
+    } else if (type == int.class || type == float.class) {
+      return 4;
+    } else if (type == short.class || type == char.class) {
+      return 2;
+    }
+    return 1;
+  }
+
+  private static long align(long size) {
+    return (size + 7) & ~7L;
+  }
+
+  private static ClassLayout layoutOf(Class<?> type) {
+    return layouts.get(type);
+  }
+
+  /**
+   * Shallow size and reference fields of a class, computed once.
+   */
+  private static final class ClassLayout {
+    private final long shallowSize;
+    private final Field[] referenceFields;
+
+    private ClassLayout(Class<?> type) {
+      long size = OBJECT_HEADER;
+      List<Field> references = new ArrayList<>();
+      for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+        for (Field field : current.getDeclaredFields()) {
+          if (Modifier.isStatic(field.getModifiers())) {
+            continue;
+          }
+          if (field.getType().isPrimitive()) {
+            size += primitiveSizeOf(field.getType());
+          } else {
+            size += REFERENCE;
+            if (makeAccessible(field)) {
+              references.add(field);
+            }
+          }
+        }
+      }
+      this.shallowSize = align(size);
+      this.referenceFields = references.toArray(new Field[0]);
+    }
+
+    private static boolean makeAccessible(Field field) {
+      try {
+        field.setAccessible(true);
+        return true;
+      } catch (RuntimeException e) {
+        // the referenced object is then left out of the estimate
+        return false;
+      }
+    }
+
+    private long sizeOf(Object object, Deque<Object> pending) {
+      for (Field field : referenceFields) {
+        try {
+          push(field.get(object), pending);
+        } catch (IllegalAccessException e) {
+          // ignore, cannot happen once the field is accessible
+        }
+      }
+      return shallowSize;
+    }
+  }
+
+}
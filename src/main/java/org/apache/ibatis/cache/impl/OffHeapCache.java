@@ -0,0 +1,374 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.ThreadSafeCache;
+import org.apache.ibatis.cache.serializer.JdkSerializer;
+import org.apache.ibatis.cache.serializer.Serializer;
+
+/**
+ * Cache that keeps serialized results outside of the Java heap.
+ * <p>
+ * Values are serialized, see {@link #setSerializer(Serializer)}, and appended to fixed size slabs, direct
+ * {@link ByteBuffer}s or, when a {@link #setDirectory(String) directory} is set, memory-mapped files. Only a
+ * small index from key to slab offset stays on the heap. When all the slabs are full the oldest one is recycled,
+ * dropping the entries it held, so the cache is bounded by {@link #setCapacity(long) capacity} bytes and evicts in FIFO order by slab.
+ * Every read returns a new copy of the cached value, like a read/write cache.
+ *
+ * <pre>
+ * &lt;cache type="OFFHEAP"&gt;
+ *   &lt;property name="capacity" value="4294967296"/&gt;
+ *   &lt;property name="slabSize" value="67108864"/&gt;
+ * &lt;/cache&gt;
+ * </pre>
+ *
+ * @since 3.5.2
+ */
+public class OffHeapCache implements ThreadSafeCache {
+
+  private final String id;
+
+  private final ConcurrentMap<Object, Location> index = new ConcurrentHashMap<>();
+  // 串行化写入、分配与回收 slab
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private final List<Slab> slabs = new ArrayList<>();
+  private int currentSlab;
+
+  private long capacity = 256L * 1024 * 1024;
+  private int slabSize = 16 * 1024 * 1024;
+  private String directory;
+  private Serializer serializer = new JdkSerializer();
+
+  public OffHeapCache(String id) {
+    this.id = id;
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public int getSize() {
+    return index.size();
+  }
+
+  public long getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Sets the total number of bytes of the slabs. Defaults to 256 MiB.
+   */
+  public void setCapacity(long capacity) {
+    writeLock.lock();
+    try {
+      this.capacity = capacity;
+      releaseSlabs();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  public int getSlabSize() {
+    return slabSize;
+  }
+
+  /**
+   * Sets the size in bytes of each slab, which is also the largest serialized value that can be cached.
+   * Defaults to 16 MiB.
+   */
+  public void setSlabSize(int slabSize) {
+    writeLock.lock();
+    try {
+      this.slabSize = slabSize;
+      releaseSlabs();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  public String getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Sets a directory where slabs are allocated as memory-mapped temporary files instead of direct buffers.
+   */
+  public void setDirectory(String directory) {
+    writeLock.lock();
+    try {
+      this.directory = directory;
+      releaseSlabs();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  public Serializer getSerializer() {
+    return serializer;
+  }
+
+  /**
+   * Sets the serializer of the cached values, {@link JdkSerializer} by default.
+   * {@link org.apache.ibatis.mapping.CacheBuilder} sets the one of the configuration.
+   */
+  public void setSerializer(Serializer serializer) {
+    writeLock.lock();
+    try {
+      this.serializer = serializer;
+      releaseSlabs();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    if (value == null) {
+      // a null value reads the same as a missing one
+      removeObject(key);
+      return;
+    }
+    if (!(value instanceof Serializable)) {
+      throw new CacheException("OffHeapCache failed to store a non-serializable object: " + value);
+    }
+    byte[] bytes = serializer.serialize(value);
+    writeLock.lock();
+    try {
+      if (bytes.length > slabSize) {
+        remove(key);
+        return;
+      }
+      Slab slab = slabFor(bytes.length);
+      int offset = slab.position;
+      ByteBuffer buffer = slab.buffer.duplicate();
+      buffer.position(offset);
+      buffer.put(bytes);
+      slab.position += bytes.length;
+      slab.keys.add(key);
+      Location previous = index.put(key, new Location(slab, offset, bytes.length));
+      if (previous != null && previous.slab != slab) {
+        previous.slab.keys.remove(key);
+      }
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    for (;;) {
+      Location location = index.get(key);
+      if (location == null) {
+        return null;
+      }
+      byte[] bytes = location.slab.read(location, () -> index.get(key) == location);
+      if (bytes != null) {
+        return serializer.deserialize(bytes);
+      }
+      // the slab was recycled or the key was put again meanwhile
+    }
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    writeLock.lock();
+    try {
+      remove(key);
+      return null;
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    writeLock.lock();
+    try {
+      for (Slab slab : slabs) {
+        slab.recycle(index);
+      }
+      index.clear();
+      currentSlab = 0;
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  private void remove(Object key) {
+    Location location = index.remove(key);
+    if (location != null) {
+      location.slab.keys.remove(key);
+    }
+  }
+
+  /**
+   * Returns the slab to append the given number of bytes to, moving to the next slab and recycling it if needed.
+   */
+  private Slab slabFor(int length) {
+    if (slabs.isEmpty()) {
+      slabs.add(allocateSlab());
+      currentSlab = 0;
+    }
+    Slab slab = slabs.get(currentSlab);
+    if (slab.position + length <= slabSize) {
+      return slab;
+    }
+    currentSlab = (currentSlab + 1) % getSlabCount();
+    if (currentSlab == slabs.size()) {
+      slab = allocateSlab();
+      slabs.add(slab);
+    } else {
+      slab = slabs.get(currentSlab);
+      slab.recycle(index);
+    }
+    return slab;
+  }
+
+  private int getSlabCount() {
+    return (int) Math.max(1L, Math.min(capacity / slabSize, Integer.MAX_VALUE));
+  }
+
+  private Slab allocateSlab() {
+    if (directory == null) {
+      return new Slab(ByteBuffer.allocateDirect(slabSize));
+    }
+    try {
+      File file = File.createTempFile("mybatis-cache-", ".slab", new File(directory));
+      file.deleteOnExit();
+      try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        // the mapping stays valid once the channel is closed
+        return new Slab(channel.map(FileChannel.MapMode.READ_WRITE, 0, slabSize));
+      }
+    } catch (IOException e) {
+      throw new CacheException("Error mapping a cache slab in " + directory + ".  Cause: " + e, e);
+    }
+  }
+
+  private void releaseSlabs() {
+    index.clear();
+    slabs.clear();
+    currentSlab = 0;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+  private static final class Location {
+    private final Slab slab;
+    private final int offset;
+    private final int length;
+
+    private Location(Slab slab, int offset, int length) {
+      this.slab = slab;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+  /**
+   * Region of memory filled from the start; readers hold its read lock so that it is not recycled under them.
+   */
+  private static final class Slab {
+    private final ByteBuffer buffer;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // 当前指向本 slab 的 key，回收时据此清理索引
+    private final Set<Object> keys = ConcurrentHashMap.newKeySet();
+    private int position;
+
+    private Slab(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    /**
+     * @return a copy of the bytes at the location, or null if the location is not current anymore
+     */
+    private byte[] read(Location location, BooleanSupplier current) {
+      lock.readLock().lock();
+      try {
+        if (!current.getAsBoolean()) {
+          return null;
+        }
+        byte[] bytes = new byte[location.length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(location.offset);
+        view.get(bytes);
+        return bytes;
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+
+    private void recycle(ConcurrentMap<Object, Location> index) {
+      lock.writeLock().lock();
+      try {
+        for (Object key : keys) {
+          index.computeIfPresent(key, (k, location) -> location.slab == this ? null : location);
+        }
+        keys.clear();
+        position = 0;
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,59 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Tells that the cache with the given id was cleared on another node, or only the entries read from some tables.
+ *
+ * @since 3.5.2
+ */
+public final class InvalidationEvent implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String cacheId;
+  private final Set<String> tables;
+
+  public InvalidationEvent(String cacheId) {
+    this(cacheId, Collections.emptySet());
+  }
+
+  /**
+   * @param tables the tables whose dependent entries were evicted, empty if the whole cache was cleared
+   */
+  public InvalidationEvent(String cacheId, Set<String> tables) {
+    this.cacheId = cacheId;
+    this.tables = tables;
+  }
+
+  public String getCacheId() {
+    return cacheId;
+  }
+
+  public Set<String> getTables() {
+    return tables;
+  }
+
+  @Override
+  public String toString() {
+    return "InvalidationEvent[" + cacheId + (tables.isEmpty() ? "" : " " + tables) + "]";
+  }
+
+}
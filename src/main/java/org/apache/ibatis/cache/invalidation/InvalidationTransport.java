@@ -0,0 +1,41 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+/**
+ * SPI to tell the other nodes of a cluster that a cache was invalidated, and to be told in turn.
+ * <p>
+ * Used by {@link org.apache.ibatis.cache.decorators.BroadcastCache}. Events published by a transport instance are
+ * delivered to the listeners of every other instance sharing the same medium, but not to its own listeners.
+ * Delivery is best effort: implementations must be thread safe and should report a failure to publish with a
+ * {@link org.apache.ibatis.cache.CacheException}.
+ *
+ * @since 3.5.2
+ */
+public interface InvalidationTransport {
+
+  void publish(InvalidationEvent event);
+
+  void subscribe(InvalidationListener listener);
+
+  void unsubscribe(InvalidationListener listener);
+
+  /**
+   * Releases the resources of the transport; no event is published nor delivered afterwards.
+   */
+  void close();
+
+}
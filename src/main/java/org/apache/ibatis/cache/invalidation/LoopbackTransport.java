@@ -0,0 +1,93 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Transport delivering events to the other instances of the same channel in this JVM, synchronously.
+ * <p>
+ * Meant for tests and for several {@link org.apache.ibatis.session.SqlSessionFactory}s sharing a database
+ * in one JVM.
+ *
+ * @since 3.5.2
+ */
+public class LoopbackTransport implements InvalidationTransport {
+
+  private static final ConcurrentMap<String, Set<LoopbackTransport>> CHANNELS = new ConcurrentHashMap<>();
+
+  private final String channel;
+  private final List<InvalidationListener> listeners = new CopyOnWriteArrayList<>();
+
+  public LoopbackTransport() {
+    this("default");
+  }
+
+  public LoopbackTransport(String channel) {
+    this.channel = channel;
+  }
+
+  public String getChannel() {
+    return channel;
+  }
+
+  @Override
+  public void publish(InvalidationEvent event) {
+    Set<LoopbackTransport> peers = CHANNELS.get(channel);
+    if (peers == null) {
+      return;
+    }
+    for (LoopbackTransport peer : peers) {
+      if (peer != this) {
+        for (InvalidationListener listener : peer.listeners) {
+          listener.onInvalidation(event);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void subscribe(InvalidationListener listener) {
+    listeners.add(listener);
+    CHANNELS.computeIfAbsent(channel, k -> ConcurrentHashMap.newKeySet()).add(this);
+  }
+
+  @Override
+  public void unsubscribe(InvalidationListener listener) {
+    listeners.remove(listener);
+    if (listeners.isEmpty()) {
+      leave();
+    }
+  }
+
+  @Override
+  public void close() {
+    listeners.clear();
+    leave();
+  }
+
+  private void leave() {
+    CHANNELS.computeIfPresent(channel, (k, peers) -> {
+      peers.remove(this);
+      return peers.isEmpty() ? null : peers;
+    });
+  }
+
+}
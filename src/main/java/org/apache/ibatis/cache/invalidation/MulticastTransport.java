@@ -0,0 +1,232 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.MulticastSocket;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Transport sending events as UDP multicast datagrams.
+ * <p>
+ * Every node joins the same {@link #setGroup(String) group} and {@link #setPort(int) port}, by default
+ * 239.255.27.1:45566, and ignores the datagrams it sent itself. The socket is opened on first use, so the
+ * properties must be set before. Datagrams may be lost, so a {@code flushInterval} is still advisable as a
+ * bound on staleness.
+ *
+ * @since 3.5.2
+ */
+public class MulticastTransport implements InvalidationTransport {
+
+  private static final Log log = LogFactory.getLog(MulticastTransport.class);
+
+  private static final byte VERSION = 1;
+  private static final int MAX_DATAGRAM_SIZE = 8 * 1024;
+  private static final long MIN_RECEIVE_BACKOFF_MILLIS = 100;
+  private static final long MAX_RECEIVE_BACKOFF_MILLIS = 10_000;
+
+  // 节点标识，用于忽略自己发出的报文
+  private final String nodeId = UUID.randomUUID().toString();
+  private final List<InvalidationListener> listeners = new CopyOnWriteArrayList<>();
+
+  private String group = "239.255.27.1";
+  private int port = 45566;
+  private int timeToLive = 1;
+
+  private MulticastSocket socket;
+  private InetAddress groupAddress;
+  private Thread receiver;
+  private volatile boolean closed;
+
+  public String getGroup() {
+    return group;
+  }
+
+  public void setGroup(String group) {
+    this.group = group;
+  }
+
+  public int getPort() {
+    return port;
+  }
+
+  public void setPort(int port) {
+    this.port = port;
+  }
+
+  public int getTimeToLive() {
+    return timeToLive;
+  }
+
+  /**
+   * Sets how many hops the datagrams may travel, 1 by default which keeps them in the local network.
+   */
+  public void setTimeToLive(int timeToLive) {
+    this.timeToLive = timeToLive;
+  }
+
+  @Override
+  public void publish(InvalidationEvent event) {
+    byte[] bytes = encode(event);
+    if (bytes.length > MAX_DATAGRAM_SIZE) {
+      throw new CacheException("Invalidation event too large to be sent: " + event);
+    }
+    MulticastSocket socket = open();
+    try {
+      socket.send(new DatagramPacket(bytes, bytes.length, groupAddress, port));
+    } catch (IOException e) {
+      throw new CacheException("Error sending " + event + " to " + group + ":" + port + ".  Cause: " + e, e);
+    }
+  }
+
+  @Override
+  public void subscribe(InvalidationListener listener) {
+    listeners.add(listener);
+    open();
+  }
+
+  @Override
+  public void unsubscribe(InvalidationListener listener) {
+    listeners.remove(listener);
+  }
+
+  @Override
+  public synchronized void close() {
+    closed = true;
+    listeners.clear();
+    if (socket != null) {
+      socket.close();
+      receiver.interrupt();
+    }
+  }
+
+  private synchronized MulticastSocket open() {
+    if (closed) {
+      throw new CacheException("MulticastTransport was closed.");
+    }
+    if (socket == null) {
+      try {
+        groupAddress = InetAddress.getByName(group);
+        MulticastSocket multicastSocket = new MulticastSocket(port);
+        multicastSocket.setTimeToLive(timeToLive);
+        multicastSocket.joinGroup(groupAddress);
+        socket = multicastSocket;
+      } catch (IOException e) {
+        throw new CacheException("Error joining multicast group " + group + ":" + port + ".  Cause: " + e, e);
+      }
+      receiver = new Thread(this::receive, "mybatis-cache-invalidation-" + port);
+      receiver.setDaemon(true);
+      receiver.start();
+    }
+    return socket;
+  }
+
+  /**
+   * Receives until closed. After a failure it waits before the next attempt, twice as long after each failure in a
+   * row, so that a broken socket does not keep a core busy.
+   */
+  private void receive() {
+    byte[] buffer = new byte[MAX_DATAGRAM_SIZE];
+    long backoff = 0;
+    while (!closed) {
+      DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+      try {
+        socket.receive(packet);
+        backoff = 0;
+      } catch (IOException e) {
+        if (closed) {
+          return;
+        }
+        backoff = backoff == 0 ? MIN_RECEIVE_BACKOFF_MILLIS : Math.min(backoff * 2, MAX_RECEIVE_BACKOFF_MILLIS);
+        log.warn("Error receiving cache invalidation on " + group + ":" + port + ", retrying in " + backoff
+            + " ms.", e);
+        try {
+          Thread.sleep(backoff);
+        } catch (InterruptedException interrupted) {
+          return;
+        }
+        continue;
+      }
+      InvalidationEvent event = decode(packet);
+      if (event == null) {
+        continue;
+      }
+      for (InvalidationListener listener : listeners) {
+        try {
+          listener.onInvalidation(event);
+        } catch (RuntimeException e) {
+          log.warn("Error handling " + event + ".", e);
+        }
+      }
+    }
+  }
+
+  private byte[] encode(InvalidationEvent event) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeByte(VERSION);
+      out.writeUTF(nodeId);
+      out.writeUTF(event.getCacheId());
+      out.writeShort(event.getTables().size());
+      for (String table : event.getTables()) {
+        out.writeUTF(table);
+      }
+    } catch (IOException e) {
+      throw new CacheException("Error encoding " + event + ".  Cause: " + e, e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * @return the event, or null if the datagram was sent by this node or is not understood
+   */
+  private InvalidationEvent decode(DatagramPacket packet) {
+    try (DataInputStream in = new DataInputStream(
+        new ByteArrayInputStream(packet.getData(), packet.getOffset(), packet.getLength()))) {
+      if (in.readByte() != VERSION || nodeId.equals(in.readUTF())) {
+        return null;
+      }
+      String cacheId = in.readUTF();
+      int count = in.readUnsignedShort();
+      if (count == 0) {
+        return new InvalidationEvent(cacheId);
+      }
+      Set<String> tables = new HashSet<>();
+      for (int i = 0; i < count; i++) {
+        tables.add(in.readUTF());
+      }
+      return new InvalidationEvent(cacheId, tables);
+    } catch (IOException e) {
+      log.warn("Ignoring malformed cache invalidation datagram.", e);
+      return null;
+    }
+  }
+
+}
@@ -0,0 +1,194 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Finds the tables a SQL statement reads or writes, to track the dependencies of cached queries.
+ * <p>
+ * This is a scanner, not a parser: it takes the names following {@code FROM}, {@code JOIN}, {@code INTO},
+ * {@code UPDATE}, {@code USING} and {@code TABLE}, including comma separated lists. It may find more tables than
+ * actually used, which only evicts more entries, but it cannot see through views, triggers or stored procedures:
+ * statements relying on them should declare their {@code cacheTables}.
+ *
+ * @since 3.5.2
+ */
+public final class SqlTableParser {
+
+  private static final int MAX_CACHED_STATEMENTS = 1024;
+  // 解析结果缓存，空集合表示无法确定
+  private static final ConcurrentMap<String, Set<String>> PARSED = new ConcurrentHashMap<>();
+
+  private static final Set<String> TABLE_KEYWORDS = new HashSet<>(Arrays.asList(
+      "from", "join", "into", "update", "using", "table"));
+  private static final Set<String> CLAUSE_KEYWORDS = new HashSet<>(Arrays.asList(
+      "where", "set", "on", "using", "join", "inner", "left", "right", "full", "outer", "cross", "natural",
+      "straight_join", "group", "order", "having", "limit", "offset", "fetch", "for", "union", "intersect",
+      "except", "minus", "values", "value", "select", "window", "returning", "partition", "with", "when",
+      "default", "lateral", "only", "as", "connect", "start", "of", "nowait"));
+
+  private SqlTableParser() {
+    // Prevent Instantiation of Static Class
+  }
+
+  /**
+   * @return the lower case names, without schema, of the tables found in the statement, or null if none
+   */
+  public static Set<String> parse(String sql) {
+    Set<String> tables = PARSED.get(sql);
+    if (tables == null) {
+      tables = scan(sql);
+      if (PARSED.size() < MAX_CACHED_STATEMENTS) {
+        PARSED.putIfAbsent(sql, tables);
+      }
+    }
+    return tables.isEmpty() ? null : tables;
+  }
+
+  /**
+   * Parses a comma separated list of table names as declared by a statement.
+   *
+   * @return the normalized names, or null if none
+   */
+  public static Set<String> parseList(String tables) {
+    if (tables == null) {
+      return null;
+    }
+    Set<String> result = new LinkedHashSet<>();
+    for (String table : tables.split(",")) {
+      String name = normalize(table.trim());
+      if (!name.isEmpty()) {
+        result.add(name);
+      }
+    }
+    return result.isEmpty() ? null : Collections.unmodifiableSet(result);
+  }
+
+  private static Set<String> scan(String sql) {
+    List<String> tokens = tokenize(sql);
+    Set<String> tables = new LinkedHashSet<>();
+    for (int i = 0; i < tokens.size(); i++) {
+      if (!TABLE_KEYWORDS.contains(tokens.get(i))) {
+        continue;
+      }
+      int j = i + 1;
+      while (j < tokens.size() && isName(tokens.get(j))) {
+        tables.add(normalize(tokens.get(j)));
+        j++;
+        // skip the alias
+        if (j < tokens.size() && "as".equals(tokens.get(j))) {
+          j++;
+        }
+        if (j < tokens.size() && isName(tokens.get(j))) {
+          j++;
+        }
+        if (j < tokens.size() && ",".equals(tokens.get(j))) {
+          j++;
+        } else {
+          break;
+        }
+      }
+    }
+    return tables.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(tables);
+  }
+
+  private static boolean isName(String token) {
+    char first = token.charAt(0);
+    return (first == '"' || first == '`' || first == '[' || Character.isJavaIdentifierStart(first))
+        && !CLAUSE_KEYWORDS.contains(token) && !TABLE_KEYWORDS.contains(token);
+  }
+
+  private static String normalize(String name) {
+    int dot = name.lastIndexOf('.');
+    if (dot >= 0) {
+      name = name.substring(dot + 1);
+    }
+    StringBuilder normalized = new StringBuilder(name.length());
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (c != '"' && c != '`' && c != '[' && c != ']') {
+        normalized.append(c);
+      }
+    }
+    return normalized.toString().toLowerCase(Locale.ENGLISH);
+  }
+
+  /**
+   * Splits the statement in lower case words, quoted names and punctuation, skipping comments and literals.
+   */
+  private static List<String> tokenize(String sql) {
+    List<String> tokens = new ArrayList<>();
+    int length = sql.length();
+    int i = 0;
+    while (i < length) {
+      char c = sql.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+        while (i < length && sql.charAt(i) != '\n') {
+          i++;
+        }
+      } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+        int end = sql.indexOf("*/", i + 2);
+        i = end < 0 ? length : end + 2;
+      } else if (c == '\'') {
+        // string literal, '' being an escaped quote
+        i++;
+        while (i < length) {
+          if (sql.charAt(i) == '\'') {
+            if (i + 1 < length && sql.charAt(i + 1) == '\'') {
+              i += 2;
+              continue;
+            }
+            break;
+          }
+          i++;
+        }
+        i++;
+      } else if (c == '"' || c == '`' || c == '[' || Character.isJavaIdentifierStart(c)) {
+        int start = i;
+        while (i < length) {
+          char d = sql.charAt(i);
+          if (d == '"' || d == '`' || d == '[') {
+            char close = d == '[' ? ']' : d;
+            int end = sql.indexOf(close, i + 1);
+            i = end < 0 ? length : end + 1;
+          } else if (Character.isJavaIdentifierPart(d) || d == '.') {
+            i++;
+          } else {
+            break;
+          }
+        }
+        tokens.add(sql.substring(start, i).toLowerCase(Locale.ENGLISH));
+      } else {
+        tokens.add(String.valueOf(c));
+        i++;
+      }
+    }
+    return tokens;
+  }
+
+}
@@ -0,0 +1,133 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Statistics of the caches of a {@link org.apache.ibatis.session.Configuration}, by cache id.
+ * <p>
+ * When a {@link #setJmxDomain(String) JMX domain} is set, every statistics is also registered in the platform
+ * MBean server as {@code <domain>:type=Cache,name=<cache id>}.
+ *
+ * @since 3.5.2
+ */
+public class CacheMetricsRegistry {
+
+  private static final Log log = LogFactory.getLog(CacheMetricsRegistry.class);
+
+  private final ConcurrentMap<String, CacheStatistics> statistics = new ConcurrentHashMap<>();
+  // 由本注册表注册到 MBeanServer 的缓存 id
+  private final Set<String> exposed = new HashSet<>();
+  private String jmxDomain;
+
+  public synchronized void register(CacheStatistics cacheStatistics) {
+    CacheStatistics previous = statistics.put(cacheStatistics.getId(), cacheStatistics);
+    if (jmxDomain != null) {
+      if (previous != null) {
+        unregisterMBean(previous);
+      }
+      registerMBean(cacheStatistics);
+    }
+  }
+
+  public synchronized void unregister(String id) {
+    CacheStatistics removed = statistics.remove(id);
+    if (removed != null && jmxDomain != null) {
+      unregisterMBean(removed);
+    }
+  }
+
+  public CacheStatistics getStatistics(String id) {
+    return statistics.get(id);
+  }
+
+  public Collection<CacheStatistics> getAllStatistics() {
+    return Collections.unmodifiableCollection(new ArrayList<>(statistics.values()));
+  }
+
+  public synchronized String getJmxDomain() {
+    return jmxDomain;
+  }
+
+  /**
+   * Sets the JMX domain to register the statistics in, or null to unregister them.
+   */
+  public synchronized void setJmxDomain(String jmxDomain) {
+    if (this.jmxDomain != null) {
+      statistics.values().forEach(this::unregisterMBean);
+    }
+    this.jmxDomain = jmxDomain;
+    if (jmxDomain != null) {
+      statistics.values().forEach(this::registerMBean);
+    }
+  }
+
+  private void registerMBean(CacheStatistics cacheStatistics) {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = objectName(cacheStatistics);
+    try {
+      if (server.isRegistered(name)) {
+        // another configuration exposes a cache with the same id
+        log.warn("Cache statistics " + name + " are already registered, skipping.");
+        return;
+      }
+      server.registerMBean(cacheStatistics, name);
+      exposed.add(cacheStatistics.getId());
+    } catch (JMException e) {
+      throw new CacheException("Error registering cache statistics " + name + ".  Cause: " + e, e);
+    }
+  }
+
+  private void unregisterMBean(CacheStatistics cacheStatistics) {
+    if (!exposed.remove(cacheStatistics.getId())) {
+      return;
+    }
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = objectName(cacheStatistics);
+    try {
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+    } catch (JMException e) {
+      throw new CacheException("Error unregistering cache statistics " + name + ".  Cause: " + e, e);
+    }
+  }
+
+  private ObjectName objectName(CacheStatistics cacheStatistics) {
+    try {
+      return new ObjectName(jmxDomain + ":type=Cache,name=" + ObjectName.quote(cacheStatistics.getId()));
+    } catch (JMException e) {
+      throw new CacheException("Invalid JMX name for cache " + cacheStatistics.getId() + ".  Cause: " + e, e);
+    }
+  }
+
+}
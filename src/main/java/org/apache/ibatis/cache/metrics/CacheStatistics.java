@@ -0,0 +1,171 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Counters of a cache, updated by {@link org.apache.ibatis.cache.decorators.MetricsCache}.
+ * <p>
+ * Evictions are counted as the entries removed from the base cache, seen by a
+ * {@link org.apache.ibatis.cache.decorators.MetricsCache.EvictionCounter}, minus the entries removed on request;
+ * they are only known for caches built with the standard decorators.
+ *
+ * @since 3.5.2
+ */
+public class CacheStatistics implements CacheStatisticsMXBean {
+
+  private final String id;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder puts = new LongAdder();
+  private final LongAdder removals = new LongAdder();
+  private final LongAdder deletions = new LongAdder();
+  private final LongAdder clears = new LongAdder();
+  private final LongAdder loads = new LongAdder();
+  private final LongAdder loadTime = new LongAdder();
+  private final LongAdder sampledEntries = new LongAdder();
+  private final LongAdder sampledBytes = new LongAdder();
+  private volatile IntSupplier entryCount = () -> 0;
+
+  public CacheStatistics(String id) {
+    this.id = id;
+  }
+
+  public void recordHit() {
+    hits.increment();
+  }
+
+  public void recordMiss() {
+    misses.increment();
+  }
+
+  public void recordPut() {
+    puts.increment();
+  }
+
+  /**
+   * Records an entry removed on request.
+   */
+  public void recordRemoval() {
+    removals.increment();
+  }
+
+  /**
+   * Records an entry removed from the base cache, on request or by eviction.
+   */
+  public void recordDeletion() {
+    deletions.increment();
+  }
+
+  public void recordClear() {
+    clears.increment();
+  }
+
+  public void recordLoad(long nanos) {
+    loads.increment();
+    loadTime.add(nanos);
+  }
+
+  public void recordSample(long bytes) {
+    sampledEntries.increment();
+    sampledBytes.add(bytes);
+  }
+
+  public void setEntryCount(IntSupplier entryCount) {
+    this.entryCount = entryCount;
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public long getHits() {
+    return hits.sum();
+  }
+
+  @Override
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  @Override
+  public double getHitRatio() {
+    long hitCount = getHits();
+    long requests = hitCount + getMisses();
+    return requests == 0 ? 0 : (double) hitCount / requests;
+  }
+
+  @Override
+  public long getPuts() {
+    return puts.sum();
+  }
+
+  @Override
+  public long getRemovals() {
+    return removals.sum();
+  }
+
+  @Override
+  public long getEvictions() {
+    return Math.max(0, deletions.sum() - removals.sum());
+  }
+
+  @Override
+  public long getClears() {
+    return clears.sum();
+  }
+
+  @Override
+  public double getAverageLoadTime() {
+    long count = loads.sum();
+    return count == 0 ? 0 : (double) loadTime.sum() / count / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  @Override
+  public int getEntryCount() {
+    return entryCount.getAsInt();
+  }
+
+  @Override
+  public long getEstimatedBytes() {
+    long count = sampledEntries.sum();
+    return count == 0 ? 0 : sampledBytes.sum() / count * getEntryCount();
+  }
+
+  @Override
+  public void reset() {
+    hits.reset();
+    misses.reset();
+    puts.reset();
+    removals.reset();
+    deletions.reset();
+    clears.reset();
+    loads.reset();
+    loadTime.reset();
+  }
+
+  @Override
+  public String toString() {
+    return "CacheStatistics[" + id + ", hits=" + getHits() + ", misses=" + getMisses() + ", evictions="
+        + getEvictions() + ", entries=" + getEntryCount() + "]";
+  }
+
+}
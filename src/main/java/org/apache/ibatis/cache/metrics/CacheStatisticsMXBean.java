@@ -0,0 +1,55 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.metrics;
+
+/**
+ * JMX view of the {@link CacheStatistics} of a cache.
+ *
+ * @since 3.5.2
+ */
+public interface CacheStatisticsMXBean {
+
+  String getId();
+
+  long getHits();
+
+  long getMisses();
+
+  double getHitRatio();
+
+  long getPuts();
+
+  long getRemovals();
+
+  long getEvictions();
+
+  long getClears();
+
+  /**
+   * @return the average time in milliseconds from a miss to the put of the loaded value
+   */
+  double getAverageLoadTime();
+
+  int getEntryCount();
+
+  /**
+   * @return the estimated heap size in bytes of the cached values, from a sample of them
+   */
+  long getEstimatedBytes();
+
+  void reset();
+
+}
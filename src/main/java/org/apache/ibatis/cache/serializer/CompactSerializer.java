@@ -0,0 +1,768 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+import java.io.EOFException;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.executor.loader.WriteReplaceInterface;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+
+/**
+ * Compact binary {@link Serializer} for result objects.
+ * <p>
+ * Strings, boxed primitives, big numbers, dates, enums, arrays and the usual lists, sets and maps are written
+ * with a one byte tag. Result objects are written property by property using {@link Reflector} metadata, with
+ * class names written once per stream, when their class is serializable, has a default constructor and exposes
+ * every non-transient field as a readable and writable property. Lazy loading proxies are unwrapped through
+ * {@link WriteReplaceInterface}. Any other object is written with Java serialization. Shared and cyclic
+ * references are kept, except from inside objects written with Java serialization.
+ *
+ * @since 3.5.2
+ */
+public class CompactSerializer implements Serializer {
+
+  private static final byte NULL = 0;
+  private static final byte REFERENCE = 1;
+  private static final byte STRING = 2;
+  private static final byte INTEGER = 3;
+  private static final byte LONG = 4;
+  private static final byte SHORT = 5;
+  private static final byte BYTE = 6;
+  private static final byte BOOLEAN = 7;
+  private static final byte CHARACTER = 8;
+  private static final byte FLOAT = 9;
+  private static final byte DOUBLE = 10;
+  private static final byte BIG_DECIMAL = 11;
+  private static final byte BIG_INTEGER = 12;
+  private static final byte DATE = 13;
+  private static final byte SQL_DATE = 14;
+  private static final byte SQL_TIME = 15;
+  private static final byte SQL_TIMESTAMP = 16;
+  private static final byte ENUM = 17;
+  private static final byte CLASS = 18;
+  private static final byte BYTE_ARRAY = 19;
+  private static final byte ARRAY = 20;
+  private static final byte ARRAY_LIST = 21;
+  private static final byte LINKED_LIST = 22;
+  private static final byte HASH_SET = 23;
+  private static final byte LINKED_HASH_SET = 24;
+  private static final byte HASH_MAP = 25;
+  private static final byte LINKED_HASH_MAP = 26;
+  private static final byte BEAN = 27;
+  private static final byte SERIALIZED = 28;
+
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+  private static final Map<String, Class<?>> primitiveTypes = new HashMap<>();
+
+  static {
+    for (Class<?> type : new Class<?>[] {boolean.class, byte.class, char.class, short.class, int.class, long.class,
+        float.class, double.class, void.class}) {
+      primitiveTypes.put(type.getName(), type);
+    }
+  }
+
+  private final ReflectorFactory reflectorFactory;
+  private final JdkSerializer fallback = new JdkSerializer();
+  // 每个类只判断一次能否按属性写出
+  private final Map<Class<?>, BeanLayout> layouts = new ConcurrentHashMap<>();
+  private final Map<Class<?>, Boolean> unsupportedTypes = new ConcurrentHashMap<>();
+  private final Map<String, Class<?>> resolvedTypes = new ConcurrentHashMap<>();
+
+  public CompactSerializer() {
+    this(new DefaultReflectorFactory());
+  }
+
+  public CompactSerializer(ReflectorFactory reflectorFactory) {
+    this.reflectorFactory = reflectorFactory;
+  }
+
+  @Override
+  public byte[] serialize(Object object) {
+    try {
+      Output out = new Output();
+      new Writer(out).write(object);
+      return out.toByteArray();
+    } catch (CacheException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CacheException("Error serializing object.  Cause: " + e, e);
+    }
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) {
+    try {
+      return new Reader(new Input(bytes)).read();
+    } catch (CacheException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CacheException("Error deserializing object.  Cause: " + e, e);
+    }
+  }
+
+  private BeanLayout layoutOf(Class<?> type) {
+    BeanLayout layout = layouts.get(type);
+    if (layout == null && !unsupportedTypes.containsKey(type)) {
+      layout = BeanLayout.of(type, reflectorFactory);
+      if (layout == null) {
+        unsupportedTypes.put(type, Boolean.TRUE);
+      } else {
+        layouts.put(type, layout);
+      }
+    }
+    return layout;
+  }
+
+  private final class Writer {
+    private final Output out;
+    private final Map<Object, Integer> references = new IdentityHashMap<>();
+    private final Map<Object, Object> replacements = new IdentityHashMap<>();
+    private final Map<Class<?>, Integer> classes = new HashMap<>();
+
+    private Writer(Output out) {
+      this.out = out;
+    }
+
+    private void write(Object object) throws IOException, ReflectiveOperationException {
+      if (object == null) {
+        out.writeByte(NULL);
+        return;
+      }
+      Integer reference = references.get(object);
+      if (reference != null) {
+        out.writeByte(REFERENCE);
+        writeVarInt(reference);
+        return;
+      }
+      Class<?> type = object.getClass();
+      if (type == String.class) {
+        register(object);
+        out.writeByte(STRING);
+        writeString((String) object);
+      } else if (type == Integer.class) {
+        out.writeByte(INTEGER);
+        writeSignedVarLong((Integer) object);
+      } else if (type == Long.class) {
+        out.writeByte(LONG);
+        writeSignedVarLong((Long) object);
+      } else if (type == Short.class) {
+        out.writeByte(SHORT);
+        out.writeShort((Short) object);
+      } else if (type == Byte.class) {
+        out.writeByte(BYTE);
+        out.writeByte((Byte) object);
+      } else if (type == Boolean.class) {
+        out.writeByte(BOOLEAN);
+        out.writeBoolean((Boolean) object);
+      } else if (type == Character.class) {
+        out.writeByte(CHARACTER);
+        out.writeChar((Character) object);
+      } else if (type == Float.class) {
+        out.writeByte(FLOAT);
+        out.writeFloat((Float) object);
+      } else if (type == Double.class) {
+        out.writeByte(DOUBLE);
+        out.writeDouble((Double) object);
+      } else if (type == BigDecimal.class) {
+        out.writeByte(BIG_DECIMAL);
+        writeSignedVarLong(((BigDecimal) object).scale());
+        writeBytes(((BigDecimal) object).unscaledValue().toByteArray());
+      } else if (type == BigInteger.class) {
+        out.writeByte(BIG_INTEGER);
+        writeBytes(((BigInteger) object).toByteArray());
+      } else if (type == Date.class) {
+        out.writeByte(DATE);
+        out.writeLong(((Date) object).getTime());
+      } else if (type == java.sql.Date.class) {
+        out.writeByte(SQL_DATE);
+        out.writeLong(((Date) object).getTime());
+      } else if (type == Time.class) {
+        out.writeByte(SQL_TIME);
+        out.writeLong(((Date) object).getTime());
+      } else if (type == Timestamp.class) {
+        out.writeByte(SQL_TIMESTAMP);
+        out.writeLong(((Date) object).getTime());
+        writeVarInt(((Timestamp) object).getNanos());
+      } else if (object instanceof Enum) {
+        register(object);
+        out.writeByte(ENUM);
+        writeClass(((Enum<?>) object).getDeclaringClass());
+        writeString(((Enum<?>) object).name());
+      } else if (type == Class.class) {
+        out.writeByte(CLASS);
+        writeClass((Class<?>) object);
+      } else if (type == byte[].class) {
+        register(object);
+        out.writeByte(BYTE_ARRAY);
+        writeBytes((byte[]) object);
+      } else if (type.isArray()) {
+        writeArray(object, type);
+      } else if (type == ArrayList.class || type == LinkedList.class) {
+        writeCollection((Collection<?>) object, type == ArrayList.class ? ARRAY_LIST : LINKED_LIST);
+      } else if (type == HashSet.class || type == LinkedHashSet.class) {
+        writeCollection((Collection<?>) object, type == HashSet.class ? HASH_SET : LINKED_HASH_SET);
+      } else if (type == HashMap.class || type == LinkedHashMap.class) {
+        writeMap((Map<?, ?>) object, type == HashMap.class ? HASH_MAP : LINKED_HASH_MAP);
+      } else if (object instanceof WriteReplaceInterface) {
+        writeReplacement(object);
+      } else {
+        BeanLayout layout = layoutOf(type);
+        if (layout == null) {
+          writeSerialized(object);
+        } else {
+          writeBean(object, layout);
+        }
+      }
+    }
+
+    private void writeArray(Object array, Class<?> type) throws IOException, ReflectiveOperationException {
+      register(array);
+      out.writeByte(ARRAY);
+      writeClass(type.getComponentType());
+      int length = Array.getLength(array);
+      writeVarInt(length);
+      for (int i = 0; i < length; i++) {
+        write(Array.get(array, i));
+      }
+    }
+
+    private void writeCollection(Collection<?> collection, byte tag) throws IOException, ReflectiveOperationException {
+      register(collection);
+      out.writeByte(tag);
+      writeVarInt(collection.size());
+      for (Object element : collection) {
+        write(element);
+      }
+    }
+
+    private void writeMap(Map<?, ?> map, byte tag) throws IOException, ReflectiveOperationException {
+      register(map);
+      out.writeByte(tag);
+      writeVarInt(map.size());
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        write(entry.getKey());
+        write(entry.getValue());
+      }
+    }
+
+    private void writeReplacement(Object proxy) throws IOException, ReflectiveOperationException {
+      Object replacement = replacements.get(proxy);
+      if (replacement == null) {
+        try {
+          replacement = ((WriteReplaceInterface) proxy).writeReplace();
+        } catch (ObjectStreamException e) {
+          throw new CacheException("Error replacing lazy loading proxy.  Cause: " + e, e);
+        }
+        if (replacement == proxy || replacement instanceof WriteReplaceInterface) {
+          writeSerialized(proxy);
+          return;
+        }
+        // like Java serialization, references to the proxy met while writing the replacement point to it
+        replacements.put(proxy, replacement);
+      }
+      write(replacement);
+    }
+
+    private void writeBean(Object bean, BeanLayout layout) throws IOException, ReflectiveOperationException {
+      register(bean);
+      out.writeByte(BEAN);
+      writeClass(bean.getClass());
+      for (Invoker getter : layout.getters) {
+        write(getter.invoke(bean, NO_ARGUMENTS));
+      }
+    }
+
+    private void writeSerialized(Object object) throws IOException {
+      if (!(object instanceof Serializable)) {
+        throw new CacheException("CompactSerializer failed to make a copy of a non-serializable object: " + object);
+      }
+      register(object);
+      out.writeByte(SERIALIZED);
+      writeBytes(fallback.serialize(object));
+    }
+
+    private void register(Object object) {
+      references.put(object, references.size());
+    }
+
+    private void writeClass(Class<?> type) throws IOException {
+      Integer index = classes.get(type);
+      if (index == null) {
+        classes.put(type, classes.size());
+        writeVarInt(0);
+        writeString(type.getName());
+      } else {
+        writeVarInt(index + 1);
+      }
+    }
+
+    private void writeString(String value) throws IOException {
+      writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeBytes(byte[] value) throws IOException {
+      writeVarInt(value.length);
+      out.write(value);
+    }
+
+    private void writeSignedVarLong(long value) throws IOException {
+      writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    private void writeVarInt(int value) throws IOException {
+      writeVarLong(value & 0xffffffffL);
+    }
+
+    private void writeVarLong(long value) throws IOException {
+      // 7 bits per byte, the high bit telling that more bytes follow
+      while ((value & ~0x7fL) != 0) {
+        out.writeByte((int) ((value & 0x7f) | 0x80));
+        value >>>= 7;
+      }
+      out.writeByte((int) value);
+    }
+  }
+
+  private final class Reader {
+    private final Input in;
+    private final List<Object> references = new ArrayList<>();
+    private final List<Class<?>> classes = new ArrayList<>();
+
+    private Reader(Input in) {
+      this.in = in;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object read() throws IOException, ReflectiveOperationException {
+      byte tag = in.readByte();
+      switch (tag) {
+        case NULL:
+          return null;
+        case REFERENCE:
+          return references.get(readVarInt());
+        case STRING:
+          String string = readString();
+          references.add(string);
+          return string;
+        case INTEGER:
+          return (int) readSignedVarLong();
+        case LONG:
+          return readSignedVarLong();
+        case SHORT:
+          return in.readShort();
+        case BYTE:
+          return in.readByte();
+        case BOOLEAN:
+          return in.readBoolean();
+        case CHARACTER:
+          return in.readChar();
+        case FLOAT:
+          return in.readFloat();
+        case DOUBLE:
+          return in.readDouble();
+        case BIG_DECIMAL:
+          int scale = (int) readSignedVarLong();
+          return new BigDecimal(new BigInteger(readBytes()), scale);
+        case BIG_INTEGER:
+          return new BigInteger(readBytes());
+        case DATE:
+          return new Date(in.readLong());
+        case SQL_DATE:
+          return new java.sql.Date(in.readLong());
+        case SQL_TIME:
+          return new Time(in.readLong());
+        case SQL_TIMESTAMP:
+          Timestamp timestamp = new Timestamp(in.readLong());
+          timestamp.setNanos(readVarInt());
+          return timestamp;
+        case ENUM:
+          Class<? extends Enum> enumType = (Class<? extends Enum>) readClass();
+          Enum<?> constant = Enum.valueOf(enumType, readString());
+          references.add(constant);
+          return constant;
+        case CLASS:
+          return readClass();
+        case BYTE_ARRAY:
+          byte[] bytes = readBytes();
+          references.add(bytes);
+          return bytes;
+        case ARRAY:
+          return readArray();
+        case ARRAY_LIST:
+          return readCollection(new ArrayList<>());
+        case LINKED_LIST:
+          return readCollection(new LinkedList<>());
+        case HASH_SET:
+          return readCollection(new HashSet<>());
+        case LINKED_HASH_SET:
+          return readCollection(new LinkedHashSet<>());
+        case HASH_MAP:
+          return readMap(new HashMap<>());
+        case LINKED_HASH_MAP:
+          return readMap(new LinkedHashMap<>());
+        case BEAN:
+          return readBean();
+        case SERIALIZED:
+          int index = references.size();
+          references.add(null);
+          Object object = fallback.deserialize(readBytes());
+          references.set(index, object);
+          return object;
+        default:
+          throw new CacheException("Error deserializing object.  Cause: unknown tag " + tag);
+      }
+    }
+
+    private Object readArray() throws IOException, ReflectiveOperationException {
+      Class<?> componentType = readClass();
+      int length = readVarInt();
+      Object array = Array.newInstance(componentType, length);
+      references.add(array);
+      for (int i = 0; i < length; i++) {
+        Array.set(array, i, read());
+      }
+      return array;
+    }
+
+    private Collection<Object> readCollection(Collection<Object> collection) throws IOException, ReflectiveOperationException {
+      references.add(collection);
+      int size = readVarInt();
+      if (collection instanceof ArrayList) {
+        ((ArrayList<Object>) collection).ensureCapacity(size);
+      }
+      for (int i = 0; i < size; i++) {
+        collection.add(read());
+      }
+      return collection;
+    }
+
+    private Map<Object, Object> readMap(Map<Object, Object> map) throws IOException, ReflectiveOperationException {
+      references.add(map);
+      int size = readVarInt();
+      for (int i = 0; i < size; i++) {
+        Object key = read();
+        map.put(key, read());
+      }
+      return map;
+    }
+
+    private Object readBean() throws IOException, ReflectiveOperationException {
+      Class<?> type = readClass();
+      BeanLayout layout = layoutOf(type);
+      if (layout == null) {
+        throw new CacheException("Error deserializing object.  Cause: " + type + " cannot be read by properties");
+      }
+      Object bean = layout.constructor.newInstance();
+      references.add(bean);
+      for (Invoker setter : layout.setters) {
+        Object value = read();
+        if (value != null || !setter.getType().isPrimitive()) {
+          setter.invoke(bean, new Object[] {value});
+        }
+      }
+      return bean;
+    }
+
+    private Class<?> readClass() throws IOException, ClassNotFoundException {
+      int index = readVarInt();
+      if (index > 0) {
+        return classes.get(index - 1);
+      }
+      String name = readString();
+      Class<?> type = primitiveTypes.get(name);
+      if (type == null) {
+        type = resolvedTypes.get(name);
+      }
+      if (type == null) {
+        type = Resources.classForName(name);
+        resolvedTypes.put(name, type);
+      }
+      classes.add(type);
+      return type;
+    }
+
+    private String readString() throws IOException {
+      return new String(readBytes(), StandardCharsets.UTF_8);
+    }
+
+    private byte[] readBytes() throws IOException {
+      byte[] bytes = new byte[readVarInt()];
+      in.readFully(bytes);
+      return bytes;
+    }
+
+    private long readSignedVarLong() throws IOException {
+      long value = readVarLong();
+      return (value >>> 1) ^ -(value & 1);
+    }
+
+    private int readVarInt() throws IOException {
+      return (int) readVarLong();
+    }
+
+    private long readVarLong() throws IOException {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        byte b = in.readByte();
+        value |= (long) (b & 0x7f) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new CacheException("Error deserializing object.  Cause: malformed variable length number");
+    }
+  }
+
+  /**
+   * Growable byte buffer, cheaper than a {@link java.io.DataOutputStream} over a synchronized
+   * {@link java.io.ByteArrayOutputStream}.
+   */
+  private static final class Output {
+    private byte[] buffer = new byte[256];
+    private int count;
+
+    private void writeByte(int value) {
+      ensureCapacity(1);
+      buffer[count++] = (byte) value;
+    }
+
+    private void writeBoolean(boolean value) {
+      writeByte(value ? 1 : 0);
+    }
+
+    private void writeShort(int value) {
+      ensureCapacity(2);
+      buffer[count++] = (byte) (value >>> 8);
+      buffer[count++] = (byte) value;
+    }
+
+    private void writeChar(int value) {
+      writeShort(value);
+    }
+
+    private void writeInt(int value) {
+      ensureCapacity(4);
+      for (int shift = 24; shift >= 0; shift -= 8) {
+        buffer[count++] = (byte) (value >>> shift);
+      }
+    }
+
+    private void writeLong(long value) {
+      ensureCapacity(8);
+      for (int shift = 56; shift >= 0; shift -= 8) {
+        buffer[count++] = (byte) (value >>> shift);
+      }
+    }
+
+    private void writeFloat(float value) {
+      writeInt(Float.floatToIntBits(value));
+    }
+
+    private void writeDouble(double value) {
+      writeLong(Double.doubleToLongBits(value));
+    }
+
+    private void write(byte[] bytes) {
+      ensureCapacity(bytes.length);
+      System.arraycopy(bytes, 0, buffer, count, bytes.length);
+      count += bytes.length;
+    }
+
+    private void ensureCapacity(int length) {
+      if (count + length > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, count + length));
+      }
+    }
+
+    private byte[] toByteArray() {
+      return Arrays.copyOf(buffer, count);
+    }
+  }
+
+  private static final class Input {
+    private final byte[] buffer;
+    private int position;
+
+    private Input(byte[] buffer) {
+      this.buffer = buffer;
+    }
+
+    private byte readByte() throws IOException {
+      if (position >= buffer.length) {
+        throw new EOFException();
+      }
+      return buffer[position++];
+    }
+
+    private boolean readBoolean() throws IOException {
+      return readByte() != 0;
+    }
+
+    private short readShort() throws IOException {
+      return (short) (((readByte() & 0xff) << 8) | (readByte() & 0xff));
+    }
+
+    private char readChar() throws IOException {
+      return (char) readShort();
+    }
+
+    private int readInt() throws IOException {
+      int value = 0;
+      for (int i = 0; i < 4; i++) {
+        value = (value << 8) | (readByte() & 0xff);
+      }
+      return value;
+    }
+
+    private long readLong() throws IOException {
+      long value = 0;
+      for (int i = 0; i < 8; i++) {
+        value = (value << 8) | (readByte() & 0xff);
+      }
+      return value;
+    }
+
+    private float readFloat() throws IOException {
+      return Float.intBitsToFloat(readInt());
+    }
+
+    private double readDouble() throws IOException {
+      return Double.longBitsToDouble(readLong());
+    }
+
+    private void readFully(byte[] bytes) throws IOException {
+      if (position + bytes.length > buffer.length) {
+        throw new EOFException();
+      }
+      System.arraycopy(buffer, position, bytes, 0, bytes.length);
+      position += bytes.length;
+    }
+  }
+
+  /**
+   * Properties of a class written by the compact format, in a stable order.
+   */
+  private static final class BeanLayout {
+    private static final String[] SERIALIZATION_METHODS = {
+        "writeObject", "readObject", "readObjectNoData", "writeReplace", "readResolve"};
+
+    private final Constructor<?> constructor;
+    private final Invoker[] getters;
+    private final Invoker[] setters;
+
+    private BeanLayout(Constructor<?> constructor, Invoker[] getters, Invoker[] setters) {
+      this.constructor = constructor;
+      this.getters = getters;
+      this.setters = setters;
+    }
+
+    /**
+     * @return the layout, or null if the class must be written with Java serialization
+     */
+    private static BeanLayout of(Class<?> type, ReflectorFactory reflectorFactory) {
+      if (!Serializable.class.isAssignableFrom(type) || Externalizable.class.isAssignableFrom(type)
+          || type.isAnonymousClass() || type.isLocalClass() || isJdkClass(type)) {
+        return null;
+      }
+      try {
+        Reflector reflector = reflectorFactory.findForClass(type);
+        if (!reflector.hasDefaultConstructor()) {
+          return null;
+        }
+        List<String> properties = new ArrayList<>();
+        for (Class<?> current = type; current != Object.class; current = current.getSuperclass()) {
+          if (declaresSerializationMethods(current)) {
+            return null;
+          }
+          for (Field field : current.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+              continue;
+            }
+            String name = field.getName();
+            if (properties.contains(name) || !reflector.hasGetter(name) || !reflector.hasSetter(name)
+                || reflector.getGetterType(name) != field.getType() || reflector.getSetterType(name) != field.getType()) {
+              return null;
+            }
+            properties.add(name);
+          }
+        }
+        Invoker[] getters = new Invoker[properties.size()];
+        Invoker[] setters = new Invoker[properties.size()];
+        for (int i = 0; i < getters.length; i++) {
+          getters[i] = reflector.getGetInvoker(properties.get(i));
+          setters[i] = reflector.getSetInvoker(properties.get(i));
+        }
+        Constructor<?> constructor = reflector.getDefaultConstructor();
+        constructor.setAccessible(true);
+        return new BeanLayout(constructor, getters, setters);
+      } catch (RuntimeException e) {
+        // ambiguous getters, inaccessible constructor...
+        return null;
+      }
+    }
+
+    private static boolean declaresSerializationMethods(Class<?> type) {
+      for (Method method : type.getDeclaredMethods()) {
+        for (String name : SERIALIZATION_METHODS) {
+          if (name.equals(method.getName())) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+
+    private static boolean isJdkClass(Class<?> type) {
+      String name = type.getName();
+      return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.")
+          || name.startsWith("com.sun.") || name.startsWith("jdk.");
+    }
+  }
+
+}
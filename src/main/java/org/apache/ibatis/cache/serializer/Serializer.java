@@ -0,0 +1,33 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+/**
+ * SPI to turn cached values into bytes and back.
+ * <p>
+ * Used by read/write caches, see {@link org.apache.ibatis.cache.decorators.SerializedCache}, to hand out a
+ * copy of the cached result on each hit. Implementations must be thread safe and are expected to fail with a
+ * {@link org.apache.ibatis.cache.CacheException}.
+ *
+ * @since 3.5.2
+ */
+public interface Serializer {
+
+  byte[] serialize(Object object);
+
+  Object deserialize(byte[] bytes);
+
+}
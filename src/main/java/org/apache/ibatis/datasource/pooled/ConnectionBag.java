@@ -0,0 +1,281 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Concurrent container of pooled connections used when {@link PooledDataSource#isPoolLockFreeEnabled()} is set.
+ * <p>
+ * Checkout and return never take a global lock: every entry carries its own state that is switched with a CAS.
+ * A borrowing thread first looks at the entries it returned recently (thread affinity), then scans the shared
+ * list and finally waits on a fair hand-off queue that returning threads feed directly.
+ */
+final class ConnectionBag {
+
+  static final int STATE_NOT_IN_USE = 0;
+  static final int STATE_IN_USE = 1;
+  static final int STATE_RESERVED = 2;
+  static final int STATE_REMOVED = -1;
+
+  private static final int MAX_THREAD_LOCAL_ENTRIES = 16;
+
+  private final CopyOnWriteArrayList<Entry> sharedList = new CopyOnWriteArrayList<>();
+  private final ThreadLocal<List<WeakReference<Entry>>> threadList = ThreadLocal.withInitial(ArrayList::new);
+  private final SynchronousQueue<Entry> handoffQueue = new SynchronousQueue<>(true);
+  private final AtomicInteger waiters = new AtomicInteger();
+  private final AtomicInteger totalConnections = new AtomicInteger();
+
+  /**
+   * Tries to take an idle entry without waiting.
+   *
+   * @return the entry switched to {@link #STATE_IN_USE}, or null if none is idle
+   */
+  Entry tryBorrow() {
+    List<WeakReference<Entry>> list = threadList.get();
+    for (int i = list.size() - 1; i >= 0; i--) {
+      Entry entry = list.remove(i).get();
+      if (entry != null && entry.compareAndSet(STATE_NOT_IN_USE, STATE_IN_USE)) {
+        return entry;
+      }
+    }
+    for (Entry entry : sharedList) {
+      if (entry.compareAndSet(STATE_NOT_IN_USE, STATE_IN_USE)) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Waits up to the given time for an idle entry, registering the caller as a waiter first so that
+   * returning threads hand their entry over instead of parking it.
+   *
+   * @return the entry switched to {@link #STATE_IN_USE}, or null on timeout
+   */
+  Entry borrow(long timeout, TimeUnit unit) throws InterruptedException {
+    waiters.incrementAndGet();
+    try {
+      for (Entry entry : sharedList) {
+        if (entry.compareAndSet(STATE_NOT_IN_USE, STATE_IN_USE)) {
+          return entry;
+        }
+      }
+      long remaining = unit.toNanos(timeout);
+      while (remaining > 0) {
+        long start = System.nanoTime();
+        Entry entry = handoffQueue.poll(remaining, TimeUnit.NANOSECONDS);
+        if (entry == null || entry.compareAndSet(STATE_NOT_IN_USE, STATE_IN_USE)) {
+          return entry;
+        }
+        remaining -= System.nanoTime() - start;
+      }
+      return null;
+    } finally {
+      waiters.decrementAndGet();
+    }
+  }
+
+  /**
+   * Makes an entry owned by the caller available again, preferably to a waiting thread.
+   */
+  void requite(Entry entry) {
+    entry.setState(STATE_NOT_IN_USE);
+    for (int i = 0; waiters.get() > 0; i++) {
+      if (entry.getState() != STATE_NOT_IN_USE || handoffQueue.offer(entry)) {
+        return;
+      } else if ((i & 0xff) == 0xff) {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+      } else {
+        Thread.yield();
+      }
+    }
+    List<WeakReference<Entry>> list = threadList.get();
+    if (list.size() < MAX_THREAD_LOCAL_ENTRIES) {
+      list.add(new WeakReference<>(entry));
+    }
+  }
+
+  /**
+   * Reserves room for one more connection.
+   *
+   * @return true if the bag holds less than the given number of connections and a slot was taken
+   */
+  boolean reserveSlot(int maximumConnections) {
+    for (;;) {
+      int total = totalConnections.get();
+      if (total >= maximumConnections) {
+        return false;
+      }
+      if (totalConnections.compareAndSet(total, total + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Gives back a slot taken with {@link #reserveSlot(int)} that did not lead to a new connection.
+   */
+  void releaseSlot() {
+    totalConnections.decrementAndGet();
+  }
+
+  /**
+   * Adds a newly created connection to a previously reserved slot.
+   *
+   * @return the new entry, already in {@link #STATE_IN_USE}
+   */
+  Entry add(PooledConnection connection) {
+    Entry entry = new Entry(connection, STATE_IN_USE);
+    sharedList.add(entry);
+    return entry;
+  }
+
+  /**
+   * Removes an entry for good. Safe to call more than once.
+   */
+  void remove(Entry entry) {
+    entry.setState(STATE_REMOVED);
+    if (sharedList.remove(entry)) {
+      totalConnections.decrementAndGet();
+    }
+  }
+
+  /**
+   * Removes all entries whatever their state.
+   *
+   * @return the removed entries
+   */
+  List<Entry> removeAll() {
+    List<Entry> removed = new ArrayList<>(sharedList.size());
+    for (Entry entry : sharedList) {
+      entry.setState(STATE_REMOVED);
+      if (sharedList.remove(entry)) {
+        totalConnections.decrementAndGet();
+        removed.add(entry);
+      }
+    }
+    return removed;
+  }
+
+  /**
+   * Reserves the in-use entry that has been checked out the longest, if that is longer than the given time.
+   *
+   * @return the entry switched to {@link #STATE_RESERVED}, or null if no connection is overdue
+   */
+  Entry reserveOverdue(long maximumCheckoutTime) {
+    Entry oldest = null;
+    PooledConnection oldestConnection = null;
+    long longestCheckoutTime = maximumCheckoutTime;
+    for (Entry entry : sharedList) {
+      PooledConnection connection = entry.getConnection();
+      if (entry.getState() == STATE_IN_USE && isOverdue(connection, longestCheckoutTime)) {
+        longestCheckoutTime = connection.getCheckoutTime();
+        oldest = entry;
+        oldestConnection = connection;
+      }
+    }
+    if (oldest != null && reserve(oldest, oldestConnection, STATE_IN_USE)) {
+      return oldest;
+    }
+    return null;
+  }
+
+  /**
+   * Switches an entry to {@link #STATE_RESERVED} if it is still in the expected state and still wraps
+   * the expected connection, so that an entry returned and borrowed again in the meantime is left alone.
+   */
+  boolean reserve(Entry entry, PooledConnection expectedConnection, int expectedState) {
+    if (entry.getConnection() != expectedConnection || !entry.compareAndSet(expectedState, STATE_RESERVED)) {
+      return false;
+    }
+    if (entry.getConnection() != expectedConnection) {
+      entry.setState(expectedState);
+      return false;
+    }
+    return true;
+  }
+
+  static boolean isOverdue(PooledConnection connection, long maximumCheckoutTime) {
+    // a zero timestamp means the borrower has not finished the checkout yet
+    return connection.getCheckoutTimestamp() != 0 && connection.getCheckoutTime() > maximumCheckoutTime;
+  }
+
+  List<Entry> entries() {
+    return sharedList;
+  }
+
+  int getCount(int state) {
+    int count = 0;
+    for (Entry entry : sharedList) {
+      if (entry.getState() == state) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  int getWaitingThreadCount() {
+    return waiters.get();
+  }
+
+  /**
+   * Slot of the bag. The real connection stays the same for the whole life of the entry while the
+   * {@link PooledConnection} wrapper is replaced on each return, so that stale proxies cannot reach it.
+   */
+  static final class Entry {
+
+    private static final AtomicIntegerFieldUpdater<Entry> STATE_UPDATER = AtomicIntegerFieldUpdater.newUpdater(Entry.class, "state");
+
+    private volatile int state;
+    private volatile PooledConnection connection;
+
+    Entry(PooledConnection connection, int state) {
+      this.state = state;
+      setConnection(connection);
+    }
+
+    PooledConnection getConnection() {
+      return connection;
+    }
+
+    void setConnection(PooledConnection connection) {
+      this.connection = connection;
+      connection.setBagEntry(this);
+    }
+
+    int getState() {
+      return state;
+    }
+
+    void setState(int state) {
+      this.state = state;
+    }
+
+    boolean compareAndSet(int expect, int update) {
+      return STATE_UPDATER.compareAndSet(this, expect, update);
+    }
+  }
+
+}
@@ -0,0 +1,64 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+/**
+ * Receives the events of a {@link PooledDataSource}, e.g. to feed a metrics library.
+ * <p>
+ * Callbacks never run while the pool is locked. An event raised under the pool lock is queued and
+ * fired once the lock is released, by the thread that raised it or by the next one releasing the lock.
+ * Callbacks should still be short and must not throw.
+ *
+ * @see PooledDataSource#addPoolListener(PoolListener)
+ * @since 3.5.2
+ */
+public interface PoolListener {
+
+  /**
+   * A connection has been handed to a caller.
+   *
+   * @param waitMillis the time the caller spent in getConnection()
+   */
+  default void connectionCheckedOut(long waitMillis) {
+  }
+
+  /**
+   * A connection has been given back to the pool.
+   *
+   * @param holdMillis the time the connection was checked out
+   */
+  default void connectionReturned(long holdMillis) {
+  }
+
+  /**
+   * A caller waited the whole poolTimeToWait without getting a connection. This is not a failed
+   * checkout, the caller keeps waiting for the next interval.
+   *
+   * @param waitMillis the time spent in that wait
+   */
+  default void waitExpired(long waitMillis) {
+  }
+
+  /**
+   * A connection has been checked out for longer than the leak detection threshold.
+   *
+   * @param checkoutMillis the time the connection has been checked out so far
+   * @param checkoutTrace where the connection was checked out
+   */
+  default void connectionLeaked(long checkoutMillis, Throwable checkoutTrace) {
+  }
+
+}
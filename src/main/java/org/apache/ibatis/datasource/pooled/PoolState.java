@@ -1,13 +1,15 @@
 package org.apache.ibatis.datasource.pooled;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 池状态类
  * @author Administrator
  */
-public class PoolState {
+public class PoolState implements PoolStateMXBean {
 
   protected PooledDataSource dataSource;
 
@@ -19,75 +21,296 @@ public class PoolState {
    * 活动连接---使用的
    */
   protected final List<PooledConnection> activeConnections = new ArrayList<>();
+  /**
+   * 无锁模式下的连接容器
+   */
+  final ConnectionBag connectionBag = new ConnectionBag();
   /**
    * 请求计数
    */
-  protected long requestCount = 0;
+  protected final LongAdder requestCount = new LongAdder();
   /**
    * 累计请求时间
    */
-  protected long accumulatedRequestTime = 0;
+  protected final LongAdder accumulatedRequestTime = new LongAdder();
 
-  protected long accumulatedCheckoutTime = 0;
-  protected long claimedOverdueConnectionCount = 0;
-  protected long accumulatedCheckoutTimeOfOverdueConnections = 0;
+  protected final LongAdder accumulatedCheckoutTime = new LongAdder();
+  protected final LongAdder claimedOverdueConnectionCount = new LongAdder();
+  protected final LongAdder accumulatedCheckoutTimeOfOverdueConnections = new LongAdder();
   /**
    * 累计等待时间
    */
-  protected long accumulatedWaitTime = 0;
+  protected final LongAdder accumulatedWaitTime = new LongAdder();
   /**
    * 强制等待技术
    */
-  protected long hadToWaitCount = 0;
+  protected final LongAdder hadToWaitCount = new LongAdder();
   /**
    * 无效连接
    */
-  protected long badConnectionCount = 0;
+  protected final LongAdder badConnectionCount = new LongAdder();
+  /**
+   * 等待poolTimeToWait到期仍未拿到连接的次数（之后会继续重试，不是失败的借出次数）
+   */
+  protected final LongAdder expiredWaitCount = new LongAdder();
+  /**
+   * 疑似泄漏的连接数
+   */
+  protected final LongAdder leakedConnectionCount = new LongAdder();
+  /**
+   * 获取连接耗时分布
+   */
+  protected final LatencyHistogram checkoutWaitHistogram = new LatencyHistogram();
+  /**
+   * 连接持有时间分布
+   */
+  protected final LatencyHistogram holdTimeHistogram = new LatencyHistogram();
+
+  private static final int EVENT_CHECKED_OUT = 0;
+  private static final int EVENT_RETURNED = 1;
+  private static final int EVENT_WAIT_EXPIRED = 2;
+  private static final int EVENT_LEAKED = 3;
+
+  private final Object listenerLock = new Object();
+  private volatile PoolListener[] listeners = new PoolListener[0];
+  /**
+   * 持有池锁时产生的监听事件，释放锁后再触发，受this保护
+   */
+  private final List<PendingEvent> pendingEvents = new ArrayList<>();
+  private volatile boolean eventsPending;
 
   public PoolState(PooledDataSource dataSource) {
     this.dataSource = dataSource;
   }
 
-  public synchronized long getRequestCount() {
-    return requestCount;
+  public long getRequestCount() {
+    return requestCount.sum();
+  }
+
+  public long getAverageRequestTime() {
+    long requests = requestCount.sum();
+    return requests == 0 ? 0 : accumulatedRequestTime.sum() / requests;
+  }
+
+  public long getAverageWaitTime() {
+    long waits = hadToWaitCount.sum();
+    return waits == 0 ? 0 : accumulatedWaitTime.sum() / waits;
+
+  }
+
+  public long getHadToWaitCount() {
+    return hadToWaitCount.sum();
+  }
+
+  public long getBadConnectionCount() {
+    return badConnectionCount.sum();
+  }
+
+  public long getClaimedOverdueConnectionCount() {
+    return claimedOverdueConnectionCount.sum();
+  }
+
+  public long getAverageOverdueCheckoutTime() {
+    long claimed = claimedOverdueConnectionCount.sum();
+    return claimed == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnections.sum() / claimed;
   }
 
-  public synchronized long getAverageRequestTime() {
-    return requestCount == 0 ? 0 : accumulatedRequestTime / requestCount;
+  public long getAverageCheckoutTime() {
+    long requests = requestCount.sum();
+    return requests == 0 ? 0 : accumulatedCheckoutTime.sum() / requests;
   }
 
-  public synchronized long getAverageWaitTime() {
-    return hadToWaitCount == 0 ? 0 : accumulatedWaitTime / hadToWaitCount;
+  public long getExpiredWaitCount() {
+    return expiredWaitCount.sum();
+  }
+
+  public long getLeakedConnectionCount() {
+    return leakedConnectionCount.sum();
+  }
+
+  public LatencyHistogram getCheckoutWaitHistogram() {
+    return checkoutWaitHistogram;
+  }
+
+  public LatencyHistogram getHoldTimeHistogram() {
+    return holdTimeHistogram;
+  }
+
+  public long getCheckoutWaitTimeP50() {
+    return checkoutWaitHistogram.getPercentile(50);
+  }
 
+  public long getCheckoutWaitTimeP99() {
+    return checkoutWaitHistogram.getPercentile(99);
   }
 
-  public synchronized long getHadToWaitCount() {
-    return hadToWaitCount;
+  public long getCheckoutWaitTimeMax() {
+    return checkoutWaitHistogram.getMax();
   }
 
-  public synchronized long getBadConnectionCount() {
-    return badConnectionCount;
+  public long getHoldTimeP50() {
+    return holdTimeHistogram.getPercentile(50);
   }
 
-  public synchronized long getClaimedOverdueConnectionCount() {
-    return claimedOverdueConnectionCount;
+  public long getHoldTimeP99() {
+    return holdTimeHistogram.getPercentile(99);
   }
 
-  public synchronized long getAverageOverdueCheckoutTime() {
-    return claimedOverdueConnectionCount == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnections / claimedOverdueConnectionCount;
+  public long getHoldTimeMax() {
+    return holdTimeHistogram.getMax();
   }
 
-  public synchronized long getAverageCheckoutTime() {
-    return requestCount == 0 ? 0 : accumulatedCheckoutTime / requestCount;
+  public void resetHistograms() {
+    checkoutWaitHistogram.reset();
+    holdTimeHistogram.reset();
+  }
+
+  void addListener(PoolListener listener) {
+    synchronized (listenerLock) {
+      PoolListener[] current = listeners;
+      PoolListener[] updated = Arrays.copyOf(current, current.length + 1);
+      updated[current.length] = listener;
+      listeners = updated;
+    }
+  }
+
+  void removeListener(PoolListener listener) {
+    synchronized (listenerLock) {
+      List<PoolListener> updated = new ArrayList<>(Arrays.asList(listeners));
+      updated.remove(listener);
+      listeners = updated.toArray(new PoolListener[0]);
+    }
+  }
+
+  /**
+   * 记录一次成功获取连接
+   */
+  void recordCheckout(long waitTime) {
+    requestCount.increment();
+    accumulatedRequestTime.add(waitTime);
+    checkoutWaitHistogram.record(waitTime);
+    PoolListener[] current = listeners;
+    if (current.length > 0) {
+      fire(current, EVENT_CHECKED_OUT, waitTime, null);
+    }
+  }
+
+  /**
+   * 记录一次连接归还
+   */
+  void recordReturn(long holdTime) {
+    accumulatedCheckoutTime.add(holdTime);
+    holdTimeHistogram.record(holdTime);
+    PoolListener[] current = listeners;
+    if (current.length > 0) {
+      fire(current, EVENT_RETURNED, holdTime, null);
+    }
+  }
+
+  /**
+   * 记录一次poolTimeToWait到期的等待
+   */
+  void recordExpiredWait(long waitTime) {
+    expiredWaitCount.increment();
+    PoolListener[] current = listeners;
+    if (current.length > 0) {
+      fire(current, EVENT_WAIT_EXPIRED, waitTime, null);
+    }
+  }
+
+  /**
+   * 记录一个疑似泄漏的连接，每次借出只记录一次；有监听器时先通知监听器再增加计数
+   */
+  boolean recordLeak(PooledConnection conn) {
+    Throwable checkoutTrace = conn.getCheckoutTrace();
+    if (checkoutTrace == null || !conn.markLeakReported()) {
+      return false;
+    }
+    PoolListener[] current = listeners;
+    if (current.length > 0) {
+      fire(current, EVENT_LEAKED, conn.getCheckoutTime(), checkoutTrace);
+    } else {
+      leakedConnectionCount.increment();
+    }
+    return true;
+  }
+
+  /**
+   * 未持有池锁时直接通知监听器（不分配对象），否则排队等释放锁后由{@link #firePendingEvents()}触发
+   */
+  private void fire(PoolListener[] current, int event, long millis, Throwable checkoutTrace) {
+    if (Thread.holdsLock(this)) {
+      pendingEvents.add(new PendingEvent(current, event, millis, checkoutTrace));
+      eventsPending = true;
+    } else {
+      notifyListeners(current, event, millis, checkoutTrace);
+    }
+  }
+
+  private void notifyListeners(PoolListener[] current, int event, long millis, Throwable checkoutTrace) {
+    for (PoolListener listener : current) {
+      switch (event) {
+        case EVENT_CHECKED_OUT:
+          listener.connectionCheckedOut(millis);
+          break;
+        case EVENT_RETURNED:
+          listener.connectionReturned(millis);
+          break;
+        case EVENT_WAIT_EXPIRED:
+          listener.waitExpired(millis);
+          break;
+        default:
+          listener.connectionLeaked(millis, checkoutTrace);
+          break;
+      }
+    }
+    if (event == EVENT_LEAKED) {
+      leakedConnectionCount.increment();
+    }
+  }
+
+  /**
+   * 触发持有池锁期间排队的事件，必须在释放池锁之后调用
+   */
+  void firePendingEvents() {
+    if (!eventsPending) {
+      return;
+    }
+    PendingEvent[] events;
+    synchronized (this) {
+      events = pendingEvents.toArray(new PendingEvent[0]);
+      pendingEvents.clear();
+      eventsPending = false;
+    }
+    for (PendingEvent event : events) {
+      notifyListeners(event.listeners, event.event, event.millis, event.checkoutTrace);
+    }
+  }
+
+  /**
+   * 持有池锁时产生、等待释放锁后触发的事件
+   */
+  private static final class PendingEvent {
+    private final PoolListener[] listeners;
+    private final int event;
+    private final long millis;
+    private final Throwable checkoutTrace;
+
+    PendingEvent(PoolListener[] listeners, int event, long millis, Throwable checkoutTrace) {
+      this.listeners = listeners;
+      this.event = event;
+      this.millis = millis;
+      this.checkoutTrace = checkoutTrace;
+    }
   }
 
 
   public synchronized int getIdleConnectionCount() {
-    return idleConnections.size();
+    return idleConnections.size() + connectionBag.getCount(ConnectionBag.STATE_NOT_IN_USE);
   }
 
   public synchronized int getActiveConnectionCount() {
-    return activeConnections.size();
+    return activeConnections.size() + connectionBag.getCount(ConnectionBag.STATE_IN_USE);
   }
 
   @Override
@@ -105,6 +328,14 @@ public class PoolState {
     builder.append("\n poolPingEnabled                ").append(dataSource.poolPingEnabled);
     builder.append("\n poolPingQuery                  ").append(dataSource.poolPingQuery);
     builder.append("\n poolPingConnectionsNotUsedFor  ").append(dataSource.poolPingConnectionsNotUsedFor);
+    builder.append("\n poolPingUseIsValid             ").append(dataSource.poolPingUseIsValid);
+    builder.append("\n poolPingTimeout                ").append(dataSource.poolPingTimeout);
+    builder.append("\n poolLockFreeEnabled            ").append(dataSource.poolLockFreeEnabled);
+    builder.append("\n poolMaintenanceInterval        ").append(dataSource.poolMaintenanceInterval);
+    builder.append("\n poolMinimumIdleConnections     ").append(dataSource.poolMinimumIdleConnections);
+    builder.append("\n poolMaximumConnectionAge       ").append(dataSource.poolMaximumConnectionAge);
+    builder.append("\n poolOverdueReclaimEnabled      ").append(dataSource.poolOverdueReclaimEnabled);
+    builder.append("\n poolLeakDetectionThreshold     ").append(dataSource.poolLeakDetectionThreshold);
     builder.append("\n ---STATUS-----------------------------------------------------");
     builder.append("\n activeConnections              ").append(getActiveConnectionCount());
     builder.append("\n idleConnections                ").append(getIdleConnectionCount());
@@ -116,6 +347,10 @@ public class PoolState {
     builder.append("\n hadToWait                      ").append(getHadToWaitCount());
     builder.append("\n averageWaitTime                ").append(getAverageWaitTime());
     builder.append("\n badConnectionCount             ").append(getBadConnectionCount());
+    builder.append("\n expiredWaitCount               ").append(getExpiredWaitCount());
+    builder.append("\n leakedConnectionCount          ").append(getLeakedConnectionCount());
+    builder.append("\n checkoutWaitTime               ").append(checkoutWaitHistogram);
+    builder.append("\n holdTime                       ").append(holdTimeHistogram);
     builder.append("\n===============================================================");
     return builder.toString();
   }
@@ -6,7 +6,9 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.apache.ibatis.executor.statement.StatementCache;
 import org.apache.ibatis.reflection.ExceptionUtil;
 
 /**
@@ -18,6 +20,7 @@ import org.apache.ibatis.reflection.ExceptionUtil;
 class PooledConnection implements InvocationHandler {
 
   private static final String CLOSE = "close";
+  private static final String PREPARE_STATEMENT = "prepareStatement";
   /**
    * 连接类型
    */
@@ -50,9 +53,35 @@ class PooledConnection implements InvocationHandler {
    * 表示连接是否可用的逻辑值
    */
   private boolean valid;
+  /**
+   * Slot of the concurrent bag holding this connection, only set in lock-free mode
+   */
+  private ConnectionBag.Entry bagEntry;
+  /**
+   * 借出连接的调用栈，只在开启泄漏检测时记录
+   */
+  private volatile Throwable checkoutTrace;
+  private final AtomicBoolean leakReported = new AtomicBoolean();
+  /**
+   * 物理连接的预编译语句缓存，连接归还池时转交给新的代理，未开启时为null
+   */
+  private final PreparedStatementCache statementCache;
+  /**
+   * ReuseExecutor 在连接作用域下保持打开的语句，连接归还池时转交给新的代理，首次使用时创建
+   */
+  private StatementCache reuseStatementCache;
 
 
   public PooledConnection(Connection connection, PooledDataSource dataSource) {
+    this(connection, dataSource, dataSource.getPoolPreparedStatementCacheSize() > 0
+        ? new PreparedStatementCache(dataSource.getPoolPreparedStatementCacheSize()) : null);
+  }
+
+  /**
+   * Wraps again a physical connection of the pool, keeping its cached statements.
+   */
+  PooledConnection(Connection connection, PooledDataSource dataSource, PreparedStatementCache statementCache) {
+    this.statementCache = statementCache;
     this.hashCode = connection.hashCode();
     this.realConnection = connection;
     this.dataSource = dataSource;
@@ -70,6 +99,40 @@ class PooledConnection implements InvocationHandler {
     valid = false;
   }
 
+  boolean isInvalidated() {
+    return !valid;
+  }
+
+  PreparedStatementCache getStatementCache() {
+    return statementCache;
+  }
+
+  StatementCache getReuseStatementCache(int maxSize) {
+    if (reuseStatementCache == null) {
+      reuseStatementCache = new StatementCache(maxSize);
+    }
+    return reuseStatementCache;
+  }
+
+  /**
+   * Hands the statements kept open by the ReuseExecutor over to the new proxy of the physical connection.
+   */
+  void takeReuseStatementCache(PooledConnection conn) {
+    this.reuseStatementCache = conn.reuseStatementCache;
+  }
+
+  /**
+   * Closes the cached statements of the physical connection.
+   */
+  void clearStatementCache() {
+    if (statementCache != null) {
+      statementCache.clear();
+    }
+    if (reuseStatementCache != null) {
+      reuseStatementCache.clear();
+    }
+  }
+
   /**
    * Method to see if the connection is usable.
    *
@@ -203,6 +266,31 @@ class PooledConnection implements InvocationHandler {
     return System.currentTimeMillis() - checkoutTimestamp;
   }
 
+  /**
+   * Getter for where this connection was checked out, when leak detection is enabled.
+   *
+   * @return the checkout trace or null
+   */
+  public Throwable getCheckoutTrace() {
+    return checkoutTrace;
+  }
+
+  void setCheckoutTrace(Throwable checkoutTrace) {
+    this.checkoutTrace = checkoutTrace;
+  }
+
+  boolean markLeakReported() {
+    return leakReported.compareAndSet(false, true);
+  }
+
+  ConnectionBag.Entry getBagEntry() {
+    return bagEntry;
+  }
+
+  void setBagEntry(ConnectionBag.Entry bagEntry) {
+    this.bagEntry = bagEntry;
+  }
+
   @Override
   public int hashCode() {
     return hashCode;
@@ -247,6 +335,9 @@ class PooledConnection implements InvocationHandler {
         //除了toString()方法，其他方法调用之前要检查connection是否还是合法的,不合法要抛出SQLException
         checkConnection();
       }
+      if (statementCache != null && PREPARE_STATEMENT.equals(methodName)) {
+        return statementCache.prepare(this, method, args);
+      }
       return method.invoke(realConnection, args);
     } catch (Throwable t) {
       throw ExceptionUtil.unwrapThrowable(t);
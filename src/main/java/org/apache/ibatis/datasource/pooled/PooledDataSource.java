@@ -1,18 +1,32 @@
 package org.apache.ibatis.datasource.pooled;
 
 import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import javax.sql.DataSource;
 
+import org.apache.ibatis.datasource.DataSourceException;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.executor.statement.StatementCache;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 
@@ -58,6 +72,52 @@ public class PooledDataSource implements DataSource {
   protected String poolPingQuery = "NO PING QUERY SET";
   protected boolean poolPingEnabled;
   protected int poolPingConnectionsNotUsedFor;
+  /**
+   * 是否使用JDBC4的Connection.isValid()代替ping语句
+   */
+  protected boolean poolPingUseIsValid;
+  /**
+   * ping的超时时间（毫秒），0表示不限制
+   */
+  protected int poolPingTimeout;
+  /**
+   * 驱动是否支持Connection.isValid()，首次调用失败后回退到ping语句
+   */
+  private volatile boolean isValidSupported = true;
+  /**
+   * 是否使用无锁的连接获取与归还
+   */
+  protected boolean poolLockFreeEnabled;
+  /**
+   * 后台维护任务的执行间隔（毫秒），0表示不启用
+   */
+  protected int poolMaintenanceInterval;
+  /**
+   * 后台维护任务预热的最小空闲连接数
+   */
+  protected int poolMinimumIdleConnections;
+  /**
+   * 连接最大存活时间（毫秒），0表示不限制
+   */
+  protected int poolMaximumConnectionAge;
+  /**
+   * 后台维护任务是否回收超过poolMaximumCheckoutTime仍未归还的连接
+   */
+  protected boolean poolOverdueReclaimEnabled;
+  private volatile ScheduledExecutorService maintenanceExecutor;
+  /**
+   * 借出超过该时间（毫秒）的连接视为疑似泄漏并记录借出时的调用栈，0表示不检测
+   */
+  protected int poolLeakDetectionThreshold;
+  /**
+   * 每个物理连接缓存的空闲预编译语句数，0表示不缓存
+   */
+  protected int poolPreparedStatementCacheSize;
+  /**
+   * PoolState在JMX中注册的名称
+   */
+  protected String poolMBeanName;
+  private ObjectName registeredMBeanName;
   /**
    * 预期的连接类型代码
    */
@@ -242,6 +302,167 @@ public class PooledDataSource implements DataSource {
     forceCloseAll();
   }
 
+  /**
+   * Determines if connections are tested with the JDBC 4 {@link Connection#isValid(int)} method instead of
+   * the ping query. The ping is still only done when it is enabled and the connection has not been used
+   * for {@link #setPoolPingConnectionsNotUsedFor(int)} milliseconds. Drivers that do not implement the
+   * method fall back to the ping query.
+   *
+   * @param poolPingUseIsValid True to validate connections with isValid()
+   *
+   * @since 3.5.2
+   */
+  public void setPoolPingUseIsValid(boolean poolPingUseIsValid) {
+    this.poolPingUseIsValid = poolPingUseIsValid;
+    this.isValidSupported = true;
+    forceCloseAll();
+  }
+
+  /**
+   * The maximum time to wait for a connection to answer a ping, either through isValid() or as the
+   * query timeout of the ping query. JDBC takes seconds, so the value is rounded up to the next second.
+   *
+   * @param milliseconds the ping timeout, zero (the default) means no timeout
+   *
+   * @since 3.5.2
+   */
+  public void setPoolPingTimeout(int milliseconds) {
+    this.poolPingTimeout = milliseconds;
+  }
+
+  /**
+   * Determines if connections are checked out and returned through a lock-free bag instead of
+   * synchronizing on the pool state.
+   *
+   * @param poolLockFreeEnabled True to avoid the global pool lock on checkout and return
+   *
+   * @since 3.5.2
+   */
+  public void setPoolLockFreeEnabled(boolean poolLockFreeEnabled) {
+    this.poolLockFreeEnabled = poolLockFreeEnabled;
+    forceCloseAll();
+  }
+
+  /**
+   * Interval between two runs of the background maintenance task, which validates idle connections,
+   * evicts over-age ones, reclaims overdue checkouts and pre-warms the pool. Zero (the default)
+   * disables the task.
+   *
+   * @param milliseconds the number of milliseconds between two runs
+   *
+   * @since 3.5.2
+   */
+  public void setPoolMaintenanceInterval(int milliseconds) {
+    this.poolMaintenanceInterval = milliseconds;
+    restartMaintenance();
+  }
+
+  /**
+   * The number of idle connections the background maintenance task keeps open.
+   * It is bounded by the maximum numbers of idle and active connections.
+   *
+   * @param poolMinimumIdleConnections The minimum number of idle connections
+   *
+   * @since 3.5.2
+   */
+  public void setPoolMinimumIdleConnections(int poolMinimumIdleConnections) {
+    this.poolMinimumIdleConnections = poolMinimumIdleConnections;
+  }
+
+  /**
+   * The maximum time a connection is kept open after its creation. Older connections are closed
+   * instead of being returned to the pool and evicted by the background maintenance task.
+   * Zero (the default) means no limit.
+   *
+   * @param milliseconds The maximum age of a connection
+   *
+   * @since 3.5.2
+   */
+  public void setPoolMaximumConnectionAge(int milliseconds) {
+    this.poolMaximumConnectionAge = milliseconds;
+  }
+
+  /**
+   * Determines if the background maintenance task takes back connections that have been checked out
+   * for longer than the maximum checkout time, instead of waiting for a caller to need them.
+   *
+   * @param poolOverdueReclaimEnabled True to reclaim overdue connections in the background
+   *
+   * @since 3.5.2
+   */
+  public void setPoolOverdueReclaimEnabled(boolean poolOverdueReclaimEnabled) {
+    this.poolOverdueReclaimEnabled = poolOverdueReclaimEnabled;
+  }
+
+  /**
+   * Connections checked out for longer than this are reported as possible leaks, together with the stack
+   * trace of the code that checked them out. Leaks are detected by the background maintenance task and when
+   * an overdue connection is claimed. Capturing the trace costs one allocation per checkout, so zero (the
+   * default) disables the detection.
+   *
+   * @param milliseconds the leak detection threshold
+   *
+   * @since 3.5.2
+   */
+  public void setPoolLeakDetectionThreshold(int milliseconds) {
+    this.poolLeakDetectionThreshold = milliseconds;
+  }
+
+  /**
+   * Keeps up to this many idle prepared statements per physical connection, so that preparing again the same SQL
+   * on any session borrowing the connection reuses the statement. Zero (the default) disables the cache.
+   *
+   * @param poolPreparedStatementCacheSize the number of idle statements kept per connection
+   *
+   * @since 3.5.2
+   */
+  public void setPoolPreparedStatementCacheSize(int poolPreparedStatementCacheSize) {
+    this.poolPreparedStatementCacheSize = poolPreparedStatementCacheSize;
+    forceCloseAll();
+  }
+
+  /**
+   * Registers the {@link PoolState} of this data source in the platform MBean server, under
+   * {@code org.apache.ibatis.datasource.pooled:type=PoolState,name=<poolMBeanName>}.
+   * Setting null unregisters it.
+   *
+   * @param poolMBeanName the name of the pool in JMX
+   *
+   * @since 3.5.2
+   */
+  public synchronized void setPoolMBeanName(String poolMBeanName) {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      if (registeredMBeanName != null) {
+        server.unregisterMBean(registeredMBeanName);
+        registeredMBeanName = null;
+      }
+      if (poolMBeanName != null) {
+        ObjectName name = new ObjectName("org.apache.ibatis.datasource.pooled:type=PoolState,name=" + ObjectName.quote(poolMBeanName));
+        server.registerMBean(state, name);
+        registeredMBeanName = name;
+      }
+    } catch (JMException e) {
+      throw new DataSourceException("Error registering the pool state of '" + poolMBeanName + "' in JMX.  Cause: " + e, e);
+    }
+    this.poolMBeanName = poolMBeanName;
+  }
+
+  /**
+   * Adds a listener notified of checkouts, returns, timeouts and leaks.
+   *
+   * @param listener the listener
+   *
+   * @since 3.5.2
+   */
+  public void addPoolListener(PoolListener listener) {
+    state.addListener(listener);
+  }
+
+  public void removePoolListener(PoolListener listener) {
+    state.removeListener(listener);
+  }
+
   public String getDriver() {
     return dataSource.getDriver();
   }
@@ -302,11 +523,52 @@ public class PooledDataSource implements DataSource {
     return poolPingConnectionsNotUsedFor;
   }
 
+  public boolean isPoolPingUseIsValid() {
+    return poolPingUseIsValid;
+  }
+
+  public int getPoolPingTimeout() {
+    return poolPingTimeout;
+  }
+
+  public boolean isPoolLockFreeEnabled() {
+    return poolLockFreeEnabled;
+  }
+
+  public int getPoolMaintenanceInterval() {
+    return poolMaintenanceInterval;
+  }
+
+  public int getPoolMinimumIdleConnections() {
+    return poolMinimumIdleConnections;
+  }
+
+  public int getPoolMaximumConnectionAge() {
+    return poolMaximumConnectionAge;
+  }
+
+  public boolean isPoolOverdueReclaimEnabled() {
+    return poolOverdueReclaimEnabled;
+  }
+
+  public int getPoolLeakDetectionThreshold() {
+    return poolLeakDetectionThreshold;
+  }
+
+  public int getPoolPreparedStatementCacheSize() {
+    return poolPreparedStatementCacheSize;
+  }
+
+  public String getPoolMBeanName() {
+    return poolMBeanName;
+  }
+
   /**
-   * 关闭池中全部活动和空闲的连接
+   * 关闭池中全部活动和空闲的连接，并停止后台维护任务（下次借出连接时重新启动）
    * 同步线程安全
    */
   public void forceCloseAll() {
+    stopMaintenance();
     synchronized (state) {
       expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
       //活动连接
@@ -315,6 +577,7 @@ public class PooledDataSource implements DataSource {
           PooledConnection conn = state.activeConnections.remove(i - 1);
           //使连接失效
           conn.invalidate();
+          conn.clearStatementCache();
 
           Connection realConn = conn.getRealConnection();
           if (!realConn.getAutoCommit()) {
@@ -330,6 +593,7 @@ public class PooledDataSource implements DataSource {
         try {
           PooledConnection conn = state.idleConnections.remove(i - 1);
           conn.invalidate();
+          conn.clearStatementCache();
 
           Connection realConn = conn.getRealConnection();
           if (!realConn.getAutoCommit()) {
@@ -340,12 +604,28 @@ public class PooledDataSource implements DataSource {
           // ignore
         }
       }
+      //无锁模式下的连接
+      for (ConnectionBag.Entry entry : state.connectionBag.removeAll()) {
+        PooledConnection conn = entry.getConnection();
+        conn.invalidate();
+        closeRealConnection(conn);
+      }
     }
     if (log.isDebugEnabled()) {
       log.debug("PooledDataSource forcefully closed/removed all connections.");
     }
   }
 
+  /**
+   * Closes all connections of the pool and stops the background maintenance task. The data source stays
+   * usable, a later checkout opens new connections and restarts the task when an interval is set.
+   *
+   * @since 3.5.2
+   */
+  public void close() {
+    forceCloseAll();
+  }
+
   public PoolState getPoolState() {
     return state;
   }
@@ -360,18 +640,24 @@ public class PooledDataSource implements DataSource {
    * @throws SQLException
    */
   protected void pushConnection(PooledConnection conn) throws SQLException {
+    if (poolLockFreeEnabled) {
+      pushConnectionToBag(conn);
+      return;
+    }
 
     synchronized (state) {
       //推入连接从活动连接中删除
       state.activeConnections.remove(conn);
       //有效连接
       if (conn.isValid()) {
-        if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
-          state.accumulatedCheckoutTime += conn.getCheckoutTime();
+        if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode
+            && !isOverAge(conn)) {
+          state.recordReturn(conn.getCheckoutTime());
           if (!conn.getRealConnection().getAutoCommit()) {
             conn.getRealConnection().rollback();
           }
-          PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this);
+          PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this, conn.getStatementCache());
+          newConn.takeReuseStatementCache(conn);
           state.idleConnections.add(newConn);
           newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
           newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
@@ -382,7 +668,7 @@ public class PooledDataSource implements DataSource {
           state.notifyAll();
         } else {
           //无效连接
-          state.accumulatedCheckoutTime += conn.getCheckoutTime();
+          state.recordReturn(conn.getCheckoutTime());
           if (!conn.getRealConnection().getAutoCommit()) {
             conn.getRealConnection().rollback();
           }
@@ -396,9 +682,10 @@ public class PooledDataSource implements DataSource {
         if (log.isDebugEnabled()) {
           log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
         }
-        state.badConnectionCount++;
+        state.badConnectionCount.increment();
       }
     }
+    state.firePendingEvents();
   }
 
   /**
@@ -409,6 +696,12 @@ public class PooledDataSource implements DataSource {
    * @throws SQLException
    */
   private PooledConnection popConnection(String username, String password) throws SQLException {
+    if (poolMaintenanceInterval > 0 && maintenanceExecutor == null) {
+      startMaintenance();
+    }
+    if (poolLockFreeEnabled) {
+      return popConnectionFromBag(username, password);
+    }
     boolean countedWait = false;
     PooledConnection conn = null;
     long t = System.currentTimeMillis();
@@ -420,6 +713,7 @@ public class PooledDataSource implements DataSource {
     // 导致其他线程永久处于等待锁的状态，程序无法执行下去。而将锁放置到循环内部，当多个线程来到锁之前，其中一个线程获得锁，
     // 执行循环内部代码，当执行完成一次循环，无论成功失败，都会释放锁，而其他线程就可以获得锁进而执行。
     while (conn == null) {
+      state.firePendingEvents();
       synchronized (state) {
         //池中保证有连接
         if (!state.idleConnections.isEmpty()) {
@@ -444,9 +738,10 @@ public class PooledDataSource implements DataSource {
             long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
             if (longestCheckoutTime > poolMaximumCheckoutTime) {
               // Can claim overdue connection
-              state.claimedOverdueConnectionCount++;
-              state.accumulatedCheckoutTimeOfOverdueConnections += longestCheckoutTime;
-              state.accumulatedCheckoutTime += longestCheckoutTime;
+              reportLeak(oldestActiveConnection);
+              state.claimedOverdueConnectionCount.increment();
+              state.accumulatedCheckoutTimeOfOverdueConnections.add(longestCheckoutTime);
+              state.accumulatedCheckoutTime.add(longestCheckoutTime);
               state.activeConnections.remove(oldestActiveConnection);
               if (!oldestActiveConnection.getRealConnection().getAutoCommit()) {
                 try {
@@ -463,7 +758,7 @@ public class PooledDataSource implements DataSource {
                   log.debug("Bad connection. Could not roll back");
                 }
               }
-              conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
+              conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this, oldestActiveConnection.getStatementCache());
               conn.setCreatedTimestamp(oldestActiveConnection.getCreatedTimestamp());
               conn.setLastUsedTimestamp(oldestActiveConnection.getLastUsedTimestamp());
               oldestActiveConnection.invalidate();
@@ -474,7 +769,7 @@ public class PooledDataSource implements DataSource {
               // Must wait
               try {
                 if (!countedWait) {
-                  state.hadToWaitCount++;
+                  state.hadToWaitCount.increment();
                   countedWait = true;
                 }
                 if (log.isDebugEnabled()) {
@@ -482,7 +777,11 @@ public class PooledDataSource implements DataSource {
                 }
                 long wt = System.currentTimeMillis();
                 state.wait(poolTimeToWait);
-                state.accumulatedWaitTime += System.currentTimeMillis() - wt;
+                long waited = System.currentTimeMillis() - wt;
+                state.accumulatedWaitTime.add(waited);
+                if (waited >= poolTimeToWait) {
+                  state.recordExpiredWait(waited);
+                }
               } catch (InterruptedException e) {
                 break;
               }
@@ -499,15 +798,15 @@ public class PooledDataSource implements DataSource {
             conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
             conn.setCheckoutTimestamp(System.currentTimeMillis());
             conn.setLastUsedTimestamp(System.currentTimeMillis());
+            conn.setCheckoutTrace(captureCheckoutTrace());
             state.activeConnections.add(conn);
-            state.requestCount++;
-            state.accumulatedRequestTime += System.currentTimeMillis() - t;
+            state.recordCheckout(System.currentTimeMillis() - t);
           } else {
             if (log.isDebugEnabled()) {
               log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
             }
             //无效连接数目++
-            state.badConnectionCount++;
+            state.badConnectionCount.increment();
             localBadConnectionCount++;
             conn = null;
             if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
@@ -521,6 +820,178 @@ public class PooledDataSource implements DataSource {
       }
 
     }
+    state.firePendingEvents();
+
+    if (conn == null) {
+      if (log.isDebugEnabled()) {
+        log.debug("PooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+      }
+      throw new SQLException("PooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+    }
+
+    return conn;
+  }
+
+
+  /**
+   * 无锁模式下归还连接
+   * @param conn
+   * @throws SQLException
+   */
+  private void pushConnectionToBag(PooledConnection conn) throws SQLException {
+    final ConnectionBag bag = state.connectionBag;
+    ConnectionBag.Entry entry = conn.getBagEntry();
+    if (entry == null || !bag.reserve(entry, conn, ConnectionBag.STATE_IN_USE)) {
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+      }
+      state.badConnectionCount.increment();
+      return;
+    }
+    if (conn.isValid()) {
+      state.recordReturn(conn.getCheckoutTime());
+      if ((bag.getWaitingThreadCount() > 0 || bag.getCount(ConnectionBag.STATE_NOT_IN_USE) < poolMaximumIdleConnections)
+          && conn.getConnectionTypeCode() == expectedConnectionTypeCode && !isOverAge(conn)) {
+        try {
+          if (!conn.getRealConnection().getAutoCommit()) {
+            conn.getRealConnection().rollback();
+          }
+        } catch (SQLException e) {
+          bag.remove(entry);
+          conn.invalidate();
+          closeRealConnection(conn);
+          throw e;
+        }
+        PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this, conn.getStatementCache());
+        newConn.takeReuseStatementCache(conn);
+        newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
+        newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+        entry.setConnection(newConn);
+        conn.invalidate();
+        bag.requite(entry);
+        if (log.isDebugEnabled()) {
+          log.debug("Returned connection " + newConn.getRealHashCode() + " to pool.");
+        }
+      } else {
+        bag.remove(entry);
+        conn.invalidate();
+        try {
+          if (!conn.getRealConnection().getAutoCommit()) {
+            conn.getRealConnection().rollback();
+          }
+        } finally {
+          conn.getRealConnection().close();
+        }
+        if (log.isDebugEnabled()) {
+          log.debug("Closed connection " + conn.getRealHashCode() + ".");
+        }
+      }
+    } else {
+      bag.remove(entry);
+      closeRealConnection(conn);
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+      }
+      state.badConnectionCount.increment();
+    }
+  }
+
+  /**
+   * 无锁模式下获取连接，流程与{@link #popConnection(String, String)}一致，但不持有state的锁
+   * @param username
+   * @param password
+   * @return
+   * @throws SQLException
+   */
+  private PooledConnection popConnectionFromBag(String username, String password) throws SQLException {
+    final ConnectionBag bag = state.connectionBag;
+    boolean countedWait = false;
+    PooledConnection conn = null;
+    long t = System.currentTimeMillis();
+    int localBadConnectionCount = 0;
+
+    while (conn == null) {
+      ConnectionBag.Entry entry = bag.tryBorrow();
+      if (entry != null) {
+        if (log.isDebugEnabled()) {
+          log.debug("Checked out connection " + entry.getConnection().getRealHashCode() + " from pool.");
+        }
+      } else if (bag.reserveSlot(poolMaximumActiveConnections)) {
+        PooledConnection newConn;
+        try {
+          newConn = new PooledConnection(dataSource.getConnection(), this);
+        } catch (SQLException e) {
+          bag.releaseSlot();
+          throw e;
+        }
+        entry = bag.add(newConn);
+        if (log.isDebugEnabled()) {
+          log.debug("Created connection " + newConn.getRealHashCode() + ".");
+        }
+      } else {
+        entry = bag.reserveOverdue(poolMaximumCheckoutTime);
+        if (entry != null) {
+          claimOverdueConnection(entry);
+          entry.setState(ConnectionBag.STATE_IN_USE);
+        } else {
+          // Must wait
+          if (!countedWait) {
+            state.hadToWaitCount.increment();
+            countedWait = true;
+          }
+          if (log.isDebugEnabled()) {
+            log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
+          }
+          long wt = System.currentTimeMillis();
+          try {
+            entry = bag.borrow(poolTimeToWait, TimeUnit.MILLISECONDS);
+          } catch (InterruptedException e) {
+            break;
+          } finally {
+            state.accumulatedWaitTime.add(System.currentTimeMillis() - wt);
+          }
+          if (entry == null) {
+            state.recordExpiredWait(System.currentTimeMillis() - wt);
+          }
+        }
+      }
+      if (entry != null) {
+        conn = entry.getConnection();
+        if (conn.isValid()) {
+          try {
+            if (!conn.getRealConnection().getAutoCommit()) {
+              conn.getRealConnection().rollback();
+            }
+          } catch (SQLException e) {
+            bag.remove(entry);
+            conn.invalidate();
+            closeRealConnection(conn);
+            throw e;
+          }
+          conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
+          conn.setCheckoutTimestamp(System.currentTimeMillis());
+          conn.setLastUsedTimestamp(System.currentTimeMillis());
+          conn.setCheckoutTrace(captureCheckoutTrace());
+          state.recordCheckout(System.currentTimeMillis() - t);
+        } else {
+          if (log.isDebugEnabled()) {
+            log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
+          }
+          bag.remove(entry);
+          conn.invalidate();
+          closeRealConnection(conn);
+          state.badConnectionCount.increment();
+          localBadConnectionCount++;
+          conn = null;
+          if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
+            if (log.isDebugEnabled()) {
+              log.debug("PooledDataSource: Could not get a good connection to the database.");
+            }
+            throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
+          }
+        }
+      }
+    }
 
     if (conn == null) {
       if (log.isDebugEnabled()) {
@@ -532,6 +1003,307 @@ public class PooledDataSource implements DataSource {
     return conn;
   }
 
+  /**
+   * 回收一个已被预留的超时连接，entry保持RESERVED状态，由调用方决定交给谁
+   * @param entry
+   */
+  private void claimOverdueConnection(ConnectionBag.Entry entry) {
+    PooledConnection oldestActiveConnection = entry.getConnection();
+    long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
+    reportLeak(oldestActiveConnection);
+    state.claimedOverdueConnectionCount.increment();
+    state.accumulatedCheckoutTimeOfOverdueConnections.add(longestCheckoutTime);
+    state.accumulatedCheckoutTime.add(longestCheckoutTime);
+    try {
+      if (!oldestActiveConnection.getRealConnection().getAutoCommit()) {
+        oldestActiveConnection.getRealConnection().rollback();
+      }
+    } catch (SQLException e) {
+      // the ping on checkout will discard it if it is really broken
+      log.debug("Bad connection. Could not roll back");
+    }
+    PooledConnection conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this, oldestActiveConnection.getStatementCache());
+    conn.setCreatedTimestamp(oldestActiveConnection.getCreatedTimestamp());
+    conn.setLastUsedTimestamp(oldestActiveConnection.getLastUsedTimestamp());
+    entry.setConnection(conn);
+    oldestActiveConnection.invalidate();
+    if (log.isDebugEnabled()) {
+      log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
+    }
+  }
+
+  private void closeRealConnection(PooledConnection conn) {
+    conn.clearStatementCache();
+    try {
+      Connection realConn = conn.getRealConnection();
+      if (!realConn.getAutoCommit()) {
+        realConn.rollback();
+      }
+      realConn.close();
+    } catch (Exception e) {
+      // ignore
+    }
+  }
+
+
+  private Throwable captureCheckoutTrace() {
+    return poolLeakDetectionThreshold > 0 ? new Throwable("Connection checked out here") : null;
+  }
+
+  /**
+   * 报告疑似泄漏的连接及其借出位置
+   * @param conn
+   * @return true if the leak had not been reported yet
+   */
+  private boolean reportLeak(PooledConnection conn) {
+    if (!state.recordLeak(conn)) {
+      return false;
+    }
+    StringBuilder message = new StringBuilder();
+    message.append("Connection ").append(conn.getRealHashCode()).append(" has been checked out for ")
+        .append(conn.getCheckoutTime()).append(" milliseconds and may have leaked. It was checked out at:");
+    for (StackTraceElement element : conn.getCheckoutTrace().getStackTrace()) {
+      message.append("\n\tat ").append(element);
+    }
+    log.warn(message.toString());
+    return true;
+  }
+
+  private boolean isOverAge(PooledConnection conn) {
+    return poolMaximumConnectionAge > 0 && conn.getAge() > poolMaximumConnectionAge;
+  }
+
+  private boolean needsPing(PooledConnection conn) {
+    return poolPingEnabled && poolPingConnectionsNotUsedFor >= 0 && conn.getTimeElapsedSinceLastUse() > poolPingConnectionsNotUsedFor;
+  }
+
+  /**
+   * 按当前间隔重新启动后台维护任务
+   */
+  private synchronized void restartMaintenance() {
+    stopMaintenance();
+    startMaintenance();
+  }
+
+  /**
+   * 间隔大于0且任务未运行时启动后台维护任务
+   */
+  private synchronized void startMaintenance() {
+    if (poolMaintenanceInterval > 0 && maintenanceExecutor == null) {
+      maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "PooledDataSource-maintenance");
+        thread.setDaemon(true);
+        return thread;
+      });
+      maintenanceExecutor.scheduleWithFixedDelay(new MaintenanceTask(this, maintenanceExecutor),
+          poolMaintenanceInterval, poolMaintenanceInterval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * 停止后台维护任务
+   */
+  private synchronized void stopMaintenance() {
+    if (maintenanceExecutor != null) {
+      maintenanceExecutor.shutdownNow();
+      maintenanceExecutor = null;
+    }
+  }
+
+  /**
+   * 后台维护：校验空闲连接、淘汰超龄连接、回收超时未归还的连接并预热到最小空闲数
+   * @throws SQLException
+   */
+  protected void maintainPool() throws SQLException {
+    try {
+      if (poolLockFreeEnabled) {
+        maintainBag();
+      } else {
+        maintainIdleAndActiveConnections();
+      }
+      fillPool();
+    } finally {
+      state.firePendingEvents();
+    }
+  }
+
+  private void maintainIdleAndActiveConnections() {
+    List<PooledConnection> candidates = new ArrayList<>();
+    synchronized (state) {
+      if (poolLeakDetectionThreshold > 0) {
+        for (PooledConnection conn : state.activeConnections) {
+          if (conn.getCheckoutTime() > poolLeakDetectionThreshold) {
+            reportLeak(conn);
+          }
+        }
+      }
+      for (Iterator<PooledConnection> iterator = state.idleConnections.iterator(); iterator.hasNext();) {
+        PooledConnection conn = iterator.next();
+        if (isOverAge(conn) || needsPing(conn)) {
+          iterator.remove();
+          candidates.add(conn);
+        }
+      }
+      if (poolOverdueReclaimEnabled) {
+        for (Iterator<PooledConnection> iterator = state.activeConnections.iterator(); iterator.hasNext();) {
+          PooledConnection conn = iterator.next();
+          long checkoutTime = conn.getCheckoutTime();
+          if (checkoutTime > poolMaximumCheckoutTime) {
+            reportLeak(conn);
+            iterator.remove();
+            state.claimedOverdueConnectionCount.increment();
+            state.accumulatedCheckoutTimeOfOverdueConnections.add(checkoutTime);
+            state.accumulatedCheckoutTime.add(checkoutTime);
+            PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this, conn.getStatementCache());
+            newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
+            newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+            newConn.setConnectionTypeCode(conn.getConnectionTypeCode());
+            conn.invalidate();
+            candidates.add(newConn);
+            if (log.isDebugEnabled()) {
+              log.debug("Reclaimed overdue connection " + newConn.getRealHashCode() + ".");
+            }
+          }
+        }
+      }
+    }
+    // 网络操作放到锁外执行
+    for (PooledConnection conn : candidates) {
+      if (isOverAge(conn)) {
+        if (log.isDebugEnabled()) {
+          log.debug("Evicted over-age connection " + conn.getRealHashCode() + ".");
+        }
+        conn.invalidate();
+        closeRealConnection(conn);
+      } else if (conn.isValid()) {
+        try {
+          if (!conn.getRealConnection().getAutoCommit()) {
+            conn.getRealConnection().rollback();
+          }
+        } catch (SQLException e) {
+          log.debug("Bad connection. Could not roll back");
+          conn.invalidate();
+          closeRealConnection(conn);
+          state.badConnectionCount.increment();
+          continue;
+        }
+        conn.setLastUsedTimestamp(System.currentTimeMillis());
+        synchronized (state) {
+          if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
+            state.idleConnections.add(conn);
+            state.notifyAll();
+            continue;
+          }
+        }
+        conn.invalidate();
+        closeRealConnection(conn);
+      } else {
+        if (log.isDebugEnabled()) {
+          log.debug("A bad connection (" + conn.getRealHashCode() + ") was found in the pool, discarding connection.");
+        }
+        conn.invalidate();
+        closeRealConnection(conn);
+        state.badConnectionCount.increment();
+      }
+    }
+  }
+
+  private void maintainBag() {
+    final ConnectionBag bag = state.connectionBag;
+    for (ConnectionBag.Entry entry : bag.entries()) {
+      PooledConnection conn = entry.getConnection();
+      int entryState = entry.getState();
+      if (entryState == ConnectionBag.STATE_NOT_IN_USE && (isOverAge(conn) || needsPing(conn))
+          && bag.reserve(entry, conn, ConnectionBag.STATE_NOT_IN_USE)) {
+        if (isOverAge(conn)) {
+          if (log.isDebugEnabled()) {
+            log.debug("Evicted over-age connection " + conn.getRealHashCode() + ".");
+          }
+          bag.remove(entry);
+          conn.invalidate();
+          closeRealConnection(conn);
+        } else if (conn.isValid()) {
+          conn.setLastUsedTimestamp(System.currentTimeMillis());
+          bag.requite(entry);
+        } else {
+          if (log.isDebugEnabled()) {
+            log.debug("A bad connection (" + conn.getRealHashCode() + ") was found in the pool, discarding connection.");
+          }
+          bag.remove(entry);
+          conn.invalidate();
+          closeRealConnection(conn);
+          state.badConnectionCount.increment();
+        }
+      } else if (entryState == ConnectionBag.STATE_IN_USE) {
+        if (poolLeakDetectionThreshold > 0 && ConnectionBag.isOverdue(conn, poolLeakDetectionThreshold)) {
+          reportLeak(conn);
+        }
+        if (poolOverdueReclaimEnabled && ConnectionBag.isOverdue(conn, poolMaximumCheckoutTime)
+            && bag.reserve(entry, conn, ConnectionBag.STATE_IN_USE)) {
+          claimOverdueConnection(entry);
+          if (bag.getWaitingThreadCount() > 0 || bag.getCount(ConnectionBag.STATE_NOT_IN_USE) < poolMaximumIdleConnections) {
+            bag.requite(entry);
+          } else {
+            bag.remove(entry);
+            entry.getConnection().invalidate();
+            closeRealConnection(entry.getConnection());
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * 预热连接池直到空闲连接数达到poolMinimumIdleConnections
+   * @throws SQLException
+   */
+  private void fillPool() throws SQLException {
+    int minimumIdle = Math.min(poolMinimumIdleConnections, poolMaximumIdleConnections);
+    int typeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
+    if (poolLockFreeEnabled) {
+      final ConnectionBag bag = state.connectionBag;
+      while (bag.getCount(ConnectionBag.STATE_NOT_IN_USE) < minimumIdle && bag.reserveSlot(poolMaximumActiveConnections)) {
+        PooledConnection conn;
+        try {
+          conn = new PooledConnection(dataSource.getConnection(), this);
+        } catch (SQLException e) {
+          bag.releaseSlot();
+          throw e;
+        }
+        conn.setConnectionTypeCode(typeCode);
+        bag.requite(bag.add(conn));
+        if (log.isDebugEnabled()) {
+          log.debug("Created idle connection " + conn.getRealHashCode() + ".");
+        }
+      }
+      return;
+    }
+    while (true) {
+      synchronized (state) {
+        if (state.idleConnections.size() >= minimumIdle
+            || state.idleConnections.size() + state.activeConnections.size() >= poolMaximumActiveConnections) {
+          return;
+        }
+      }
+      PooledConnection conn = new PooledConnection(dataSource.getConnection(), this);
+      conn.setConnectionTypeCode(typeCode);
+      synchronized (state) {
+        if (state.idleConnections.size() < minimumIdle
+            && state.idleConnections.size() + state.activeConnections.size() < poolMaximumActiveConnections) {
+          state.idleConnections.add(conn);
+          state.notifyAll();
+          if (log.isDebugEnabled()) {
+            log.debug("Created idle connection " + conn.getRealHashCode() + ".");
+          }
+          continue;
+        }
+      }
+      conn.invalidate();
+      closeRealConnection(conn);
+      return;
+    }
+  }
+
 
   /**
    * 用来检查这个连接是否还是可用的
@@ -553,33 +1325,11 @@ public class PooledDataSource implements DataSource {
 
     if (result) {
       if (poolPingEnabled) {
-        if (poolPingConnectionsNotUsedFor >= 0 && conn.getTimeElapsedSinceLastUse() > poolPingConnectionsNotUsedFor) {
-          try {
-            if (log.isDebugEnabled()) {
-              log.debug("Testing connection " + conn.getRealHashCode() + " ...");
-            }
-            Connection realConn = conn.getRealConnection();
-            try (Statement statement = realConn.createStatement()) {
-              statement.executeQuery(poolPingQuery).close();
-            }
-            if (!realConn.getAutoCommit()) {
-              realConn.rollback();
-            }
-            result = true;
-            if (log.isDebugEnabled()) {
-              log.debug("Connection " + conn.getRealHashCode() + " is GOOD!");
-            }
-          } catch (Exception e) {
-            log.warn("Execution of ping query '" + poolPingQuery + "' failed: " + e.getMessage());
-            try {
-              conn.getRealConnection().close();
-            } catch (Exception e2) {
-              //ignore
-            }
-            result = false;
-            if (log.isDebugEnabled()) {
-              log.debug("Connection " + conn.getRealHashCode() + " is BAD: " + e.getMessage());
-            }
+        if (needsPing(conn)) {
+          if (poolPingUseIsValid && isValidSupported) {
+            result = pingWithIsValid(conn);
+          } else {
+            result = pingWithQuery(conn);
           }
         }
       }
@@ -587,6 +1337,87 @@ public class PooledDataSource implements DataSource {
     return result;
   }
 
+  /**
+   * 使用Connection.isValid()校验连接，不需要执行语句
+   * @param conn
+   * @return
+   */
+  private boolean pingWithIsValid(PooledConnection conn) {
+    if (log.isDebugEnabled()) {
+      log.debug("Testing connection " + conn.getRealHashCode() + " ...");
+    }
+    boolean result;
+    try {
+      result = conn.getRealConnection().isValid(getPingTimeoutSeconds());
+    } catch (AbstractMethodError | SQLFeatureNotSupportedException e) {
+      log.warn("Connection.isValid() is not supported by the driver, falling back to the ping query.");
+      isValidSupported = false;
+      return pingWithQuery(conn);
+    } catch (Exception e) {
+      if (log.isDebugEnabled()) {
+        log.debug("Connection " + conn.getRealHashCode() + " is BAD: " + e.getMessage());
+      }
+      result = false;
+    }
+    if (result) {
+      if (log.isDebugEnabled()) {
+        log.debug("Connection " + conn.getRealHashCode() + " is GOOD!");
+      }
+    } else {
+      log.warn("Validation of connection " + conn.getRealHashCode() + " with isValid() failed.");
+      try {
+        conn.getRealConnection().close();
+      } catch (Exception e2) {
+        //ignore
+      }
+    }
+    return result;
+  }
+
+  /**
+   * 执行poolPingQuery校验连接
+   * @param conn
+   * @return
+   */
+  private boolean pingWithQuery(PooledConnection conn) {
+    boolean result;
+    try {
+      if (log.isDebugEnabled()) {
+        log.debug("Testing connection " + conn.getRealHashCode() + " ...");
+      }
+      Connection realConn = conn.getRealConnection();
+      try (Statement statement = realConn.createStatement()) {
+        if (poolPingTimeout > 0) {
+          statement.setQueryTimeout(getPingTimeoutSeconds());
+        }
+        statement.executeQuery(poolPingQuery).close();
+      }
+      if (!realConn.getAutoCommit()) {
+        realConn.rollback();
+      }
+      result = true;
+      if (log.isDebugEnabled()) {
+        log.debug("Connection " + conn.getRealHashCode() + " is GOOD!");
+      }
+    } catch (Exception e) {
+      log.warn("Execution of ping query '" + poolPingQuery + "' failed: " + e.getMessage());
+      try {
+        conn.getRealConnection().close();
+      } catch (Exception e2) {
+        //ignore
+      }
+      result = false;
+      if (log.isDebugEnabled()) {
+        log.debug("Connection " + conn.getRealHashCode() + " is BAD: " + e.getMessage());
+      }
+    }
+    return result;
+  }
+
+  private int getPingTimeoutSeconds() {
+    return poolPingTimeout <= 0 ? 0 : (int) TimeUnit.MILLISECONDS.toSeconds(poolPingTimeout + 999L);
+  }
+
   /**
    * Unwraps a pooled connection to get to the 'real' connection
    *
@@ -603,6 +1434,25 @@ public class PooledDataSource implements DataSource {
     return conn;
   }
 
+  /**
+   * Returns the statements kept open by the {@link org.apache.ibatis.executor.ReuseExecutor} on the physical
+   * connection behind a pooled connection, created on first use and closed with the physical connection.
+   *
+   * @param conn - the pooled connection
+   * @param maxSize - the number of statements kept open, or 0 for no bound
+   * @return The statement cache, or null if the connection is not pooled
+   * @since 3.5.2
+   */
+  public static StatementCache getReuseStatementCache(Connection conn, int maxSize) {
+    if (Proxy.isProxyClass(conn.getClass())) {
+      InvocationHandler handler = Proxy.getInvocationHandler(conn);
+      if (handler instanceof PooledConnection) {
+        return ((PooledConnection) handler).getReuseStatementCache(maxSize);
+      }
+    }
+    return null;
+  }
+
   protected void finalize() throws Throwable {
     forceCloseAll();
     super.finalize();
@@ -620,4 +1470,33 @@ public class PooledDataSource implements DataSource {
     return Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
   }
 
+  /**
+   * Runs {@link #maintainPool()} while only weakly referencing the data source, so that an abandoned
+   * data source can still be collected and its scheduler stopped.
+   */
+  private static class MaintenanceTask implements Runnable {
+
+    private final WeakReference<PooledDataSource> dataSourceReference;
+    private final ScheduledExecutorService executor;
+
+    MaintenanceTask(PooledDataSource dataSource, ScheduledExecutorService executor) {
+      this.dataSourceReference = new WeakReference<>(dataSource);
+      this.executor = executor;
+    }
+
+    @Override
+    public void run() {
+      PooledDataSource dataSource = dataSourceReference.get();
+      if (dataSource == null) {
+        executor.shutdown();
+        return;
+      }
+      try {
+        dataSource.maintainPool();
+      } catch (Exception e) {
+        log.warn("Pool maintenance failed.", e);
+      }
+    }
+  }
+
 }
@@ -0,0 +1,267 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+/**
+ * Prepared statements of a physical connection kept open between uses, so that preparing the same SQL again does
+ * not reach the driver.
+ * <p>
+ * {@code prepareStatement} on the pooled connection takes an idle statement of the same SQL and arguments, or
+ * prepares one, and returns a logical statement whose {@code close} gives the statement back instead of closing it.
+ * A statement is only used by one logical statement at a time. Idle statements beyond the max size are closed,
+ * least recently used first. The cache moves with the physical connection each time it is returned to the pool.
+ */
+final class PreparedStatementCache {
+
+  /**
+   * Setters whose value is restored when the statement is given back.
+   */
+  private static final Set<String> RESTORED_SETTERS = new HashSet<>(Arrays.asList(
+      "setFetchSize", "setFetchDirection", "setMaxRows", "setMaxFieldSize", "setQueryTimeout"));
+  /**
+   * Methods changing a state that cannot be restored: the statement is closed instead of given back.
+   */
+  private static final Set<String> UNRESTORABLE_METHODS = new HashSet<>(Arrays.asList(
+      "closeOnCompletion", "setCursorName", "setEscapeProcessing", "setPoolable", "setLargeMaxRows"));
+
+  private final Map<List<Object>, PreparedStatement> idleStatements;
+
+  PreparedStatementCache(final int maxSize) {
+    this.idleStatements = new LinkedHashMap<List<Object>, PreparedStatement>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<List<Object>, PreparedStatement> eldest) {
+        boolean evict = size() > maxSize;
+        if (evict) {
+          closeQuietly(eldest.getValue());
+        }
+        return evict;
+      }
+    };
+  }
+
+  /**
+   * Handles a {@code prepareStatement} call on the pooled connection.
+   */
+  PreparedStatement prepare(PooledConnection owner, Method method, Object[] args) throws Throwable {
+    List<Object> key = keyOf(args);
+    PreparedStatement statement = take(key);
+    if (statement == null) {
+      try {
+        statement = (PreparedStatement) method.invoke(owner.getRealConnection(), args);
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    }
+    return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+        new Class<?>[] { PreparedStatement.class }, new LogicalStatement(owner, key, statement));
+  }
+
+  synchronized int size() {
+    return idleStatements.size();
+  }
+
+  /**
+   * Closes the idle statements.
+   */
+  synchronized void clear() {
+    for (PreparedStatement statement : idleStatements.values()) {
+      closeQuietly(statement);
+    }
+    idleStatements.clear();
+  }
+
+  private synchronized PreparedStatement take(List<Object> key) {
+    return idleStatements.remove(key);
+  }
+
+  /**
+   * @return false if an idle statement of the key is already kept
+   */
+  private synchronized boolean giveBack(List<Object> key, PreparedStatement statement) {
+    return idleStatements.putIfAbsent(key, statement) == null;
+  }
+
+  private static List<Object> keyOf(Object[] args) {
+    List<Object> key = new ArrayList<>(args.length);
+    for (Object arg : args) {
+      if (arg instanceof int[]) {
+        List<Integer> columns = new ArrayList<>();
+        for (int column : (int[]) arg) {
+          columns.add(column);
+        }
+        key.add(columns);
+      } else if (arg instanceof Object[]) {
+        key.add(Arrays.asList((Object[]) arg));
+      } else {
+        key.add(arg);
+      }
+    }
+    return key;
+  }
+
+  private static void closeQuietly(PreparedStatement statement) {
+    try {
+      statement.close();
+    } catch (SQLException e) {
+      // ignore
+    }
+  }
+
+  /**
+   * Statement handed to the caller: forwards to the physical statement until it is closed.
+   */
+  private final class LogicalStatement implements InvocationHandler {
+
+    private final PooledConnection owner;
+    private final List<Object> key;
+    private final PreparedStatement statement;
+    private Map<String, Integer> originalValues;
+    private boolean restorable = true;
+    private boolean closed;
+
+    private LogicalStatement(PooledConnection owner, List<Object> key, PreparedStatement statement) {
+      this.owner = owner;
+      this.key = key;
+      this.statement = statement;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String methodName = method.getName();
+      if (Object.class.equals(method.getDeclaringClass())) {
+        if ("equals".equals(methodName)) {
+          return proxy == args[0];
+        } else if ("hashCode".equals(methodName)) {
+          return System.identityHashCode(proxy);
+        }
+        return "Cached " + statement;
+      }
+      if ("close".equals(methodName)) {
+        if (!closed) {
+          closed = true;
+          release();
+        }
+        return null;
+      } else if ("isClosed".equals(methodName)) {
+        return closed || statement.isClosed();
+      }
+      if (closed) {
+        throw new SQLException("Statement is closed.");
+      }
+      try {
+        if (RESTORED_SETTERS.contains(methodName)) {
+          if (originalValues == null) {
+            originalValues = new HashMap<>();
+          }
+          if (!originalValues.containsKey(methodName)) {
+            originalValues.put(methodName, getSetting(methodName));
+          }
+        } else if (UNRESTORABLE_METHODS.contains(methodName)) {
+          restorable = false;
+        }
+        return method.invoke(statement, args);
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    }
+
+    /**
+     * Gives the statement back in its initial state, or closes it if it cannot be reused.
+     */
+    private void release() {
+      // once the connection went back to the pool, another caller may use the cache
+      if (restorable && !owner.isInvalidated()) {
+        try {
+          restoreSettings();
+          ResultSet resultSet = statement.getResultSet();
+          if (resultSet != null) {
+            resultSet.close();
+          }
+          statement.clearParameters();
+          statement.clearBatch();
+          statement.clearWarnings();
+          if (!statement.isClosed() && giveBack(key, statement)) {
+            return;
+          }
+        } catch (SQLException e) {
+          // closed below
+        }
+      }
+      closeQuietly(statement);
+    }
+
+    private void restoreSettings() throws SQLException {
+      if (originalValues == null) {
+        return;
+      }
+      for (Map.Entry<String, Integer> value : originalValues.entrySet()) {
+        int original = value.getValue();
+        switch (value.getKey()) {
+          case "setFetchSize":
+            statement.setFetchSize(original);
+            break;
+          case "setFetchDirection":
+            statement.setFetchDirection(original);
+            break;
+          case "setMaxRows":
+            statement.setMaxRows(original);
+            break;
+          case "setMaxFieldSize":
+            statement.setMaxFieldSize(original);
+            break;
+          default:
+            statement.setQueryTimeout(original);
+        }
+      }
+    }
+
+    private int getSetting(String setter) throws SQLException {
+      switch (setter) {
+        case "setFetchSize":
+          return statement.getFetchSize();
+        case "setFetchDirection":
+          return statement.getFetchDirection();
+        case "setMaxRows":
+          return statement.getMaxRows();
+        case "setMaxFieldSize":
+          return statement.getMaxFieldSize();
+        default:
+          return statement.getQueryTimeout();
+      }
+    }
+  }
+
+}
@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.impl.BoundedLocalCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.statement.StatementUtil;
@@ -65,8 +66,8 @@ public abstract class BaseExecutor implements Executor {
   protected BaseExecutor(Configuration configuration, Transaction transaction) {
     this.transaction = transaction;
     this.deferredLoads = new ConcurrentLinkedQueue<>();
-    this.localCache = new PerpetualCache("LocalCache");
     this.localOutputParameterCache = new PerpetualCache("LocalOutputParameterCache");
+    this.localCache = createLocalCache(configuration);
     this.closed = false;
     this.configuration = configuration;
     this.wrapper = this;
@@ -164,9 +165,12 @@ public abstract class BaseExecutor implements Executor {
       }
       // issue #601
       deferredLoads.clear();
-      if (configuration.getLocalCacheScope() == LocalCacheScope.STATEMENT) {
+      if (configuration.getLocalCacheScope() != LocalCacheScope.SESSION) {
         // issue #482
         clearLocalCache();
+      } else if (localCache instanceof BoundedLocalCache) {
+        // nothing is running nor awaited anymore, so any entry can go
+        ((BoundedLocalCache) localCache).trim();
       }
     }
     return list;
@@ -196,12 +200,13 @@ public abstract class BaseExecutor implements Executor {
     if (closed) {
       throw new ExecutorException("Executor was closed.");
     }
-    CacheKey cacheKey = new CacheKey();
-    cacheKey.update(ms.getId());
-    cacheKey.update(rowBounds.getOffset());
-    cacheKey.update(rowBounds.getLimit());
-    cacheKey.update(boundSql.getSql());
     List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+    // id, offset, limit, sql, parameters and environment
+    CacheKey cacheKey = new CacheKey(parameterMappings.size() + 5);
+    cacheKey.update(ms.getId());
+    cacheKey.updateInt(rowBounds.getOffset());
+    cacheKey.updateInt(rowBounds.getLimit());
+    cacheKey.update(ms.internSql(boundSql.getSql()));
     TypeHandlerRegistry typeHandlerRegistry = ms.getConfiguration().getTypeHandlerRegistry();
     // mimic DefaultParameterHandler logic
     for (ParameterMapping parameterMapping : parameterMappings) {
@@ -325,6 +330,12 @@ public abstract class BaseExecutor implements Executor {
     } finally {
       localCache.removeObject(key);
     }
+    if (configuration.getLocalCacheScope() == LocalCacheScope.PLACEHOLDER) {
+      if (isAwaited(key)) {
+        localCache.putObject(key, list);
+      }
+      return list;
+    }
     localCache.putObject(key, list);
     if (ms.getStatementType() == StatementType.CALLABLE) {
       localOutputParameterCache.putObject(key, parameter);
@@ -332,6 +343,26 @@ public abstract class BaseExecutor implements Executor {
     return list;
   }
 
+  private boolean isAwaited(CacheKey key) {
+    for (DeferredLoad deferredLoad : deferredLoads) {
+      if (deferredLoad.key.equals(key)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private PerpetualCache createLocalCache(Configuration configuration) {
+    if (configuration == null
+        || (configuration.getLocalCacheSize() <= 0 && configuration.getLocalCacheMaxBytes() <= 0)) {
+      return new PerpetualCache("LocalCache");
+    }
+    BoundedLocalCache cache = new BoundedLocalCache("LocalCache",
+        configuration.getLocalCacheSize(), configuration.getLocalCacheMaxBytes());
+    cache.setEvictionListener(localOutputParameterCache::removeObject);
+    return cache;
+  }
+
   protected Connection getConnection(Log statementLog) throws SQLException {
     Connection connection = transaction.getConnection();
     if (statementLog.isDebugEnabled()) {
@@ -21,7 +21,9 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
@@ -30,6 +32,7 @@ import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -47,8 +50,17 @@ public class BatchExecutor extends BaseExecutor {
   private String currentSql;
   private MappedStatement currentStatement;
 
+  private final int maxBatchSize;
+  private final boolean batchInterleaving;
+  // 交错批处理时当前分组内 insert SQL 到其批次下标的映射，遇到非 insert 语句时开始新分组
+  private final Map<String, Integer> batchIndexes = new HashMap<>();
+  // 自动刷新已执行、尚未返回给调用方的批次结果
+  private final List<BatchResult> flushedResults = new ArrayList<>();
+
   public BatchExecutor(Configuration configuration, Transaction transaction) {
     super(configuration, transaction);
+    this.maxBatchSize = configuration.getMaxBatchSize();
+    this.batchInterleaving = configuration.isBatchInterleaving();
   }
 
   @Override
@@ -58,12 +70,13 @@ public class BatchExecutor extends BaseExecutor {
     final BoundSql boundSql = handler.getBoundSql();
     final String sql = boundSql.getSql();
     final Statement stmt;
-    if (sql.equals(currentSql) && ms.equals(currentStatement)) {
-      int last = statementList.size() - 1;
-      stmt = statementList.get(last);
+    final BatchResult batchResult;
+    final int index = indexOfBatch(ms, sql);
+    if (index >= 0) {
+      stmt = statementList.get(index);
       applyTransactionTimeout(stmt);
       handler.parameterize(stmt);//fix Issues 322
-      BatchResult batchResult = batchResultList.get(last);
+      batchResult = batchResultList.get(index);
       batchResult.addParameterObject(parameterObject);
     } else {
       Connection connection = getConnection(ms.getStatementLog());
@@ -71,13 +84,37 @@ public class BatchExecutor extends BaseExecutor {
       handler.parameterize(stmt);    //fix Issues 322
       currentSql = sql;
       currentStatement = ms;
+      if (batchInterleaving && ms.getSqlCommandType() == SqlCommandType.INSERT) {
+        batchIndexes.put(sql, statementList.size());
+      }
       statementList.add(stmt);
-      batchResultList.add(new BatchResult(ms, sql, parameterObject));
+      batchResult = new BatchResult(ms, sql, parameterObject);
+      batchResultList.add(batchResult);
     }
     handler.batch(stmt);
+    if (maxBatchSize > 0 && batchResult.getParameterObjects().size() >= maxBatchSize) {
+      flushFullBatch();
+    }
     return BATCH_UPDATE_RETURN_VALUE;
   }
 
+  /**
+   * Returns the index of the batch the statement can be added to, or -1 if a new batch is needed. Without
+   * interleaving only the last batch can grow. With it, an insert can also join the batch of the same SQL and mapped
+   * statement in the current group, so the inserts of a group execute in the order of their first statement. Any
+   * other statement closes the group: the statements before it execute before it and the ones after it after it.
+   */
+  private int indexOfBatch(MappedStatement ms, String sql) {
+    if (batchInterleaving) {
+      if (ms.getSqlCommandType() == SqlCommandType.INSERT) {
+        Integer index = batchIndexes.get(sql);
+        return index != null && ms.equals(batchResultList.get(index).getMappedStatement()) ? index : -1;
+      }
+      batchIndexes.clear();
+    }
+    return sql.equals(currentSql) && ms.equals(currentStatement) ? statementList.size() - 1 : -1;
+  }
+
   @Override
   public <E> List<E> doQuery(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql)
       throws SQLException {
@@ -109,54 +146,109 @@ public class BatchExecutor extends BaseExecutor {
 
   @Override
   public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
+    List<Statement> statements = new ArrayList<>(statementList);
+    List<BatchResult> batchResults = new ArrayList<>(batchResultList);
+    currentSql = null;
+    batchIndexes.clear();
+    statementList.clear();
+    batchResultList.clear();
     try {
-      List<BatchResult> results = new ArrayList<>();
       if (isRollback) {
         return Collections.emptyList();
       }
-      for (int i = 0, n = statementList.size(); i < n; i++) {
-        Statement stmt = statementList.get(i);
-        applyTransactionTimeout(stmt);
-        BatchResult batchResult = batchResultList.get(i);
-        try {
-          batchResult.setUpdateCounts(stmt.executeBatch());
-          MappedStatement ms = batchResult.getMappedStatement();
-          List<Object> parameterObjects = batchResult.getParameterObjects();
-          KeyGenerator keyGenerator = ms.getKeyGenerator();
-          if (Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
-            Jdbc3KeyGenerator jdbc3KeyGenerator = (Jdbc3KeyGenerator) keyGenerator;
-            jdbc3KeyGenerator.processBatch(ms, stmt, parameterObjects);
-          } else if (!NoKeyGenerator.class.equals(keyGenerator.getClass())) { //issue #141
-            for (Object parameter : parameterObjects) {
-              keyGenerator.processAfter(this, ms, stmt, parameter);
-            }
+      List<BatchResult> results = new ArrayList<>(flushedResults);
+      executeBatches(statements, batchResults, results, true);
+      return results;
+    } finally {
+      for (Statement stmt : statements) {
+        closeStatement(stmt);
+      }
+      flushedResults.clear();
+    }
+  }
+
+  /**
+   * Executes the batches built so far once the current one reaches the max batch size.
+   */
+  private void flushFullBatch() throws SQLException {
+    if (batchInterleaving) {
+      flushInterleavedBatches();
+      return;
+    }
+    List<Statement> statements = new ArrayList<>(statementList);
+    List<BatchResult> batchResults = new ArrayList<>(batchResultList);
+    currentSql = null;
+    batchIndexes.clear();
+    statementList.clear();
+    batchResultList.clear();
+    try {
+      executeBatches(statements, batchResults, flushedResults, true);
+    } finally {
+      for (Statement stmt : statements) {
+        closeStatement(stmt);
+      }
+    }
+  }
+
+  /**
+   * Executes the interleaved batches in place, keeping their statements open so that the next statements are batched
+   * in the same order.
+   */
+  private void flushInterleavedBatches() throws SQLException {
+    executeBatches(statementList, batchResultList, flushedResults, false);
+    for (int i = 0, n = batchResultList.size(); i < n; i++) {
+      BatchResult batchResult = batchResultList.get(i);
+      batchResultList.set(i, new BatchResult(batchResult.getMappedStatement(), batchResult.getSql()));
+    }
+  }
+
+  /**
+   * Executes the batches in order, adding their results to the given list, which holds the batches executed before
+   * since the last flush. Batches emptied by an interleaved flush are skipped.
+   */
+  private void executeBatches(List<Statement> statements, List<BatchResult> batchResults, List<BatchResult> results,
+      boolean close) throws SQLException {
+    for (int i = 0, n = statements.size(); i < n; i++) {
+      Statement stmt = statements.get(i);
+      BatchResult batchResult = batchResults.get(i);
+      if (batchResult.getParameterObjects().isEmpty()) {
+        continue;
+      }
+      applyTransactionTimeout(stmt);
+      try {
+        batchResult.setUpdateCounts(stmt.executeBatch());
+        MappedStatement ms = batchResult.getMappedStatement();
+        List<Object> parameterObjects = batchResult.getParameterObjects();
+        KeyGenerator keyGenerator = ms.getKeyGenerator();
+        if (Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
+          Jdbc3KeyGenerator jdbc3KeyGenerator = (Jdbc3KeyGenerator) keyGenerator;
+          jdbc3KeyGenerator.processBatch(ms, stmt, parameterObjects);
+        } else if (!NoKeyGenerator.class.equals(keyGenerator.getClass())) { //issue #141
+          for (Object parameter : parameterObjects) {
+            keyGenerator.processAfter(this, ms, stmt, parameter);
           }
+        }
+        if (close) {
           // Close statement to close cursor #1109
           closeStatement(stmt);
-        } catch (BatchUpdateException e) {
-          StringBuilder message = new StringBuilder();
-          message.append(batchResult.getMappedStatement().getId())
-              .append(" (batch index #")
-              .append(i + 1)
-              .append(")")
-              .append(" failed.");
-          if (i > 0) {
-            message.append(" ")
-                .append(i)
-                .append(" prior sub executor(s) completed successfully, but will be rolled back.");
-          }
-          throw new BatchExecutorException(message.toString(), e, results, batchResult);
         }
-        results.add(batchResult);
-      }
-      return results;
-    } finally {
-      for (Statement stmt : statementList) {
-        closeStatement(stmt);
+      } catch (BatchUpdateException e) {
+        // 下标从会话上次 flushStatements 起累计，包含自动刷新已执行的批次
+        int priorBatches = results.size();
+        StringBuilder message = new StringBuilder();
+        message.append(batchResult.getMappedStatement().getId())
+            .append(" (batch index #")
+            .append(priorBatches + 1)
+            .append(")")
+            .append(" failed.");
+        if (priorBatches > 0) {
+          message.append(" ")
+              .append(priorBatches)
+              .append(" prior sub executor(s) completed successfully, but will be rolled back.");
+        }
+        throw new BatchExecutorException(message.toString(), e, results, batchResult);
       }
-      currentSql = null;
-      statementList.clear();
-      batchResultList.clear();
+      results.add(batchResult);
     }
   }
 
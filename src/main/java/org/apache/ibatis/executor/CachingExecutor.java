@@ -17,10 +17,13 @@ package org.apache.ibatis.executor;
 
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.TableAwareCache;
 import org.apache.ibatis.cache.TransactionalCacheManager;
+import org.apache.ibatis.cache.invalidation.SqlTableParser;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
@@ -28,6 +31,7 @@ import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
 import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.CacheInvalidationScope;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
@@ -72,7 +76,7 @@ public class CachingExecutor implements Executor {
 
   @Override
   public int update(MappedStatement ms, Object parameterObject) throws SQLException {
-    flushCacheIfRequired(ms);
+    flushCacheIfRequired(ms, parameterObject);
     return delegate.update(ms, parameterObject);
   }
 
@@ -101,7 +105,11 @@ public class CachingExecutor implements Executor {
         List<E> list = (List<E>) tcm.getObject(cache, key);
         if (list == null) {
           list = delegate.query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
-          tcm.putObject(cache, key, list); // issue #578 and #116
+          if (isTableInvalidation(ms, cache)) {
+            tcm.putObject(cache, key, list, getCacheTables(ms, parameterObject, boundSql));
+          } else {
+            tcm.putObject(cache, key, list); // issue #578 and #116
+          }
         }
         return list;
       }
@@ -168,6 +176,44 @@ public class CachingExecutor implements Executor {
     }
   }
 
+  private void flushCacheIfRequired(MappedStatement ms, Object parameterObject) {
+    Cache cache = ms.getCache();
+    if (cache != null && ms.isFlushCacheRequired()) {
+      Set<String> tables = null;
+      if (isTableInvalidation(ms, cache)) {
+        tables = getCacheTables(ms, parameterObject, null);
+      }
+      if (tables == null) {
+        tcm.clear(cache);
+      } else {
+        tcm.invalidate(cache, tables);
+      }
+    }
+  }
+
+  private boolean isTableInvalidation(MappedStatement ms, Cache cache) {
+    return cache instanceof TableAwareCache
+        && ms.getConfiguration().getCacheInvalidationScope() == CacheInvalidationScope.TABLE;
+  }
+
+  /**
+   * Static SQL is parsed once per statement; the other SQL is parsed from the given bound SQL, built if null.
+   *
+   * @return the declared tables of the statement, else the ones found in its SQL, or null if unknown
+   */
+  private Set<String> getCacheTables(MappedStatement ms, Object parameterObject, BoundSql boundSql) {
+    if (ms.getCacheTables() != null) {
+      return ms.getCacheTables();
+    }
+    if (ms.getStatementType() == StatementType.CALLABLE) {
+      return null;
+    }
+    if (ms.hasStaticSql()) {
+      return ms.getSqlTables();
+    }
+    return SqlTableParser.parse((boundSql != null ? boundSql : ms.getBoundSql(parameterObject)).getSql());
+  }
+
   @Override
   public void setExecutorWrapper(Executor executor) {
     throw new UnsupportedOperationException("This method should not be called");
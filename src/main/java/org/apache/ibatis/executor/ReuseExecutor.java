@@ -19,17 +19,18 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.executor.statement.StatementCache;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.ReuseStatementScope;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
 
@@ -38,7 +39,9 @@ import org.apache.ibatis.transaction.Transaction;
  */
 public class ReuseExecutor extends BaseExecutor {
 
-  private final Map<String, Statement> statementMap = new HashMap<>();
+  // 语句所属的缓存，按需绑定到会话或池连接
+  private StatementCache statementCache;
+  private boolean connectionScoped;
 
   public ReuseExecutor(Configuration configuration, Transaction transaction) {
     super(configuration, transaction);
@@ -70,10 +73,10 @@ public class ReuseExecutor extends BaseExecutor {
 
   @Override
   public List<BatchResult> doFlushStatements(boolean isRollback) {
-    for (Statement stmt : statementMap.values()) {
-      closeStatement(stmt);
+    if (statementCache != null && !connectionScoped) {
+      statementCache.clear();
     }
-    statementMap.clear();
+    statementCache = null;
     return Collections.emptyList();
   }
 
@@ -81,32 +84,36 @@ public class ReuseExecutor extends BaseExecutor {
     Statement stmt;
     BoundSql boundSql = handler.getBoundSql();
     String sql = boundSql.getSql();
-    if (hasStatementFor(sql)) {
-      stmt = getStatement(sql);
+    StatementCache cache = getStatementCache();
+    stmt = cache.get(sql);
+    if (stmt != null) {
       applyTransactionTimeout(stmt);
     } else {
       Connection connection = getConnection(statementLog);
       stmt = handler.prepare(connection, transaction.getTimeout());
-      putStatement(sql, stmt);
+      cache.put(sql, stmt);
     }
     handler.parameterize(stmt);
     return stmt;
   }
 
-  private boolean hasStatementFor(String sql) {
-    try {
-      return statementMap.keySet().contains(sql) && !statementMap.get(sql).getConnection().isClosed();
-    } catch (SQLException e) {
-      return false;
+  /**
+   * Binds the statement cache on first use after a flush: the statements it holds were prepared on the current
+   * connection, so lookups do not need to check the connection again. Connections which are not pooled fall back to
+   * the session scope.
+   */
+  private StatementCache getStatementCache() throws SQLException {
+    if (statementCache == null) {
+      int size = configuration.getReuseStatementCacheSize();
+      if (configuration.getReuseStatementScope() == ReuseStatementScope.CONNECTION) {
+        statementCache = PooledDataSource.getReuseStatementCache(transaction.getConnection(), size);
+      }
+      connectionScoped = statementCache != null;
+      if (statementCache == null) {
+        statementCache = new StatementCache(size);
+      }
     }
-  }
-
-  private Statement getStatement(String s) {
-    return statementMap.get(s);
-  }
-
-  private void putStatement(String sql, Statement stmt) {
-    statementMap.put(sql, stmt);
+    return statementCache;
   }
 
 }
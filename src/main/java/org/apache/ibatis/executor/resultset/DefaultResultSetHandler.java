@@ -21,8 +21,10 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -53,12 +55,15 @@ import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.ReflectorFactory;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
 import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultContext;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.type.IntegerTypeHandler;
 import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.LongTypeHandler;
 import org.apache.ibatis.type.TypeHandler;
 import org.apache.ibatis.type.TypeHandlerRegistry;
 
@@ -71,6 +76,7 @@ import org.apache.ibatis.type.TypeHandlerRegistry;
 public class DefaultResultSetHandler implements ResultSetHandler {
 
   private static final Object DEFERRED = new Object();
+  private static final String BUILT_IN_TYPE_HANDLER_PACKAGE = "org.apache.ibatis.type.";
 
   private final Executor executor;
   private final Configuration configuration;
@@ -84,9 +90,11 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private final ReflectorFactory reflectorFactory;
 
   // nested resultmaps
-  private final Map<CacheKey, Object> nestedResultObjects = new HashMap<>();
+  private final Map<RowKey, Object> nestedResultObjects = new HashMap<>();
   private final Map<String, Object> ancestorObjects = new HashMap<>();
   private Object previousRowValue;
+  // results are fetched through a cursor
+  private boolean cursorResults;
 
   // multiple resultsets
   private final Map<String, ResultMapping> nextResultMaps = new HashMap<>();
@@ -95,6 +103,11 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   // Cached Automappings
   private final Map<String, List<UnMappedColumnAutoMapping>> autoMappingsCache = new HashMap<>();
 
+  // Compiled row mappers and single id columns of the current result set
+  private final Map<ResultMap, Map<String, RowMapper>> rowMappers = new IdentityHashMap<>();
+  private final Map<ResultMap, Map<String, IdColumn>> idColumns = new IdentityHashMap<>();
+  private ResultSetWrapper currentResultSet;
+
   // temporary marking flag that indicate using constructor mapping (use field to reduce memory usage)
   private boolean useConstructorMappings;
 
@@ -103,6 +116,20 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     public ResultMapping propertyMapping;
   }
 
+  private static class IdColumn {
+    private static final IdColumn NONE = new IdColumn(null, 0, false);
+
+    private final String column;
+    private final int columnIndex;
+    private final boolean intValue;
+
+    private IdColumn(String column, int columnIndex, boolean intValue) {
+      this.column = column;
+      this.columnIndex = columnIndex;
+      this.intValue = intValue;
+    }
+  }
+
   private static class UnMappedColumnAutoMapping {
     private final String column;
     private final String property;
@@ -230,6 +257,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
 
     ResultMap resultMap = resultMaps.get(0);
+    cursorResults = true;
     return new DefaultCursor<>(this, resultMap, rsw, rowBounds);
   }
 
@@ -320,6 +348,11 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   //
 
   public void handleRowValues(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler<?> resultHandler, RowBounds rowBounds, ResultMapping parentMapping) throws SQLException {
+    if (currentResultSet != rsw) {
+      rowMappers.clear();
+      idColumns.clear();
+      currentResultSet = rsw;
+    }
     if (resultMap.hasNestedResultMaps()) {
       ensureNoRowBounds();
       checkResultHandler();
@@ -396,12 +429,17 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     final ResultLoaderMap lazyLoader = new ResultLoaderMap();
     Object rowValue = createResultObject(rsw, resultMap, lazyLoader, columnPrefix);
     if (rowValue != null && !hasTypeHandlerForResultObject(rsw, resultMap.getType())) {
-      final MetaObject metaObject = configuration.newMetaObject(rowValue);
       boolean foundValues = this.useConstructorMappings;
-      if (shouldApplyAutomaticMappings(resultMap, false)) {
-        foundValues = applyAutomaticMappings(rsw, resultMap, metaObject, columnPrefix) || foundValues;
+      final RowMapper rowMapper = getRowMapper(rsw, resultMap, rowValue, columnPrefix, false);
+      if (rowMapper != null) {
+        foundValues = applyRowMapper(rsw, rowMapper, rowValue, null, lazyLoader, columnPrefix) || foundValues;
+      } else {
+        final MetaObject metaObject = configuration.newMetaObject(rowValue);
+        if (shouldApplyAutomaticMappings(resultMap, false)) {
+          foundValues = applyAutomaticMappings(rsw, resultMap, metaObject, columnPrefix) || foundValues;
+        }
+        foundValues = applyPropertyMappings(rsw, resultMap, metaObject, lazyLoader, columnPrefix) || foundValues;
       }
-      foundValues = applyPropertyMappings(rsw, resultMap, metaObject, lazyLoader, columnPrefix) || foundValues;
       foundValues = lazyLoader.size() > 0 || foundValues;
       rowValue = foundValues || configuration.isReturnInstanceForEmptyRow() ? rowValue : null;
     }
@@ -438,7 +476,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       if (propertyMapping.isCompositeResult()
           || (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH)))
           || propertyMapping.getResultSet() != null) {
-        Object value = getPropertyMappingValue(rsw.getResultSet(), metaObject, propertyMapping, lazyLoader, columnPrefix);
+        Object value = getPropertyMappingValue(rsw, metaObject, propertyMapping, lazyLoader, columnPrefix);
         // issue #541 make property optional
         final String property = propertyMapping.getProperty();
         if (property == null) {
@@ -459,18 +497,36 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return foundValues;
   }
 
-  private Object getPropertyMappingValue(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix)
+  private Object getPropertyMappingValue(ResultSetWrapper rsw, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix)
       throws SQLException {
     if (propertyMapping.getNestedQueryId() != null) {
-      return getNestedQueryMappingValue(rs, metaResultObject, propertyMapping, lazyLoader, columnPrefix);
+      return getNestedQueryMappingValue(rsw.getResultSet(), metaResultObject, propertyMapping, lazyLoader, columnPrefix);
     } else if (propertyMapping.getResultSet() != null) {
-      addPendingChildRelation(rs, metaResultObject, propertyMapping);   // TODO is that OK?
+      addPendingChildRelation(rsw.getResultSet(), metaResultObject, propertyMapping);   // TODO is that OK?
       return DEFERRED;
     } else {
-      final TypeHandler<?> typeHandler = propertyMapping.getTypeHandler();
-      final String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
-      return typeHandler.getResult(rs, column);
+      return getColumnValue(rsw, propertyMapping.getTypeHandler(), propertyMapping.getColumn(), columnPrefix);
+    }
+  }
+
+  private Object getColumnValue(ResultSetWrapper rsw, TypeHandler<?> typeHandler, String column, String columnPrefix) throws SQLException {
+    final int columnIndex = getColumnIndex(rsw, typeHandler, column, columnPrefix);
+    if (columnIndex > 0) {
+      return typeHandler.getResult(rsw.getResultSet(), columnIndex);
+    }
+    return typeHandler.getResult(rsw.getResultSet(), prependPrefix(column, columnPrefix));
+  }
+
+  /**
+   * Returns the index to read the column with, or 0 to read it by label. Custom type handlers always read by label,
+   * as they did before, since some only implement that read or rely on the label.
+   */
+  private int getColumnIndex(ResultSetWrapper rsw, TypeHandler<?> typeHandler, String column, String columnPrefix) {
+    final Class<?> type = typeHandler.getClass();
+    if (type.getClassLoader() != TypeHandler.class.getClassLoader() || !type.getName().startsWith(BUILT_IN_TYPE_HANDLER_PACKAGE)) {
+      return 0;
     }
+    return rsw.getColumnIndex(column, columnPrefix);
   }
 
   private List<UnMappedColumnAutoMapping> createAutomaticMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String columnPrefix) throws SQLException {
@@ -518,7 +574,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     boolean foundValues = false;
     if (!autoMapping.isEmpty()) {
       for (UnMappedColumnAutoMapping mapping : autoMapping) {
-        final Object value = mapping.typeHandler.getResult(rsw.getResultSet(), mapping.column);
+        final Object value = getColumnValue(rsw, mapping.typeHandler, mapping.column, null);
         if (value != null) {
           foundValues = true;
         }
@@ -531,6 +587,122 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return foundValues;
   }
 
+  //
+  // COMPILED ROW MAPPERS
+  //
+
+  private RowMapper getRowMapper(ResultSetWrapper rsw, ResultMap resultMap, Object rowValue, String columnPrefix, boolean isNested) throws SQLException {
+    if (!configuration.isUseCompiledRowMappers()) {
+      return null;
+    }
+    final Map<String, RowMapper> prefixedRowMappers = rowMappers.computeIfAbsent(resultMap, k -> new HashMap<>());
+    RowMapper rowMapper = prefixedRowMappers.get(columnPrefix);
+    if (rowMapper == null || !rowMapper.matches(rowValue, isNested)) {
+      final RowMapperCache rowMapperCache = configuration.getRowMapperCache();
+      final RowMapperCache.Key key = new RowMapperCache.Key(resultMap, columnPrefix, rowValue.getClass(), isNested, rsw, configuration);
+      rowMapper = rowMapperCache.get(key);
+      if (rowMapper == null) {
+        rowMapper = compileRowMapper(rsw, resultMap, rowValue, columnPrefix, isNested);
+        rowMapperCache.put(key, rowMapper);
+      }
+      prefixedRowMappers.put(columnPrefix, rowMapper);
+    }
+    return rowMapper.isCompiled() ? rowMapper : null;
+  }
+
+  private RowMapper compileRowMapper(ResultSetWrapper rsw, ResultMap resultMap, Object rowValue, String columnPrefix, boolean isNested) throws SQLException {
+    if (rowValue instanceof Map || rowValue instanceof Collection || configuration.getObjectWrapperFactory().hasWrapperFor(rowValue)) {
+      return new RowMapper(rowValue.getClass(), isNested, null);
+    }
+    final MetaObject metaObject = configuration.newMetaObject(rowValue);
+    final MetaClass metaClass = MetaClass.forClass(rowValue.getClass(), reflectorFactory);
+    final List<RowMapper.Column> columns = new ArrayList<>();
+    if (shouldApplyAutomaticMappings(resultMap, isNested)) {
+      for (UnMappedColumnAutoMapping mapping : createAutomaticMappings(rsw, resultMap, metaObject, columnPrefix)) {
+        columns.add(new RowMapper.Column(null, mapping.property, mapping.column, getColumnIndex(rsw, mapping.typeHandler, mapping.column, null), mapping.typeHandler,
+            getSetInvoker(metaClass, mapping.property), configuration.isCallSettersOnNulls() && !mapping.primitive));
+      }
+    }
+    final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
+    for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+      String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
+      if (propertyMapping.getNestedResultMapId() != null) {
+        // the user added a column attribute to a nested result map, ignore it
+        column = null;
+      }
+      if (propertyMapping.isCompositeResult()
+          || (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH)))
+          || propertyMapping.getResultSet() != null) {
+        final String property = propertyMapping.getProperty();
+        final Invoker setter = property == null ? null : getSetInvoker(metaClass, property);
+        final Boolean callSetterOnNull = !configuration.isCallSettersOnNulls() ? Boolean.FALSE
+            : setter != null ? !metaClass.getSetterType(property).isPrimitive() : null;
+        if (propertyMapping.getNestedQueryId() != null || propertyMapping.getResultSet() != null || propertyMapping.isCompositeResult()) {
+          columns.add(new RowMapper.Column(propertyMapping, property, null, 0, null, setter, callSetterOnNull));
+        } else if (property != null) {
+          columns.add(new RowMapper.Column(null, property, column, getColumnIndex(rsw, propertyMapping.getTypeHandler(), propertyMapping.getColumn(), columnPrefix), propertyMapping.getTypeHandler(),
+              setter, callSetterOnNull));
+        }
+      }
+    }
+    return new RowMapper(rowValue.getClass(), isNested, columns);
+  }
+
+  private Invoker getSetInvoker(MetaClass metaClass, String property) {
+    // nested and indexed properties are set through a MetaObject
+    if (property.indexOf('.') >= 0 || property.indexOf('[') >= 0 || !metaClass.hasSetter(property)) {
+      return null;
+    }
+    return metaClass.getSetInvoker(property);
+  }
+
+  private boolean applyRowMapper(ResultSetWrapper rsw, RowMapper rowMapper, Object rowValue, MetaObject metaObject, ResultLoaderMap lazyLoader, String columnPrefix)
+      throws SQLException {
+    final ResultSet rs = rsw.getResultSet();
+    boolean foundValues = false;
+    for (RowMapper.Column column : rowMapper.getColumns()) {
+      final Object value;
+      if (column.getPropertyMapping() == null) {
+        value = column.getResult(rs);
+      } else {
+        if (metaObject == null) {
+          metaObject = configuration.newMetaObject(rowValue);
+        }
+        value = getPropertyMappingValue(rsw, metaObject, column.getPropertyMapping(), lazyLoader, columnPrefix);
+        if (column.getProperty() == null) {
+          continue;
+        } else if (value == DEFERRED) {
+          foundValues = true;
+          continue;
+        }
+      }
+      if (value != null) {
+        foundValues = true;
+      }
+      if (value == null) {
+        Boolean callSetterOnNull = column.getCallSetterOnNull();
+        if (callSetterOnNull == null) {
+          if (metaObject == null) {
+            metaObject = configuration.newMetaObject(rowValue);
+          }
+          callSetterOnNull = !metaObject.getSetterType(column.getProperty()).isPrimitive();
+        }
+        if (!callSetterOnNull) {
+          continue;
+        }
+      }
+      if (column.hasSetter()) {
+        column.setValue(rowValue, value);
+      } else {
+        if (metaObject == null) {
+          metaObject = configuration.newMetaObject(rowValue);
+        }
+        metaObject.setValue(column.getProperty(), value);
+      }
+    }
+    return foundValues;
+  }
+
   // MULTIPLE RESULT SETS
 
   private void linkToParents(ResultSet rs, ResultMapping parentMapping, Object rowValue) throws SQLException {
@@ -634,8 +806,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
           final ResultMap resultMap = configuration.getResultMap(constructorMapping.getNestedResultMapId());
           value = getRowValue(rsw, resultMap, getColumnPrefix(columnPrefix, constructorMapping));
         } else {
-          final TypeHandler<?> typeHandler = constructorMapping.getTypeHandler();
-          value = typeHandler.getResult(rsw.getResultSet(), prependPrefix(column, columnPrefix));
+          value = getColumnValue(rsw, constructorMapping.getTypeHandler(), column, columnPrefix);
         }
       } catch (ResultMapException | SQLException e) {
         throw new ExecutorException("Could not process result for mapping: " + constructorMapping, e);
@@ -668,7 +839,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       Class<?> parameterType = constructor.getParameterTypes()[i];
       String columnName = rsw.getColumnNames().get(i);
       TypeHandler<?> typeHandler = rsw.getTypeHandler(parameterType, columnName);
-      Object value = typeHandler.getResult(rsw.getResultSet(), columnName);
+      Object value = getColumnValue(rsw, typeHandler, columnName, null);
       constructorArgTypes.add(parameterType);
       constructorArgs.add(value);
       foundValues = value != null || foundValues;
@@ -713,7 +884,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       columnName = rsw.getColumnNames().get(0);
     }
     final TypeHandler<?> typeHandler = rsw.getTypeHandler(resultType, columnName);
-    return typeHandler.getResult(rsw.getResultSet(), columnName);
+    return getColumnValue(rsw, typeHandler, columnName, null);
   }
 
   //
@@ -852,15 +1023,16 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
   private void handleRowValuesForNestedResultMap(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler<?> resultHandler, RowBounds rowBounds, ResultMapping parentMapping) throws SQLException {
     final DefaultResultContext<Object> resultContext = new DefaultResultContext<>();
+    final boolean resultOrdered = isResultOrdered(parentMapping);
     ResultSet resultSet = rsw.getResultSet();
     skipRows(resultSet, rowBounds);
     Object rowValue = previousRowValue;
     while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && resultSet.next()) {
       final ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
-      final CacheKey rowKey = createRowKey(discriminatedResultMap, rsw, null);
+      final RowKey rowKey = createRowKey(discriminatedResultMap, rsw, null);
       Object partialObject = nestedResultObjects.get(rowKey);
       // issue #577 && #542
-      if (mappedStatement.isResultOrdered()) {
+      if (resultOrdered) {
         if (partialObject == null && rowValue != null) {
           nestedResultObjects.clear();
           storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
@@ -873,7 +1045,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         }
       }
     }
-    if (rowValue != null && mappedStatement.isResultOrdered() && shouldProcessMoreRows(resultContext, rowBounds)) {
+    if (rowValue != null && resultOrdered && shouldProcessMoreRows(resultContext, rowBounds)) {
       storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
       previousRowValue = null;
     } else if (rowValue != null) {
@@ -881,11 +1053,24 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
   }
 
+  /**
+   * Rows of the same root object are expected together when the statement is result ordered, or when the results are
+   * fetched through a cursor and {@link Configuration#isNestedResultStreaming() nested result streaming} is enabled:
+   * each root is then handled once complete and the nested objects kept to build it are released. Result handlers of
+   * the caller are left to {@link #checkResultHandler()}.
+   */
+  private boolean isResultOrdered(ResultMapping parentMapping) {
+    if (mappedStatement.isResultOrdered()) {
+      return true;
+    }
+    return configuration.isNestedResultStreaming() && parentMapping == null && cursorResults;
+  }
+
   //
   // GET VALUE FROM ROW FOR NESTED RESULT MAP
   //
 
-  private Object getRowValue(ResultSetWrapper rsw, ResultMap resultMap, CacheKey combinedKey, String columnPrefix, Object partialObject) throws SQLException {
+  private Object getRowValue(ResultSetWrapper rsw, ResultMap resultMap, RowKey combinedKey, String columnPrefix, Object partialObject) throws SQLException {
     final String resultMapId = resultMap.getId();
     Object rowValue = partialObject;
     if (rowValue != null) {
@@ -899,17 +1084,22 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       if (rowValue != null && !hasTypeHandlerForResultObject(rsw, resultMap.getType())) {
         final MetaObject metaObject = configuration.newMetaObject(rowValue);
         boolean foundValues = this.useConstructorMappings;
-        if (shouldApplyAutomaticMappings(resultMap, true)) {
-          foundValues = applyAutomaticMappings(rsw, resultMap, metaObject, columnPrefix) || foundValues;
+        final RowMapper rowMapper = getRowMapper(rsw, resultMap, rowValue, columnPrefix, true);
+        if (rowMapper != null) {
+          foundValues = applyRowMapper(rsw, rowMapper, rowValue, metaObject, lazyLoader, columnPrefix) || foundValues;
+        } else {
+          if (shouldApplyAutomaticMappings(resultMap, true)) {
+            foundValues = applyAutomaticMappings(rsw, resultMap, metaObject, columnPrefix) || foundValues;
+          }
+          foundValues = applyPropertyMappings(rsw, resultMap, metaObject, lazyLoader, columnPrefix) || foundValues;
         }
-        foundValues = applyPropertyMappings(rsw, resultMap, metaObject, lazyLoader, columnPrefix) || foundValues;
         putAncestor(rowValue, resultMapId);
         foundValues = applyNestedResultMappings(rsw, resultMap, metaObject, columnPrefix, combinedKey, true) || foundValues;
         ancestorObjects.remove(resultMapId);
         foundValues = lazyLoader.size() > 0 || foundValues;
         rowValue = foundValues || configuration.isReturnInstanceForEmptyRow() ? rowValue : null;
       }
-      if (combinedKey != CacheKey.NULL_CACHE_KEY) {
+      if (combinedKey != RowKey.NULL_ROW_KEY) {
         nestedResultObjects.put(combinedKey, rowValue);
       }
     }
@@ -924,7 +1114,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   // NESTED RESULT MAP (JOIN MAPPING)
   //
 
-  private boolean applyNestedResultMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String parentPrefix, CacheKey parentRowKey, boolean newObject) {
+  private boolean applyNestedResultMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String parentPrefix, RowKey parentRowKey, boolean newObject) {
     boolean foundValues = false;
     for (ResultMapping resultMapping : resultMap.getPropertyResultMappings()) {
       final String nestedResultMapId = resultMapping.getNestedResultMapId();
@@ -943,8 +1133,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
               continue;
             }
           }
-          final CacheKey rowKey = createRowKey(nestedResultMap, rsw, columnPrefix);
-          final CacheKey combinedKey = combineKeys(rowKey, parentRowKey);
+          final RowKey rowKey = createRowKey(nestedResultMap, rsw, columnPrefix);
+          final RowKey combinedKey = combineKeys(rowKey, parentRowKey);
           Object rowValue = nestedResultObjects.get(combinedKey);
           boolean knownValue = rowValue != null;
           instantiateCollectionPropertyIfAppropriate(resultMapping, metaObject); // mandatory
@@ -979,7 +1169,12 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     if (notNullColumns != null && !notNullColumns.isEmpty()) {
       ResultSet rs = rsw.getResultSet();
       for (String column : notNullColumns) {
-        rs.getObject(prependPrefix(column, columnPrefix));
+        final int columnIndex = rsw.getColumnIndex(column, columnPrefix);
+        if (columnIndex > 0) {
+          rs.getObject(columnIndex);
+        } else {
+          rs.getObject(prependPrefix(column, columnPrefix));
+        }
         if (!rs.wasNull()) {
           return true;
         }
@@ -1005,7 +1200,17 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   // UNIQUE RESULT KEY
   //
 
-  private CacheKey createRowKey(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
+  private RowKey createRowKey(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
+    final IdColumn idColumn = getIdColumn(resultMap, rsw, columnPrefix);
+    if (idColumn != IdColumn.NONE) {
+      final ResultSet rs = rsw.getResultSet();
+      final long id = idColumn.intValue ? rs.getInt(idColumn.columnIndex) : rs.getLong(idColumn.columnIndex);
+      if (id != 0 || !rs.wasNull()) {
+        return RowKey.forId(resultMap, idColumn.column, id);
+      } else if (!configuration.isReturnInstanceForEmptyRow()) {
+        return RowKey.NULL_ROW_KEY;
+      }
+    }
     final CacheKey cacheKey = new CacheKey();
     cacheKey.update(resultMap.getId());
     List<ResultMapping> resultMappings = getResultMappingsForRowKey(resultMap);
@@ -1019,23 +1224,44 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       createRowKeyForMappedProperties(resultMap, rsw, cacheKey, resultMappings, columnPrefix);
     }
     if (cacheKey.getUpdateCount() < 2) {
-      return CacheKey.NULL_CACHE_KEY;
+      return RowKey.NULL_ROW_KEY;
     }
-    return cacheKey;
+    return RowKey.forValues(cacheKey);
+  }
+
+  /**
+   * Returns the column of the result set that identifies the rows of the result map on its own, when the row key is
+   * a single integral id, so that the key is built from the primitive value.
+   */
+  private IdColumn getIdColumn(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
+    final Map<String, IdColumn> prefixedIdColumns = idColumns.computeIfAbsent(resultMap, k -> new HashMap<>());
+    IdColumn idColumn = prefixedIdColumns.get(columnPrefix);
+    if (idColumn == null) {
+      idColumn = IdColumn.NONE;
+      final List<ResultMapping> resultMappings = getResultMappingsForRowKey(resultMap);
+      if (resultMappings.size() == 1) {
+        final ResultMapping resultMapping = resultMappings.get(0);
+        final String column = prependPrefix(resultMapping.getColumn(), columnPrefix);
+        final Class<?> typeHandlerType = resultMapping.getTypeHandler() == null ? null : resultMapping.getTypeHandler().getClass();
+        if (resultMapping.getNestedResultMapId() == null && resultMapping.getNestedQueryId() == null && column != null
+            && (typeHandlerType == IntegerTypeHandler.class || typeHandlerType == LongTypeHandler.class)
+            && rsw.getMappedColumnNames(resultMap, columnPrefix).contains(column.toUpperCase(Locale.ENGLISH))) {
+          final int columnIndex = rsw.getColumnIndex(resultMapping.getColumn(), columnPrefix);
+          if (columnIndex > 0) {
+            idColumn = new IdColumn(column, columnIndex, typeHandlerType == IntegerTypeHandler.class);
+          }
+        }
+      }
+      prefixedIdColumns.put(columnPrefix, idColumn);
+    }
+    return idColumn;
   }
 
-  private CacheKey combineKeys(CacheKey rowKey, CacheKey parentRowKey) {
-    if (rowKey.getUpdateCount() > 1 && parentRowKey.getUpdateCount() > 1) {
-      CacheKey combinedKey;
-      try {
-        combinedKey = rowKey.clone();
-      } catch (CloneNotSupportedException e) {
-        throw new ExecutorException("Error cloning cache key.  Cause: " + e, e);
-      }
-      combinedKey.update(parentRowKey);
-      return combinedKey;
+  private RowKey combineKeys(RowKey rowKey, RowKey parentRowKey) {
+    if (rowKey != RowKey.NULL_ROW_KEY && parentRowKey != RowKey.NULL_ROW_KEY) {
+      return rowKey.withParent(parentRowKey);
     }
-    return CacheKey.NULL_CACHE_KEY;
+    return RowKey.NULL_ROW_KEY;
   }
 
   private List<ResultMapping> getResultMappingsForRowKey(ResultMap resultMap) {
@@ -1059,7 +1285,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
         // Issue #114
         if (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
-          final Object value = th.getResult(rsw.getResultSet(), column);
+          final Object value = getColumnValue(rsw, th, resultMapping.getColumn(), columnPrefix);
           if (value != null || configuration.isReturnInstanceForEmptyRow()) {
             cacheKey.update(column);
             cacheKey.update(value);
@@ -1083,7 +1309,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         }
       }
       if (metaType.findProperty(property, configuration.isMapUnderscoreToCamelCase()) != null) {
-        String value = rsw.getResultSet().getString(column);
+        String value = getString(rsw, column);
         if (value != null) {
           cacheKey.update(column);
           cacheKey.update(value);
@@ -1092,10 +1318,15 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
   }
 
+  private String getString(ResultSetWrapper rsw, String column) throws SQLException {
+    final int columnIndex = rsw.getColumnIndex(column, null);
+    return columnIndex > 0 ? rsw.getResultSet().getString(columnIndex) : rsw.getResultSet().getString(column);
+  }
+
   private void createRowKeyForMap(ResultSetWrapper rsw, CacheKey cacheKey) throws SQLException {
     List<String> columnNames = rsw.getColumnNames();
     for (String columnName : columnNames) {
-      final String value = rsw.getResultSet().getString(columnName);
+      final String value = getString(rsw, columnName);
       if (value != null) {
         cacheKey.update(columnName);
         cacheKey.update(value);
@@ -48,6 +48,7 @@ public class ResultSetWrapper {
   private final Map<String, Map<Class<?>, TypeHandler<?>>> typeHandlerMap = new HashMap<>();
   private final Map<String, List<String>> mappedColumnNamesMap = new HashMap<>();
   private final Map<String, List<String>> unMappedColumnNamesMap = new HashMap<>();
+  private final Map<String, Map<String, Integer>> columnIndexMap = new HashMap<>();
 
   public ResultSetWrapper(ResultSet rs, Configuration configuration) throws SQLException {
     super();
@@ -129,6 +130,40 @@ public class ResultSetWrapper {
     return handler;
   }
 
+  /**
+   * Gets the index of a column, resolving its label once per result set instead of on every read.
+   *
+   * @param columnName
+   *          the column label, without the prefix
+   * @param columnPrefix
+   *          the prefix of the column label, may be null
+   * @return the index of the column as {@link ResultSet#findColumn(String)} resolves it, or 0 if the result set has no
+   *         such column
+   * @since 3.5.2
+   */
+  public int getColumnIndex(String columnName, String columnPrefix) {
+    if (columnName == null) {
+      return 0;
+    }
+    Map<String, Integer> columnIndexes = columnIndexMap.get(columnPrefix);
+    if (columnIndexes == null) {
+      columnIndexes = new HashMap<>();
+      columnIndexMap.put(columnPrefix, columnIndexes);
+    }
+    Integer columnIndex = columnIndexes.get(columnName);
+    if (columnIndex == null) {
+      String columnLabel = columnPrefix == null || columnPrefix.isEmpty() ? columnName : columnPrefix + columnName;
+      try {
+        columnIndex = resultSet.findColumn(columnLabel);
+      } catch (SQLException e) {
+        // read by label, so that a missing column fails as usual
+        columnIndex = 0;
+      }
+      columnIndexes.put(columnName, columnIndex);
+    }
+    return columnIndex;
+  }
+
   private Class<?> resolveClass(String className) {
     try {
       // #699 className could be null
@@ -0,0 +1,100 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.util.Objects;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.mapping.ResultMap;
+
+/**
+ * Identity of a row of a nested result map, combined with the identities of its parent rows. Rows identified by a
+ * single integral id column keep the id as a primitive; the others keep the values of their columns in a
+ * {@link CacheKey}. Combining with the parent row only links to its key.
+ *
+ * @since 3.5.2
+ */
+final class RowKey {
+
+  static final RowKey NULL_ROW_KEY = new RowKey(null, null, 0, null, null);
+
+  private final ResultMap resultMap;
+  private final String column;
+  private final long id;
+  private final CacheKey values;
+  private final RowKey parent;
+  private final int hashCode;
+
+  private RowKey(ResultMap resultMap, String column, long id, CacheKey values, RowKey parent) {
+    this.resultMap = resultMap;
+    this.column = column;
+    this.id = id;
+    this.values = values;
+    this.parent = parent;
+    int hash = values == null ? 0 : values.hashCode();
+    if (resultMap != null) {
+      hash = 31 * (31 * resultMap.getId().hashCode() + column.hashCode()) + Long.hashCode(id);
+    }
+    this.hashCode = parent == null ? hash : 31 * hash + parent.hashCode;
+  }
+
+  /**
+   * Key of a row identified by the value of a single id column.
+   *
+   * @param column
+   *          the column with its prefix
+   */
+  static RowKey forId(ResultMap resultMap, String column, long id) {
+    return new RowKey(resultMap, column, id, null, null);
+  }
+
+  /**
+   * Key of a row identified by the values of its columns.
+   */
+  static RowKey forValues(CacheKey values) {
+    return new RowKey(null, null, 0, values, null);
+  }
+
+  RowKey withParent(RowKey parent) {
+    return new RowKey(resultMap, column, id, values, parent);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof RowKey)) {
+      return false;
+    }
+    RowKey other = (RowKey) o;
+    return hashCode == other.hashCode && id == other.id && resultMap == other.resultMap
+        && Objects.equals(column, other.column) && Objects.equals(values, other.values)
+        && Objects.equals(parent, other.parent);
+  }
+
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+
+  @Override
+  public String toString() {
+    String key = values != null ? values.toString() : resultMap.getId() + ":" + column + ":" + id;
+    return parent == null ? key : key + ":" + parent;
+  }
+
+}
@@ -0,0 +1,126 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * Automatic and property mappings of a result map compiled for one column layout and one result object class:
+ * columns are resolved to indexes, and type handlers and setters are bound, so that rows are mapped without
+ * looking up columns and properties by name. Immutable, shared by the executions with the same layout through
+ * {@link RowMapperCache}.
+ *
+ * @since 3.5.2
+ */
+final class RowMapper {
+
+  private final Class<?> type;
+  private final boolean nested;
+  // null 表示该类型只能通过 MetaObject 映射
+  private final Column[] columns;
+
+  RowMapper(Class<?> type, boolean nested, List<Column> columns) {
+    this.type = type;
+    this.nested = nested;
+    this.columns = columns == null ? null : columns.toArray(new Column[0]);
+  }
+
+  boolean matches(Object rowValue, boolean nested) {
+    return rowValue.getClass() == type && this.nested == nested;
+  }
+
+  boolean isCompiled() {
+    return columns != null;
+  }
+
+  Column[] getColumns() {
+    return columns;
+  }
+
+  /**
+   * A mapped column. Mappings that need more than a column read, such as nested queries, are kept as a
+   * {@link #getPropertyMapping() property mapping} and applied the usual way.
+   */
+  static final class Column {
+    private final ResultMapping propertyMapping;
+    private final String property;
+    private final String columnName;
+    private final int columnIndex;
+    private final TypeHandler<?> typeHandler;
+    private final Invoker setter;
+    private final Boolean callSetterOnNull;
+
+    /**
+     * @param columnIndex
+     *          index of the column, or 0 to read it by name
+     * @param setter
+     *          the setter invoker, or null to set the property through a MetaObject
+     * @param callSetterOnNull
+     *          whether nulls are set, or null to decide it through a MetaObject
+     */
+    Column(ResultMapping propertyMapping, String property, String columnName, int columnIndex, TypeHandler<?> typeHandler,
+        Invoker setter, Boolean callSetterOnNull) {
+      this.propertyMapping = propertyMapping;
+      this.property = property;
+      this.columnName = columnName;
+      this.columnIndex = columnIndex;
+      this.typeHandler = typeHandler;
+      this.setter = setter;
+      this.callSetterOnNull = callSetterOnNull;
+    }
+
+    ResultMapping getPropertyMapping() {
+      return propertyMapping;
+    }
+
+    String getProperty() {
+      return property;
+    }
+
+    Object getResult(ResultSet rs) throws SQLException {
+      return columnIndex > 0 ? typeHandler.getResult(rs, columnIndex) : typeHandler.getResult(rs, columnName);
+    }
+
+    boolean hasSetter() {
+      return setter != null;
+    }
+
+    Boolean getCallSetterOnNull() {
+      return callSetterOnNull;
+    }
+
+    void setValue(Object rowValue, Object value) {
+      try {
+        try {
+          setter.invoke(rowValue, new Object[] {value});
+        } catch (Throwable t) {
+          throw ExceptionUtil.unwrapThrowable(t);
+        }
+      } catch (Throwable t) {
+        throw new ReflectionException("Could not set property '" + property + "' of '" + rowValue.getClass() + "' with value '" + value + "' Cause: " + t.toString(), t);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,117 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.session.AutoMappingBehavior;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.JdbcType;
+
+/**
+ * Compiled row mappers of a configuration, keyed by result map, column prefix, result object class and column
+ * layout, and bounded to the most recently used ones.
+ *
+ * @see Configuration#setUseCompiledRowMappers(boolean)
+ * @since 3.5.2
+ */
+public class RowMapperCache {
+
+  private final Map<Key, RowMapper> mappers;
+
+  public RowMapperCache(final int maxSize) {
+    this.mappers = new LinkedHashMap<Key, RowMapper>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, RowMapper> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  public synchronized int size() {
+    return mappers.size();
+  }
+
+  public synchronized void clear() {
+    mappers.clear();
+  }
+
+  synchronized RowMapper get(Key key) {
+    return mappers.get(key);
+  }
+
+  synchronized void put(Key key, RowMapper mapper) {
+    mappers.put(key, mapper);
+  }
+
+  static final class Key {
+    private final ResultMap resultMap;
+    private final String columnPrefix;
+    private final Class<?> type;
+    private final boolean nested;
+    private final List<String> columnNames;
+    private final List<String> classNames;
+    private final List<JdbcType> jdbcTypes;
+    // 影响编译结果的配置项，运行时可能被修改
+    private final AutoMappingBehavior autoMappingBehavior;
+    private final boolean mapUnderscoreToCamelCase;
+    private final boolean callSettersOnNulls;
+    private final int hashCode;
+
+    Key(ResultMap resultMap, String columnPrefix, Class<?> type, boolean nested, ResultSetWrapper rsw, Configuration configuration) {
+      this.resultMap = resultMap;
+      this.columnPrefix = columnPrefix;
+      this.type = type;
+      this.nested = nested;
+      this.columnNames = rsw.getColumnNames();
+      this.classNames = rsw.getClassNames();
+      this.jdbcTypes = rsw.getJdbcTypes();
+      this.autoMappingBehavior = configuration.getAutoMappingBehavior();
+      this.mapUnderscoreToCamelCase = configuration.isMapUnderscoreToCamelCase();
+      this.callSettersOnNulls = configuration.isCallSettersOnNulls();
+      this.hashCode = Objects.hash(resultMap, columnPrefix, type, nested, columnNames, classNames, jdbcTypes,
+          autoMappingBehavior, mapUnderscoreToCamelCase, callSettersOnNulls);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return resultMap == other.resultMap && nested == other.nested && type == other.type
+          && Objects.equals(columnPrefix, other.columnPrefix) && columnNames.equals(other.columnNames)
+          && classNames.equals(other.classNames) && jdbcTypes.equals(other.jdbcTypes)
+          && autoMappingBehavior == other.autoMappingBehavior && mapUnderscoreToCamelCase == other.mapUnderscoreToCamelCase
+          && callSettersOnNulls == other.callSettersOnNulls;
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+}
@@ -0,0 +1,88 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.statement;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Statements kept open by the {@link org.apache.ibatis.executor.ReuseExecutor}, by SQL, closing the least recently
+ * used one when more than the max size are kept.
+ * <p>
+ * A cache is not thread safe: it belongs to a session or, see
+ * {@link org.apache.ibatis.datasource.pooled.PooledDataSource#getReuseStatementCache(java.sql.Connection, int)}, to a
+ * pooled connection which is only used by one session at a time.
+ *
+ * @since 3.5.2
+ */
+public class StatementCache {
+
+  private final Map<String, Statement> statements;
+
+  /**
+   * @param maxSize the number of statements kept open, or 0 for no bound
+   */
+  public StatementCache(final int maxSize) {
+    this.statements = new LinkedHashMap<String, Statement>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Statement> eldest) {
+        boolean evict = maxSize > 0 && size() > maxSize;
+        if (evict) {
+          closeStatement(eldest.getValue());
+        }
+        return evict;
+      }
+    };
+  }
+
+  public Statement get(String sql) {
+    return statements.get(sql);
+  }
+
+  public void put(String sql, Statement statement) {
+    Statement previous = statements.put(sql, statement);
+    if (previous != null && previous != statement) {
+      closeStatement(previous);
+    }
+  }
+
+  public int size() {
+    return statements.size();
+  }
+
+  /**
+   * Closes and removes all the statements.
+   */
+  public void clear() {
+    for (Statement statement : statements.values()) {
+      closeStatement(statement);
+    }
+    statements.clear();
+  }
+
+  private static void closeStatement(Statement statement) {
+    try {
+      statement.close();
+    } catch (SQLException e) {
+      // ignore
+    }
+  }
+
+}
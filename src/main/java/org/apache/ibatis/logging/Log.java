@@ -20,4 +20,12 @@ public interface Log {
 
   void warn(String s);
 
+  /**
+   * 带异常堆栈的警告，未实现该方法的日志实现只输出消息
+   * @since 3.5.2
+   */
+  default void warn(String s, Throwable e) {
+    warn(s);
+  }
+
 }
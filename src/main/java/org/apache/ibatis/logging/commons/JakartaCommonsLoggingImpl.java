@@ -50,4 +50,9 @@ public class JakartaCommonsLoggingImpl implements org.apache.ibatis.logging.Log
     log.warn(s);
   }
 
+  @Override
+  public void warn(String s, Throwable e) {
+    log.warn(s, e);
+  }
+
 }
@@ -66,4 +66,9 @@ public class Jdk14LoggingImpl implements Log {
     log.log(Level.WARNING, s);
   }
 
+  @Override
+  public void warn(String s, Throwable e) {
+    log.log(Level.WARNING, s, e);
+  }
+
 }
@@ -52,4 +52,9 @@ public class Log4jImpl implements Log {
     log.log(FQCN, Level.WARN, s, null);
   }
 
+  @Override
+  public void warn(String s, Throwable e) {
+    log.log(FQCN, Level.WARN, s, e);
+  }
+
 }
@@ -75,4 +75,9 @@ public class Log4j2AbstractLoggerImpl implements Log {
     log.logIfEnabled(FQCN, Level.WARN, MARKER, (Message) new SimpleMessage(s), null);
   }
 
+  @Override
+  public void warn(String s, Throwable e) {
+    log.logIfEnabled(FQCN, Level.WARN, MARKER, (Message) new SimpleMessage(s), e);
+  }
+
 }
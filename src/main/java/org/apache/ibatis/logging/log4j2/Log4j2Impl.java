@@ -72,4 +72,9 @@ public class Log4j2Impl implements Log {
     log.warn(s);
   }
 
+  @Override
+  public void warn(String s, Throwable e) {
+    log.warn(s, e);
+  }
+
 }
@@ -69,4 +69,9 @@ public class Log4j2LoggerImpl implements Log {
     log.warn(MARKER, s);
   }
 
+  @Override
+  public void warn(String s, Throwable e) {
+    log.warn(MARKER, s, e);
+  }
+
 }
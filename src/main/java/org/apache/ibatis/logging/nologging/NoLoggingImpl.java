@@ -61,4 +61,9 @@ public class NoLoggingImpl implements Log {
     // Do Nothing
   }
 
+  @Override
+  public void warn(String s, Throwable e) {
+    // Do Nothing
+  }
+
 }
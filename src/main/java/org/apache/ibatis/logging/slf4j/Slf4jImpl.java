@@ -82,4 +82,9 @@ public class Slf4jImpl implements Log {
     log.warn(s);
   }
 
+  @Override
+  public void warn(String s, Throwable e) {
+    log.warn(s, e);
+  }
+
 }
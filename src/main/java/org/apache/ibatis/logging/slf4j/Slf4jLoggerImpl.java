@@ -64,4 +64,9 @@ class Slf4jLoggerImpl implements Log {
     log.warn(s);
   }
 
+  @Override
+  public void warn(String s, Throwable e) {
+    log.warn(s, e);
+  }
+
 }
@@ -61,4 +61,10 @@ public class StdOutImpl implements Log {
   public void warn(String s) {
     System.out.println(s);
   }
+
+  @Override
+  public void warn(String s, Throwable e) {
+    System.out.println(s);
+    e.printStackTrace(System.out);
+  }
 }
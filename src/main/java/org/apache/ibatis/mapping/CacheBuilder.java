@@ -24,13 +24,24 @@ import java.util.Properties;
 import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.TableAwareCache;
+import org.apache.ibatis.cache.ThreadSafeCache;
 import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.decorators.BroadcastCache;
 import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.decorators.MetricsCache;
 import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.RefreshAheadCache;
 import org.apache.ibatis.cache.decorators.ScheduledCache;
 import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.decorators.TableIndexedCache;
 import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.impl.ConcurrentPerpetualCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.invalidation.InvalidationTransport;
+import org.apache.ibatis.cache.metrics.CacheMetricsRegistry;
+import org.apache.ibatis.cache.metrics.CacheStatistics;
+import org.apache.ibatis.cache.serializer.Serializer;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.SystemMetaObject;
 
@@ -44,6 +55,12 @@ public class CacheBuilder {
   private Integer size;
   private Long clearInterval;
   private boolean readWrite;
+  private Serializer serializer;
+  private InvalidationTransport invalidationTransport;
+  private boolean tableInvalidation;
+  private CacheMetricsRegistry metricsRegistry;
+  private CacheStatistics statistics;
+  private TableIndexedCache.EvictionTracker evictionTracker;
   private Properties properties;
   private boolean blocking;
 
@@ -79,6 +96,46 @@ public class CacheBuilder {
     return this;
   }
 
+  /**
+   * Sets the serializer of read/write caches, and of base caches having a {@code serializer} property.
+   *
+   * @since 3.5.2
+   */
+  public CacheBuilder serializer(Serializer serializer) {
+    this.serializer = serializer;
+    return this;
+  }
+
+  /**
+   * Sets the transport that broadcasts the clears of the cache to the other nodes, see {@link BroadcastCache}.
+   *
+   * @since 3.5.2
+   */
+  public CacheBuilder invalidationTransport(InvalidationTransport invalidationTransport) {
+    this.invalidationTransport = invalidationTransport;
+    return this;
+  }
+
+  /**
+   * Tracks the tables the entries were read from, see {@link TableIndexedCache}.
+   *
+   * @since 3.5.2
+   */
+  public CacheBuilder tableInvalidation(boolean tableInvalidation) {
+    this.tableInvalidation = tableInvalidation;
+    return this;
+  }
+
+  /**
+   * Records the statistics of the cache, see {@link MetricsCache}, and registers them in the given registry.
+   *
+   * @since 3.5.2
+   */
+  public CacheBuilder metricsRegistry(CacheMetricsRegistry metricsRegistry) {
+    this.metricsRegistry = metricsRegistry;
+    return this;
+  }
+
   public CacheBuilder blocking(boolean blocking) {
     this.blocking = blocking;
     return this;
@@ -92,16 +149,37 @@ public class CacheBuilder {
   public Cache build() {
     setDefaultImplementations();
     Cache cache = newBaseCacheInstance(implementation, id);
+    setSerializer(cache);
     setCacheProperties(cache);
+    statistics = metricsRegistry == null ? null : new CacheStatistics(id);
+    evictionTracker = null;
     // issue #352, do not apply decorators to custom caches
-    if (PerpetualCache.class.equals(cache.getClass())) {
+    if (PerpetualCache.class.equals(cache.getClass()) || ConcurrentPerpetualCache.class.equals(cache.getClass())) {
+      boolean threadSafe = cache instanceof ThreadSafeCache;
+      if (statistics != null) {
+        cache = new MetricsCache.EvictionCounter(cache, statistics);
+      }
+      if (tableInvalidation) {
+        evictionTracker = new TableIndexedCache.EvictionTracker(cache);
+        cache = evictionTracker;
+      }
       for (Class<? extends Cache> decorator : decorators) {
         cache = newCacheDecoratorInstance(decorator, cache);
         setCacheProperties(cache);
+        threadSafe = threadSafe && cache instanceof ThreadSafeCache;
       }
-      cache = setStandardDecorators(cache);
-    } else if (!LoggingCache.class.isAssignableFrom(cache.getClass())) {
-      cache = new LoggingCache(cache);
+      cache = setStandardDecorators(cache, threadSafe);
+    } else {
+      if (!LoggingCache.class.isAssignableFrom(cache.getClass())) {
+        cache = new LoggingCache(cache);
+      }
+      if (statistics != null) {
+        cache = new MetricsCache(cache, statistics);
+      }
+      cache = setInvalidationDecorators(cache);
+    }
+    if (statistics != null) {
+      metricsRegistry.register(statistics);
     }
     return cache;
   }
@@ -115,23 +193,37 @@ public class CacheBuilder {
     }
   }
 
-  private Cache setStandardDecorators(Cache cache) {
+  private Cache setStandardDecorators(Cache cache, boolean threadSafe) {
     try {
       MetaObject metaCache = SystemMetaObject.forObject(cache);
       if (size != null && metaCache.hasSetter("size")) {
         metaCache.setValue("size", size);
       }
-      if (clearInterval != null) {
+      if (isRefreshAhead()) {
+        cache = new RefreshAheadCache(cache);
+        if (clearInterval != null) {
+          ((RefreshAheadCache) cache).setTimeToLive(clearInterval);
+        }
+        setCacheProperties(cache);
+      } else if (clearInterval != null) {
         cache = new ScheduledCache(cache);
         ((ScheduledCache) cache).setClearInterval(clearInterval);
       }
       if (readWrite) {
-        cache = new SerializedCache(cache);
+        cache = serializer == null ? new SerializedCache(cache) : new SerializedCache(cache, serializer);
       }
       cache = new LoggingCache(cache);
-      cache = new SynchronizedCache(cache);
+      if (statistics != null) {
+        cache = new MetricsCache(cache, statistics);
+      }
+      if (!threadSafe) {
+        cache = new SynchronizedCache(cache);
+      }
+      // below BlockingCache, whose removeObject() only releases a lock
+      cache = setInvalidationDecorators(cache);
       if (blocking) {
-        cache = new BlockingCache(cache);
+        cache = cache instanceof TableAwareCache ? new BlockingCache.TableAware((TableAwareCache) cache) : new BlockingCache(cache);
+        setCacheProperties(cache);
       }
       return cache;
     } catch (Exception e) {
@@ -139,6 +231,30 @@ public class CacheBuilder {
     }
   }
 
+  private Cache setInvalidationDecorators(Cache cache) {
+    if (tableInvalidation) {
+      cache = new TableIndexedCache(cache, evictionTracker);
+      setCacheProperties(cache);
+    }
+    if (invalidationTransport != null) {
+      cache = new BroadcastCache(cache, invalidationTransport);
+    }
+    return cache;
+  }
+
+  private void setSerializer(Cache cache) {
+    if (serializer != null) {
+      MetaObject metaCache = SystemMetaObject.forObject(cache);
+      if (metaCache.hasSetter("serializer") && metaCache.getSetterType("serializer") == Serializer.class) {
+        metaCache.setValue("serializer", serializer);
+      }
+    }
+  }
+
+  private boolean isRefreshAhead() {
+    return properties != null && Boolean.parseBoolean(properties.getProperty("refreshAhead"));
+  }
+
   private void setCacheProperties(Cache cache) {
     if (properties != null) {
       MetaObject metaCache = SystemMetaObject.forObject(cache);
@@ -18,14 +18,20 @@ package org.apache.ibatis.mapping;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import org.apache.ibatis.builder.StaticSqlSource;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.invalidation.SqlTableParser;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.scripting.LanguageDriver;
+import org.apache.ibatis.scripting.defaults.RawSqlSource;
 import org.apache.ibatis.session.Configuration;
 
 /**
@@ -56,6 +62,14 @@ public final class MappedStatement {
   private Log statementLog;
   private LanguageDriver lang;
   private String[] resultSets;
+  private Set<String> cacheTables;
+  // 静态 SQL 中解析出的表，首次使用时解析，解析不出时为 null
+  private volatile Set<String> sqlTables;
+  private volatile boolean sqlTablesParsed;
+  // 已出现过的 SQL 文本，使缓存的 CacheKey 共享同一个 String 实例
+  private final ConcurrentMap<String, String> sqlIdentities = new ConcurrentHashMap<>();
+
+  private static final int MAX_SQL_IDENTITIES = 256;
 
   MappedStatement() {
     // constructor disabled
@@ -183,6 +197,17 @@ public final class MappedStatement {
       return this;
     }
 
+    /**
+     * Declares the tables the statement reads or writes, as a comma separated list, instead of finding them in
+     * its SQL when the caches are invalidated by table.
+     *
+     * @since 3.5.2
+     */
+    public Builder cacheTables(String cacheTables) {
+      mappedStatement.cacheTables = SqlTableParser.parseList(cacheTables);
+      return this;
+    }
+
     public MappedStatement build() {
       assert mappedStatement.configuration != null;
       assert mappedStatement.id != null;
@@ -293,6 +318,55 @@ public final class MappedStatement {
     return resultSets;
   }
 
+  /**
+   * Returns the canonical instance of a SQL text generated by this statement, so that the cache keys of the
+   * queries share it instead of each retaining its own copy, and compare it by identity. Only a bounded number
+   * of distinct texts is kept; others are returned as is.
+   *
+   * @since 3.5.2
+   */
+  public String internSql(String sql) {
+    String interned = sqlIdentities.get(sql);
+    if (interned != null) {
+      return interned;
+    }
+    if (sqlIdentities.size() >= MAX_SQL_IDENTITIES) {
+      return sql;
+    }
+    interned = sqlIdentities.putIfAbsent(sql, sql);
+    return interned == null ? sql : interned;
+  }
+
+  /**
+   * @return the declared tables of the statement, or null if none
+   * @since 3.5.2
+   */
+  public Set<String> getCacheTables() {
+    return cacheTables;
+  }
+
+  /**
+   * @return whether the SQL of the statement does not depend on its parameter
+   * @since 3.5.2
+   */
+  public boolean hasStaticSql() {
+    return sqlSource instanceof RawSqlSource || sqlSource instanceof StaticSqlSource;
+  }
+
+  /**
+   * Returns the tables found in the SQL of a statement with {@link #hasStaticSql() static SQL}, parsed on first call.
+   *
+   * @return the tables, or null if unknown
+   * @since 3.5.2
+   */
+  public Set<String> getSqlTables() {
+    if (!sqlTablesParsed) {
+      sqlTables = SqlTableParser.parse(sqlSource.getBoundSql(null).getSql());
+      sqlTablesParsed = true;
+    }
+    return sqlTables;
+  }
+
   public BoundSql getBoundSql(Object parameterObject) {
     BoundSql boundSql = sqlSource.getBoundSql(parameterObject);
     List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
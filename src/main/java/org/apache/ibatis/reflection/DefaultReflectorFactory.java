@@ -39,10 +39,19 @@ public class DefaultReflectorFactory implements ReflectorFactory {
   public Reflector findForClass(Class<?> type) {
     if (classCacheEnabled) {
       // synchronized (type) removed see issue #461
-      return reflectorMap.computeIfAbsent(type, Reflector::new);
+      return reflectorMap.computeIfAbsent(type, this::createReflector);
     } else {
-      return new Reflector(type);
+      return createReflector(type);
     }
   }
 
+  /**
+   * Creates the reflector of a class, called once per class when the class cache is enabled.
+   *
+   * @since 3.5.2
+   */
+  protected Reflector createReflector(Class<?> type) {
+    return new Reflector(type);
+  }
+
 }
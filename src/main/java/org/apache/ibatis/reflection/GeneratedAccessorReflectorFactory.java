@@ -0,0 +1,40 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import org.apache.ibatis.reflection.invoker.GeneratedMethodInvoker;
+
+/**
+ * Reflector factory whose reflectors call public getters and setters through generated classes instead of
+ * {@link java.lang.reflect.Method#invoke(Object, Object...)}, falling back to reflection for the others.
+ * Generation costs much more than reflection when a class is first seen, and calls only gain a few nanoseconds,
+ * mostly on setters, so it only pays off for classes mapped many times.
+ *
+ * <pre>
+ * &lt;reflectorFactory type="org.apache.ibatis.reflection.GeneratedAccessorReflectorFactory"/&gt;
+ * </pre>
+ *
+ * @see GeneratedMethodInvoker
+ * @since 3.5.2
+ */
+public class GeneratedAccessorReflectorFactory extends DefaultReflectorFactory {
+
+  @Override
+  protected Reflector createReflector(Class<?> type) {
+    return new Reflector(type, true);
+  }
+
+}
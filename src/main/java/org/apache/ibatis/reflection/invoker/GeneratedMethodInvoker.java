@@ -0,0 +1,170 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Invokes a getter or a setter through a class generated with {@link LambdaMetafactory}, which the JIT compiles to
+ * a direct call, instead of {@link Method#invoke(Object, Object...)}.
+ * <p>
+ * Only public methods of public classes visible from the class loader of MyBatis can be generated, see
+ * {@link #forMethod(Method)}. Calls with arguments the generated class cannot take, such as a null primitive, go
+ * through reflection so that they fail the same way.
+ *
+ * @since 3.5.2
+ */
+public class GeneratedMethodInvoker extends MethodInvoker {
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  private final Class<?> declaringClass;
+  private final Function<Object, Object> getter;
+  private final BiConsumer<Object, Object> setter;
+  // 参数类型的包装类型，用于在调用前校验实参
+  private final Class<?> argumentType;
+  private final boolean primitiveArgument;
+
+  private GeneratedMethodInvoker(Method method, Function<Object, Object> getter, BiConsumer<Object, Object> setter) {
+    super(method);
+    this.declaringClass = method.getDeclaringClass();
+    this.getter = getter;
+    this.setter = setter;
+    Class<?> parameterType = setter == null ? null : method.getParameterTypes()[0];
+    this.argumentType = parameterType == null ? null : box(parameterType);
+    this.primitiveArgument = parameterType != null && parameterType.isPrimitive();
+  }
+
+  /**
+   * Returns a generated invoker of the getter or setter, or a reflective one if it cannot be generated.
+   */
+  public static MethodInvoker forMethod(Method method) {
+    if (!canGenerate(method)) {
+      return new MethodInvoker(method);
+    }
+    try {
+      MethodHandle handle = LOOKUP.unreflect(method);
+      Class<?> declaringClass = method.getDeclaringClass();
+      if (method.getParameterCount() == 0) {
+        CallSite site = LambdaMetafactory.metafactory(LOOKUP, "apply", MethodType.methodType(Function.class),
+            MethodType.methodType(Object.class, Object.class), handle,
+            MethodType.methodType(box(method.getReturnType()), declaringClass));
+        @SuppressWarnings("unchecked")
+        Function<Object, Object> getter = (Function<Object, Object>) site.getTarget().invokeWithArguments();
+        return new GeneratedMethodInvoker(method, getter, null);
+      }
+      CallSite site = LambdaMetafactory.metafactory(LOOKUP, "accept", MethodType.methodType(BiConsumer.class),
+          MethodType.methodType(void.class, Object.class, Object.class), handle,
+          MethodType.methodType(void.class, declaringClass, box(method.getParameterTypes()[0])));
+      @SuppressWarnings("unchecked")
+      BiConsumer<Object, Object> setter = (BiConsumer<Object, Object>) site.getTarget().invokeWithArguments();
+      return new GeneratedMethodInvoker(method, null, setter);
+    } catch (Throwable t) {
+      return new MethodInvoker(method);
+    }
+  }
+
+  @Override
+  public Object invoke(Object target, Object[] args) throws IllegalAccessException, InvocationTargetException {
+    if (!declaringClass.isInstance(target)) {
+      return super.invoke(target, args);
+    }
+    if (getter != null) {
+      if (args != null && args.length != 0) {
+        return super.invoke(target, args);
+      }
+      try {
+        return getter.apply(target);
+      } catch (Throwable t) {
+        throw new InvocationTargetException(t);
+      }
+    }
+    if (args == null || args.length != 1
+        || (args[0] == null ? primitiveArgument : !argumentType.isInstance(args[0]))) {
+      return super.invoke(target, args);
+    }
+    try {
+      setter.accept(target, args[0]);
+      return null;
+    } catch (Throwable t) {
+      throw new InvocationTargetException(t);
+    }
+  }
+
+  private static boolean canGenerate(Method method) {
+    int modifiers = method.getModifiers();
+    if (!Modifier.isPublic(modifiers) || Modifier.isStatic(modifiers) || method.getParameterCount() > 1) {
+      return false;
+    }
+    Class<?> valueType = method.getParameterCount() == 0 ? method.getReturnType() : method.getParameterTypes()[0];
+    return isAccessible(method.getDeclaringClass()) && isAccessible(valueType);
+  }
+
+  /**
+   * The generated class lives in this package and resolves the types through the class loader of MyBatis.
+   */
+  private static boolean isAccessible(Class<?> type) {
+    while (type.isArray()) {
+      type = type.getComponentType();
+    }
+    if (type.isPrimitive()) {
+      return true;
+    }
+    for (Class<?> c = type; c != null; c = c.getEnclosingClass()) {
+      if (!Modifier.isPublic(c.getModifiers())) {
+        return false;
+      }
+    }
+    try {
+      return Class.forName(type.getName(), false, GeneratedMethodInvoker.class.getClassLoader()) == type;
+    } catch (ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+
+  private static Class<?> box(Class<?> type) {
+    if (!type.isPrimitive()) {
+      return type;
+    } else if (type == int.class) {
+      return Integer.class;
+    } else if (type == long.class) {
+      return Long.class;
+    } else if (type == boolean.class) {
+      return Boolean.class;
+    } else if (type == double.class) {
+      return Double.class;
+    } else if (type == float.class) {
+      return Float.class;
+    } else if (type == short.class) {
+      return Short.class;
+    } else if (type == byte.class) {
+      return Byte.class;
+    } else if (type == char.class) {
+      return Character.class;
+    }
+    return Void.class;
+  }
+
+}
@@ -0,0 +1,28 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+/**
+ * What a statement flushing the second level cache evicts.
+ * <p>
+ * {@code NAMESPACE} clears the whole cache of the namespace. {@code TABLE} only evicts the entries of queries
+ * reading a table the statement writes, see {@link org.apache.ibatis.cache.decorators.TableIndexedCache}.
+ *
+ * @since 3.5.2
+ */
+public enum CacheInvalidationScope {
+  NAMESPACE, TABLE
+}
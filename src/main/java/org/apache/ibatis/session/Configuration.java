@@ -22,8 +22,19 @@ import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.decorators.FifoCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.SoftCache;
+import org.apache.ibatis.cache.decorators.TinyLfuCache;
 import org.apache.ibatis.cache.decorators.WeakCache;
+import org.apache.ibatis.cache.decorators.WeightedCache;
+import org.apache.ibatis.cache.impl.ConcurrentPerpetualCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.invalidation.InvalidationTransport;
+import org.apache.ibatis.cache.invalidation.LoopbackTransport;
+import org.apache.ibatis.cache.invalidation.MulticastTransport;
+import org.apache.ibatis.cache.metrics.CacheMetricsRegistry;
+import org.apache.ibatis.cache.serializer.CompactSerializer;
+import org.apache.ibatis.cache.serializer.JdkSerializer;
+import org.apache.ibatis.cache.serializer.Serializer;
 import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
 import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
@@ -39,6 +50,7 @@ import org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.executor.resultset.RowMapperCache;
 import org.apache.ibatis.executor.statement.RoutingStatementHandler;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.io.VFS;
@@ -97,6 +109,8 @@ public class Configuration {
   protected boolean multipleResultSetsEnabled = true;
   protected boolean useGeneratedKeys;
   protected boolean useColumnLabel = true;
+  protected boolean useCompiledRowMappers;
+  protected boolean nestedResultStreaming;
   protected boolean cacheEnabled = true;
   protected boolean callSettersOnNulls;
   protected boolean useActualParamName = true;
@@ -109,10 +123,17 @@ public class Configuration {
   protected Class<? extends Log> logImpl;
   protected Class<? extends VFS> vfsImpl;
   protected LocalCacheScope localCacheScope = LocalCacheScope.SESSION;
+  protected int localCacheSize;
+  protected long localCacheMaxBytes;
+  protected CacheInvalidationScope cacheInvalidationScope = CacheInvalidationScope.NAMESPACE;
   protected JdbcType jdbcTypeForNull = JdbcType.OTHER;
   protected Set<String> lazyLoadTriggerMethods = new HashSet<>(Arrays.asList("equals", "clone", "hashCode", "toString"));
   protected Integer defaultStatementTimeout;
   protected Integer defaultFetchSize;
+  protected int maxBatchSize;
+  protected boolean batchInterleaving;
+  protected int reuseStatementCacheSize;
+  protected ReuseStatementScope reuseStatementScope = ReuseStatementScope.SESSION;
   protected ExecutorType defaultExecutorType = ExecutorType.SIMPLE;
   protected AutoMappingBehavior autoMappingBehavior = AutoMappingBehavior.PARTIAL;
   protected AutoMappingUnknownColumnBehavior autoMappingUnknownColumnBehavior = AutoMappingUnknownColumnBehavior.NONE;
@@ -124,6 +145,10 @@ public class Configuration {
 
   protected boolean lazyLoadingEnabled = false;
   protected ProxyFactory proxyFactory = new JavassistProxyFactory(); // #224 Using internal Javassist instead of OGNL
+  protected Serializer cacheSerializer = new JdkSerializer();
+  protected InvalidationTransport cacheInvalidationTransport;
+  protected boolean cacheMetricsEnabled;
+  protected final CacheMetricsRegistry cacheMetricsRegistry = new CacheMetricsRegistry();
 
   protected String databaseId;
   /**
@@ -145,6 +170,7 @@ public class Configuration {
   protected final Map<String, ResultMap> resultMaps = new StrictMap<>("Result Maps collection");
   protected final Map<String, ParameterMap> parameterMaps = new StrictMap<>("Parameter Maps collection");
   protected final Map<String, KeyGenerator> keyGenerators = new StrictMap<>("Key Generators collection");
+  protected final RowMapperCache rowMapperCache = new RowMapperCache(1024);
 
   protected final Set<String> loadedResources = new HashSet<>();
   protected final Map<String, XNode> sqlFragments = new StrictMap<>("XML fragments parsed from previous mappers");
@@ -178,8 +204,12 @@ public class Configuration {
     typeAliasRegistry.registerAlias("UNPOOLED", UnpooledDataSourceFactory.class);
 
     typeAliasRegistry.registerAlias("PERPETUAL", PerpetualCache.class);
+    typeAliasRegistry.registerAlias("CONCURRENT", ConcurrentPerpetualCache.class);
+    typeAliasRegistry.registerAlias("OFFHEAP", OffHeapCache.class);
     typeAliasRegistry.registerAlias("FIFO", FifoCache.class);
     typeAliasRegistry.registerAlias("LRU", LruCache.class);
+    typeAliasRegistry.registerAlias("TINYLFU", TinyLfuCache.class);
+    typeAliasRegistry.registerAlias("WEIGHTED", WeightedCache.class);
     typeAliasRegistry.registerAlias("SOFT", SoftCache.class);
     typeAliasRegistry.registerAlias("WEAK", WeakCache.class);
 
@@ -199,6 +229,12 @@ public class Configuration {
     typeAliasRegistry.registerAlias("CGLIB", CglibProxyFactory.class);
     typeAliasRegistry.registerAlias("JAVASSIST", JavassistProxyFactory.class);
 
+    typeAliasRegistry.registerAlias("JDK_SERIALIZER", JdkSerializer.class);
+    typeAliasRegistry.registerAlias("COMPACT_SERIALIZER", CompactSerializer.class);
+
+    typeAliasRegistry.registerAlias("LOOPBACK_TRANSPORT", LoopbackTransport.class);
+    typeAliasRegistry.registerAlias("MULTICAST_TRANSPORT", MulticastTransport.class);
+
     languageRegistry.setDefaultDriverClass(XMLLanguageDriver.class);
     languageRegistry.register(RawLanguageDriver.class);
   }
@@ -354,6 +390,81 @@ public class Configuration {
     this.proxyFactory = proxyFactory;
   }
 
+  /**
+   * @since 3.5.2
+   */
+  public Serializer getCacheSerializer() {
+    return cacheSerializer;
+  }
+
+  /**
+   * Sets the serializer used to copy values of read/write caches.
+   *
+   * @since 3.5.2
+   */
+  public void setCacheSerializer(Serializer cacheSerializer) {
+    if (cacheSerializer == null) {
+      cacheSerializer = new JdkSerializer();
+    }
+    this.cacheSerializer = cacheSerializer;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public InvalidationTransport getCacheInvalidationTransport() {
+    return cacheInvalidationTransport;
+  }
+
+  /**
+   * Sets the transport that broadcasts the clears of the second level caches to the other nodes of a cluster.
+   * None by default.
+   *
+   * @since 3.5.2
+   */
+  public void setCacheInvalidationTransport(InvalidationTransport cacheInvalidationTransport) {
+    this.cacheInvalidationTransport = cacheInvalidationTransport;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public boolean isCacheMetricsEnabled() {
+    return cacheMetricsEnabled;
+  }
+
+  /**
+   * Records the statistics of the second level caches built afterwards in the {@link #getCacheMetricsRegistry()}.
+   *
+   * @since 3.5.2
+   */
+  public void setCacheMetricsEnabled(boolean cacheMetricsEnabled) {
+    this.cacheMetricsEnabled = cacheMetricsEnabled;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public CacheMetricsRegistry getCacheMetricsRegistry() {
+    return cacheMetricsRegistry;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public String getCacheMetricsJmxDomain() {
+    return cacheMetricsRegistry.getJmxDomain();
+  }
+
+  /**
+   * Sets the JMX domain the cache statistics are registered in, none by default.
+   *
+   * @since 3.5.2
+   */
+  public void setCacheMetricsJmxDomain(String cacheMetricsJmxDomain) {
+    cacheMetricsRegistry.setJmxDomain(cacheMetricsJmxDomain);
+  }
+
   public boolean isAggressiveLazyLoading() {
     return aggressiveLazyLoading;
   }
@@ -424,6 +535,77 @@ public class Configuration {
     this.defaultFetchSize = defaultFetchSize;
   }
 
+  /**
+   * @since 3.5.2
+   */
+  public int getMaxBatchSize() {
+    return maxBatchSize;
+  }
+
+  /**
+   * Sets the number of statements a batch of the {@link ExecutorType#BATCH} executor holds before the batches built
+   * so far are executed, without waiting for the statements to be flushed. 0, the default, means no limit.
+   *
+   * @since 3.5.2
+   */
+  public void setMaxBatchSize(int maxBatchSize) {
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public boolean isBatchInterleaving() {
+    return batchInterleaving;
+  }
+
+  /**
+   * Keeps one batch per distinct insert statement in the {@link ExecutorType#BATCH} executor, instead of starting a
+   * new batch whenever the statement changes. Batches are executed in the order of their first statement, so
+   * interleaved inserts into parent and child tables still insert the parents first, but an insert that depends on
+   * a later batch of another insert must not be interleaved. Updates, deletes and other statements are never moved:
+   * they start a new group of batches, so the statements before them still execute before them.
+   *
+   * @since 3.5.2
+   */
+  public void setBatchInterleaving(boolean batchInterleaving) {
+    this.batchInterleaving = batchInterleaving;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public int getReuseStatementCacheSize() {
+    return reuseStatementCacheSize;
+  }
+
+  /**
+   * Sets the number of statements the {@link ExecutorType#REUSE} executor keeps open, closing the least recently
+   * used ones. 0, the default, means no bound.
+   *
+   * @since 3.5.2
+   */
+  public void setReuseStatementCacheSize(int reuseStatementCacheSize) {
+    this.reuseStatementCacheSize = reuseStatementCacheSize;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public ReuseStatementScope getReuseStatementScope() {
+    return reuseStatementScope;
+  }
+
+  /**
+   * Sets how long the {@link ExecutorType#REUSE} executor keeps its statements, {@link ReuseStatementScope#SESSION}
+   * by default.
+   *
+   * @since 3.5.2
+   */
+  public void setReuseStatementScope(ReuseStatementScope reuseStatementScope) {
+    this.reuseStatementScope = reuseStatementScope;
+  }
+
   public boolean isUseColumnLabel() {
     return useColumnLabel;
   }
@@ -432,6 +614,51 @@ public class Configuration {
     this.useColumnLabel = useColumnLabel;
   }
 
+  /**
+   * @since 3.5.2
+   */
+  public boolean isUseCompiledRowMappers() {
+    return useCompiledRowMappers;
+  }
+
+  /**
+   * Maps the automatic and property mappings of a result map through a row mapper compiled on the first row, with
+   * the column indexes, type handlers and setters bound, instead of resolving them by name on every row. Row mappers
+   * are cached per column layout, see {@link #getRowMapperCache()}, and reused by the next executions.
+   *
+   * @since 3.5.2
+   */
+  public void setUseCompiledRowMappers(boolean useCompiledRowMappers) {
+    this.useCompiledRowMappers = useCompiledRowMappers;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public boolean isNestedResultStreaming() {
+    return nestedResultStreaming;
+  }
+
+  /**
+   * Streams the results of nested result maps read through a {@link org.apache.ibatis.cursor.Cursor} as if the
+   * statements were <code>resultOrdered</code>: each root object is fetched once the rows of the next one start, and
+   * the nested objects kept to build it are released, so memory is bounded by the largest root object instead of the
+   * whole result. The rows of each root object must be returned together. A {@link ResultHandler} still requires
+   * <code>resultOrdered="true"</code> on the statement, see {@link #setSafeResultHandlerEnabled(boolean)}.
+   *
+   * @since 3.5.2
+   */
+  public void setNestedResultStreaming(boolean nestedResultStreaming) {
+    this.nestedResultStreaming = nestedResultStreaming;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public RowMapperCache getRowMapperCache() {
+    return rowMapperCache;
+  }
+
   public LocalCacheScope getLocalCacheScope() {
     return localCacheScope;
   }
@@ -440,6 +667,56 @@ public class Configuration {
     this.localCacheScope = localCacheScope;
   }
 
+  /**
+   * @since 3.5.2
+   */
+  public int getLocalCacheSize() {
+    return localCacheSize;
+  }
+
+  /**
+   * Sets the number of query results the local cache of a session keeps between top level queries,
+   * evicting the least recently used ones. 0, the default, means no bound.
+   *
+   * @since 3.5.2
+   */
+  public void setLocalCacheSize(int localCacheSize) {
+    this.localCacheSize = localCacheSize;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public long getLocalCacheMaxBytes() {
+    return localCacheMaxBytes;
+  }
+
+  /**
+   * Sets the estimated bytes of query results the local cache of a session keeps between top level queries,
+   * evicting the least recently used ones. 0, the default, means no bound.
+   *
+   * @since 3.5.2
+   */
+  public void setLocalCacheMaxBytes(long localCacheMaxBytes) {
+    this.localCacheMaxBytes = localCacheMaxBytes;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public CacheInvalidationScope getCacheInvalidationScope() {
+    return cacheInvalidationScope;
+  }
+
+  /**
+   * Sets what a statement flushing the second level cache evicts; only applies to the caches built afterwards.
+   *
+   * @since 3.5.2
+   */
+  public void setCacheInvalidationScope(CacheInvalidationScope cacheInvalidationScope) {
+    this.cacheInvalidationScope = cacheInvalidationScope;
+  }
+
   public JdbcType getJdbcTypeForNull() {
     return jdbcTypeForNull;
   }
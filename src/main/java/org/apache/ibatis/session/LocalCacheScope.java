@@ -19,5 +19,12 @@ package org.apache.ibatis.session;
  * @author Eduardo Macarron
  */
 public enum LocalCacheScope {
-  SESSION,STATEMENT
+  SESSION,STATEMENT,
+  /**
+   * Keeps only what resolving circular references needs: the markers of the queries in progress and the results
+   * awaited by deferred loads. Repeated nested queries are run again.
+   *
+   * @since 3.5.2
+   */
+  PLACEHOLDER
 }
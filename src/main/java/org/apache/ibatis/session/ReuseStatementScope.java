@@ -0,0 +1,34 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+/**
+ * Lifetime of the statements kept open by the {@link ExecutorType#REUSE} executor.
+ *
+ * @since 3.5.2
+ */
+public enum ReuseStatementScope {
+  /**
+   * The statements are closed when the session commits, rolls back or closes.
+   */
+  SESSION,
+  /**
+   * The statements stay open with the physical connection, so the next sessions borrowing it from a pool reuse them.
+   * They are closed when the {@link org.apache.ibatis.datasource.pooled.PooledDataSource} closes the connection.
+   * Connections from other data sources keep the statements for the session only.
+   */
+  CONNECTION
+}
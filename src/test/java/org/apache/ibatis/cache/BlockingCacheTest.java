@@ -0,0 +1,112 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.impl.ConcurrentPerpetualCache;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class BlockingCacheTest {
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  @AfterEach
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void shouldLoadOnceForConcurrentMisses() throws Exception {
+    BlockingCache cache = coalescingCache(0);
+    AtomicInteger loads = new AtomicInteger();
+    List<Future<Object>> results = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      results.add(executor.submit(() -> {
+        Object value = cache.getObject("key");
+        if (value == null) {
+          loads.incrementAndGet();
+          Thread.sleep(100);
+          value = "value";
+          cache.putObject("key", value);
+        }
+        return value;
+      }));
+    }
+    for (Future<Object> result : results) {
+      assertEquals("value", result.get(5, TimeUnit.SECONDS));
+    }
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  void shouldNotBlockOnceTheLoadIsOver() throws Exception {
+    BlockingCache cache = coalescingCache(100);
+    assertNull(cache.getObject("key"));
+    cache.removeObject("key");
+    assertNull(executor.submit(() -> cache.getObject("key")).get(1, TimeUnit.SECONDS));
+    cache.putObject("other", "value");
+    assertEquals("value", executor.submit(() -> cache.getObject("other")).get(1, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void shouldLetWaiterTakeOverReleasedLoad() throws Exception {
+    BlockingCache cache = coalescingCache(0);
+    assertNull(cache.getObject("key"));
+    Future<Object> waiter = executor.submit(() -> {
+      Object value = cache.getObject("key");
+      cache.putObject("key", "loaded by waiter");
+      return value;
+    });
+    Thread.sleep(50);
+    assertFalse(waiter.isDone());
+    cache.removeObject("key");
+    assertNull(waiter.get(1, TimeUnit.SECONDS));
+    assertEquals("loaded by waiter", cache.getObject("key"));
+  }
+
+  @Test
+  void shouldTimeOutWhileWaitingForLoad() throws Exception {
+    BlockingCache cache = coalescingCache(50);
+    assertNull(cache.getObject("key"));
+    Future<Object> waiter = executor.submit(() -> cache.getObject("key"));
+    try {
+      waiter.get(1, TimeUnit.SECONDS);
+      fail("waiter should have timed out");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof CacheException);
+    }
+    cache.removeObject("key");
+  }
+
+  private static BlockingCache coalescingCache(long timeout) {
+    BlockingCache cache = new BlockingCache(new ConcurrentPerpetualCache("default"));
+    cache.setCoalescing(true);
+    cache.setTimeout(timeout);
+    return cache;
+  }
+
+}
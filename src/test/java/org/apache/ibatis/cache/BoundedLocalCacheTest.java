@@ -0,0 +1,89 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.cache.impl.BoundedLocalCache;
+import org.apache.ibatis.executor.ExecutionPlaceholder;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+class BoundedLocalCacheTest {
+
+  @Test
+  void shouldEvictOnlyWhenTrimmed() {
+    BoundedLocalCache cache = new BoundedLocalCache("local", 2, 0);
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(5, cache.getSize());
+    cache.trim();
+    assertEquals(2, cache.getSize());
+    assertNull(cache.getObject(2));
+    assertEquals(3, cache.getObject(3));
+    assertEquals(4, cache.getObject(4));
+  }
+
+  @Test
+  void shouldEvictLeastRecentlyUsedEntries() {
+    List<Object> evicted = new ArrayList<>();
+    BoundedLocalCache cache = new BoundedLocalCache("local", 2, 0);
+    cache.setEvictionListener(evicted::add);
+    cache.putObject("a", "a");
+    cache.putObject("b", "b");
+    cache.getObject("a");
+    cache.putObject("c", "c");
+    cache.trim();
+    assertEquals("a", cache.getObject("a"));
+    assertNull(cache.getObject("b"));
+    assertEquals("c", cache.getObject("c"));
+    assertEquals(1, evicted.size());
+    assertEquals("b", evicted.get(0));
+  }
+
+  @Test
+  void shouldBoundEstimatedBytes() {
+    BoundedLocalCache cache = new BoundedLocalCache("local", 0, 4096);
+    cache.putObject("placeholder", ExecutionPlaceholder.EXECUTION_PLACEHOLDER);
+    assertEquals(0, cache.getTotalWeight());
+    for (int i = 0; i < 10; i++) {
+      cache.putObject(i, new byte[1024]);
+    }
+    long total = cache.getTotalWeight();
+    assertTrue(total > 10 * 1024);
+    cache.trim();
+    assertTrue(cache.getTotalWeight() <= 4096);
+    assertTrue(cache.getSize() < 10);
+    assertNotNull(cache.getObject(9));
+    cache.removeObject(9);
+    cache.clear();
+    assertEquals(0, cache.getTotalWeight());
+  }
+
+  @Test
+  void shouldTrackWeightOfReplacedEntries() {
+    BoundedLocalCache cache = new BoundedLocalCache("local", 0, 1024 * 1024);
+    cache.putObject("key", new byte[1024]);
+    long small = cache.getTotalWeight();
+    cache.putObject("key", new byte[8192]);
+    assertTrue(cache.getTotalWeight() > small);
+    cache.removeObject("key");
+    assertEquals(0, cache.getTotalWeight());
+  }
+
+}
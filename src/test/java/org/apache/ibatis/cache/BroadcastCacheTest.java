@@ -0,0 +1,183 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.decorators.BroadcastCache;
+import org.apache.ibatis.cache.decorators.TableIndexedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.invalidation.InvalidationEvent;
+import org.apache.ibatis.cache.invalidation.InvalidationTransport;
+import org.apache.ibatis.cache.invalidation.LoopbackTransport;
+import org.apache.ibatis.cache.invalidation.MulticastTransport;
+import org.apache.ibatis.mapping.CacheBuilder;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+class BroadcastCacheTest {
+
+  @Test
+  void shouldClearPeerCachesWithSameId() {
+    LoopbackTransport node1 = new LoopbackTransport("test-peers");
+    LoopbackTransport node2 = new LoopbackTransport("test-peers");
+    try {
+      Cache cache1 = new BroadcastCache(new PerpetualCache("blog"), node1);
+      Cache cache2 = new BroadcastCache(new PerpetualCache("blog"), node2);
+      Cache other2 = new BroadcastCache(new PerpetualCache("author"), node2);
+      cache1.putObject("key", "value");
+      cache2.putObject("key", "value");
+      other2.putObject("key", "value");
+
+      cache1.clear();
+
+      assertNull(cache1.getObject("key"));
+      assertNull(cache2.getObject("key"));
+      assertEquals("value", other2.getObject("key"));
+    } finally {
+      node1.close();
+      node2.close();
+    }
+  }
+
+  @Test
+  void shouldBroadcastTableInvalidations() {
+    LoopbackTransport node1 = new LoopbackTransport("test-tables");
+    LoopbackTransport node2 = new LoopbackTransport("test-tables");
+    try {
+      TableAwareCache cache1 = new BroadcastCache(new TableIndexedCache(new PerpetualCache("blog")), node1);
+      TableAwareCache cache2 = new BroadcastCache(new TableIndexedCache(new PerpetualCache("blog")), node2);
+      cache2.putObject("blog", "value", Collections.singleton("blog"));
+      cache2.putObject("author", "value", Collections.singleton("author"));
+
+      cache1.invalidate(Collections.singleton("author"));
+
+      assertEquals("value", cache2.getObject("blog"));
+      assertNull(cache2.getObject("author"));
+    } finally {
+      node1.close();
+      node2.close();
+    }
+  }
+
+  @Test
+  void shouldInvalidateTablesOfBlockingPeerCaches() {
+    LoopbackTransport node1 = new LoopbackTransport("test-blocking");
+    LoopbackTransport node2 = new LoopbackTransport("test-blocking");
+    try {
+      TableAwareCache cache1 = (TableAwareCache) new CacheBuilder("blog").blocking(true).tableInvalidation(true)
+          .invalidationTransport(node1).build();
+      TableAwareCache cache2 = (TableAwareCache) new CacheBuilder("blog").blocking(true).tableInvalidation(true)
+          .invalidationTransport(node2).build();
+      assertNull(cache2.getObject("blog"));
+      cache2.putObject("blog", "value", Collections.singleton("blog"));
+      assertNull(cache2.getObject("author"));
+      cache2.putObject("author", "value", Collections.singleton("author"));
+
+      cache1.invalidate(Collections.singleton("author"));
+
+      assertEquals("value", cache2.getObject("blog"));
+      assertNull(cache2.getObject("author"));
+      cache2.removeObject("author");
+    } finally {
+      node1.close();
+      node2.close();
+    }
+  }
+
+  @Test
+  void shouldNotBroadcastRemovals() {
+    LoopbackTransport node1 = new LoopbackTransport("test-removals");
+    LoopbackTransport node2 = new LoopbackTransport("test-removals");
+    try {
+      Cache cache1 = new BroadcastCache(new PerpetualCache("blog"), node1);
+      Cache cache2 = new BroadcastCache(new PerpetualCache("blog"), node2);
+      cache2.putObject("key", "value");
+      cache1.removeObject("key");
+      assertEquals("value", cache2.getObject("key"));
+    } finally {
+      node1.close();
+      node2.close();
+    }
+  }
+
+  @Test
+  void shouldClearLocallyWhenBroadcastFails() {
+    InvalidationTransport transport = new LoopbackTransport("test-failure") {
+      @Override
+      public void publish(InvalidationEvent event) {
+        throw new CacheException("unreachable");
+      }
+    };
+    Cache cache = new BroadcastCache(new PerpetualCache("blog"), transport);
+    cache.putObject("key", "value");
+    cache.clear();
+    assertNull(cache.getObject("key"));
+    transport.close();
+  }
+
+  @Test
+  void shouldBeAppliedByCacheBuilder() {
+    LoopbackTransport transport = new LoopbackTransport("test-builder");
+    try {
+      Cache cache = new CacheBuilder("blog").invalidationTransport(transport).build();
+      assertTrue(cache instanceof BroadcastCache);
+      assertSame(transport, ((BroadcastCache) cache).getTransport());
+    } finally {
+      transport.close();
+    }
+  }
+
+  @Test
+  void shouldDeliverEventsOverMulticast() throws Exception {
+    int port = ThreadLocalRandom.current().nextInt(40000, 50000);
+    MulticastTransport node1 = multicastTransport(port);
+    MulticastTransport node2 = multicastTransport(port);
+    try {
+      BlockingQueue<InvalidationEvent> received1 = new LinkedBlockingQueue<>();
+      BlockingQueue<InvalidationEvent> received2 = new LinkedBlockingQueue<>();
+      node1.subscribe(received1::add);
+      node2.subscribe(received2::add);
+
+      node1.publish(new InvalidationEvent("blog"));
+      node1.publish(new InvalidationEvent("blog", Collections.singleton("author")));
+
+      InvalidationEvent event = received2.poll(5, TimeUnit.SECONDS);
+      assertNotNull(event);
+      assertEquals("blog", event.getCacheId());
+      assertTrue(event.getTables().isEmpty());
+      event = received2.poll(5, TimeUnit.SECONDS);
+      assertNotNull(event);
+      assertEquals(Collections.singleton("author"), event.getTables());
+      assertNull(received1.poll(200, TimeUnit.MILLISECONDS));
+    } finally {
+      node1.close();
+      node2.close();
+    }
+  }
+
+  private static MulticastTransport multicastTransport(int port) {
+    MulticastTransport transport = new MulticastTransport();
+    transport.setPort(port);
+    transport.setTimeToLive(0);
+    return transport;
+  }
+
+}
@@ -25,6 +25,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.NotSerializableException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.Base64;
 import java.util.Date;
 
 class CacheKeyTest {
@@ -87,6 +88,39 @@ class CacheKeyTest {
     assertTrue(key1.equals(key2));
   }
 
+  @Test
+  void shouldTreatIntSlotsAsBoxedIntegers() throws Exception {
+    CacheKey key1 = new CacheKey(1);
+    key1.update("select");
+    key1.updateInt(0);
+    key1.updateInt(Integer.MAX_VALUE);
+    key1.update(null);
+    CacheKey key2 = new CacheKey(new Object[] { "select", 0, Integer.MAX_VALUE, null });
+    assertEquals(key1, key2);
+    assertEquals(key2, key1);
+    assertEquals(key1.hashCode(), key2.hashCode());
+    assertEquals(key1.toString(), key2.toString());
+    assertEquals(4, key1.getUpdateCount());
+    assertEquals(key1, serialize(key1));
+    assertEquals(key1, key1.clone());
+
+    CacheKey key3 = new CacheKey();
+    key3.update("select");
+    key3.updateInt(0);
+    key3.update(Integer.MAX_VALUE);
+    key3.updateInt(0);
+    assertNotEquals(key1, key3);
+  }
+
+  @Test
+  void shouldNotUpdateClonedKey() throws Exception {
+    CacheKey key = new CacheKey(new Object[] { "a" });
+    CacheKey clone = key.clone();
+    clone.update("b");
+    assertEquals(1, key.getUpdateCount());
+    assertNotEquals(key, clone);
+  }
+
   @Test
   void serializationExceptionTest() {
     CacheKey cacheKey = new CacheKey();
@@ -103,6 +137,30 @@ class CacheKeyTest {
     Assertions.assertEquals(cacheKey, serialize(cacheKey));
   }
 
+  @Test
+  void shouldReadKeySerializedByListBasedCacheKey() throws Exception {
+    // new CacheKey(new Object[] { "select * from blog where id = ?", 0, Integer.MAX_VALUE, 101L, null })
+    // serialized by the list based CacheKey of 3.5.1
+    String serialized = "rO0ABXNyACBvcmcuYXBhY2hlLmliYXRpcy5jYWNoZS5DYWNoZUtleQ/p1bTNM6iCAgAFSgAIY2hlY2tzdW1JAAVjb3"
+      + "VudEkACGhhc2hjb2RlSQAKbXVsdGlwbGllckwACnVwZGF0ZUxpc3R0ABBMamF2YS91dGlsL0xpc3Q7eHAAAAAAASSa"
+      + "dwAAAAXvK611AAAAJXNyABNqYXZhLnV0aWwuQXJyYXlMaXN0eIHSHZnHYZ0DAAFJAARzaXpleHAAAAAFdwQAAAAFdA"
+      + "Afc2VsZWN0ICogZnJvbSBibG9nIHdoZXJlIGlkID0gP3NyABFqYXZhLmxhbmcuSW50ZWdlchLioKT3gYc4AgABSQAF"
+      + "dmFsdWV4cgAQamF2YS5sYW5nLk51bWJlcoaslR0LlOCLAgAAeHAAAAAAc3EAfgAGf////3NyAA5qYXZhLmxhbmcuTG"
+      + "9uZzuL5JDMjyPfAgABSgAFdmFsdWV4cQB+AAcAAAAAAAAAZXB4";
+    CacheKey expected = new CacheKey();
+    expected.update("select * from blog where id = ?");
+    expected.updateInt(0);
+    expected.updateInt(Integer.MAX_VALUE);
+    expected.update(101L);
+    expected.update(null);
+
+    CacheKey read = (CacheKey) new ObjectInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(serialized))).readObject();
+    assertEquals(expected, read);
+    assertEquals(expected.hashCode(), read.hashCode());
+    assertEquals(expected.toString(), read.toString());
+    assertEquals(read, serialize(read));
+  }
+
   private static <T> T serialize(T object) throws Exception {
       ByteArrayOutputStream baos = new ByteArrayOutputStream();
       new ObjectOutputStream(baos).writeObject(object);
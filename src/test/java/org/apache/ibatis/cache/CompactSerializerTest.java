@@ -0,0 +1,186 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.CompactSerializer;
+import org.apache.ibatis.cache.serializer.JdkSerializer;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.executor.loader.ResultLoaderMap;
+import org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory;
+import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
+import org.apache.ibatis.session.Configuration;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+class CompactSerializerTest {
+
+  private final CompactSerializer serializer = new CompactSerializer();
+
+  @Test
+  void shouldCopyResultListsSmallerThanJavaSerialization() {
+    List<Author> authors = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      authors.add(new Author(i, "user" + i, "********", "user" + i + "@ibatis.apache.org", null, Section.NEWS));
+    }
+    byte[] bytes = serializer.serialize(authors);
+    Object copy = serializer.deserialize(bytes);
+    assertEquals(authors, copy);
+    assertNotSame(authors.get(0), ((List<?>) copy).get(0));
+    assertTrue(bytes.length < new JdkSerializer().serialize(authors).length);
+  }
+
+  @Test
+  void shouldCopyValueTypes() {
+    Map<String, Object> row = new HashMap<>();
+    row.put("amount", new BigDecimal("12345678901234567890.123"));
+    row.put("created", new Timestamp(1234567890123L));
+    row.put("updated", new Date(42L));
+    row.put("day", LocalDate.of(2019, 5, 1));
+    row.put("flags", new int[] {1, 2, 3});
+    row.put("data", new byte[] {4, 5});
+    row.put("names", new String[] {"a", null});
+    row.put("sorted", new TreeMap<>(Collections.singletonMap("k", 1)));
+    row.put("type", String.class);
+    row.put("primitive", int.class);
+    row.put("section", Section.VIDEOS);
+    row.put("char", 'x');
+    @SuppressWarnings("unchecked")
+    Map<String, Object> copy = (Map<String, Object>) serializer.deserialize(serializer.serialize(row));
+    assertEquals(row.keySet(), copy.keySet());
+    for (String key : row.keySet()) {
+      if (row.get(key) instanceof Object[]) {
+        assertArrayEquals((Object[]) row.get(key), (Object[]) copy.get(key));
+      } else if (row.get(key) instanceof int[]) {
+        assertArrayEquals((int[]) row.get(key), (int[]) copy.get(key));
+      } else if (row.get(key) instanceof byte[]) {
+        assertArrayEquals((byte[]) row.get(key), (byte[]) copy.get(key));
+      } else {
+        assertEquals(row.get(key), copy.get(key), key);
+      }
+    }
+  }
+
+  @Test
+  void shouldKeepSharedAndCyclicReferences() {
+    Node parent = new Node();
+    parent.setName("parent");
+    Node child = new Node();
+    child.setName("child");
+    child.setParent(parent);
+    parent.getChildren().add(child);
+    parent.getChildren().add(child);
+    Node copy = (Node) serializer.deserialize(serializer.serialize(parent));
+    assertEquals("parent", copy.getName());
+    assertEquals(2, copy.getChildren().size());
+    assertSame(copy.getChildren().get(0), copy.getChildren().get(1));
+    assertSame(copy, copy.getChildren().get(0).getParent());
+  }
+
+  @Test
+  void shouldFallBackToJavaSerializationForOtherObjects() {
+    Opaque opaque = new Opaque("secret");
+    List<Object> list = new ArrayList<>();
+    list.add(opaque);
+    List<?> copy = (List<?>) serializer.deserialize(serializer.serialize(list));
+    assertEquals("secret", ((Opaque) copy.get(0)).value);
+  }
+
+  @Test
+  void shouldUnwrapLoadedLazyLoadingProxies() {
+    Author author = new Author(999, "someone", "!@#@!#!@#", "someone@somewhere.com", "blah", Section.NEWS);
+    Object proxy = new JavassistProxyFactory().createProxy(author, new ResultLoaderMap(), new Configuration(),
+        new DefaultObjectFactory(), new ArrayList<>(), new ArrayList<>());
+    List<Object> list = new ArrayList<>();
+    list.add(proxy);
+    list.add(proxy);
+    List<?> copy = (List<?>) serializer.deserialize(serializer.serialize(list));
+    assertEquals(author, copy.get(0));
+    assertEquals(Author.class, copy.get(0).getClass());
+    assertSame(copy.get(0), copy.get(1));
+  }
+
+  @Test
+  void shouldRejectNonSerializableObjects() {
+    List<Object> list = new ArrayList<>();
+    list.add(new Object());
+    assertThrows(CacheException.class, () -> serializer.serialize(list));
+  }
+
+  @Test
+  void shouldBeUsedBySerializedCache() {
+    Cache cache = new SerializedCache(new PerpetualCache("default"), serializer);
+    Author author = new Author(1, "jim", "********", "jim@ibatis.apache.org", "", Section.NEWS);
+    cache.putObject(0, author);
+    assertEquals(author, cache.getObject(0));
+    assertNotSame(author, cache.getObject(0));
+  }
+
+  public static class Node implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private String name;
+    private Node parent;
+    private List<Node> children = new ArrayList<>();
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public Node getParent() {
+      return parent;
+    }
+
+    public void setParent(Node parent) {
+      this.parent = parent;
+    }
+
+    public List<Node> getChildren() {
+      return children;
+    }
+
+    public void setChildren(List<Node> children) {
+      this.children = children;
+    }
+  }
+
+  public static class Opaque implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final String value;
+
+    public Opaque(String value) {
+      this.value = value;
+    }
+  }
+
+}
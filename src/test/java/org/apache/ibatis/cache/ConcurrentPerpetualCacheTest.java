@@ -0,0 +1,90 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.impl.ConcurrentPerpetualCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentPerpetualCacheTest {
+
+  @Test
+  void shouldDemonstrateHowAllObjectsAreKeptAcrossThreads() throws Exception {
+    Cache cache = new ConcurrentPerpetualCache("default");
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        final int offset = t * 25000;
+        futures.add(executor.submit(() -> {
+          for (int i = offset; i < offset + 25000; i++) {
+            cache.putObject(i, i);
+            assertEquals(i, cache.getObject(i));
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(100000, cache.getSize());
+  }
+
+  @Test
+  void shouldAcceptNullKeysAndValues() {
+    Cache cache = new ConcurrentPerpetualCache("default");
+    cache.putObject(null, 1);
+    cache.putObject(1, null);
+    assertEquals(1, cache.getObject(null));
+    assertNull(cache.getObject(1));
+    assertEquals(2, cache.getSize());
+    assertEquals(1, cache.removeObject(null));
+    assertNull(cache.removeObject(1));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void shouldFlushAllItemsOnDemand() {
+    Cache cache = new ConcurrentPerpetualCache("default");
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertNotNull(cache.getObject(0));
+    assertNotNull(cache.getObject(4));
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(4));
+  }
+
+  @Test
+  void shouldBeEqualToOtherCachesWithTheSameId() {
+    Cache cache = new ConcurrentPerpetualCache("default");
+    assertEquals(new PerpetualCache("default"), cache);
+    assertEquals(new PerpetualCache("default").hashCode(), cache.hashCode());
+  }
+
+}
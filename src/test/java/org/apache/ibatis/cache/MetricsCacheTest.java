@@ -0,0 +1,93 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.ibatis.cache.decorators.MetricsCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.metrics.CacheMetricsRegistry;
+import org.apache.ibatis.cache.metrics.CacheStatistics;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.mapping.CacheBuilder;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+class MetricsCacheTest {
+
+  @Test
+  void shouldCountHitsMissesAndLoads() throws Exception {
+    CacheStatistics statistics = new CacheStatistics("default");
+    Cache cache = new MetricsCache(new PerpetualCache("default"), statistics);
+
+    assertNull(cache.getObject("key"));
+    Thread.sleep(5);
+    cache.putObject("key", new Author(1, "jim", "********", "jim@ibatis.apache.org", "", Section.NEWS));
+    assertNotNull(cache.getObject("key"));
+    assertNotNull(cache.getObject("key"));
+
+    assertEquals(2, statistics.getHits());
+    assertEquals(1, statistics.getMisses());
+    assertEquals(2.0 / 3, statistics.getHitRatio(), 0.001);
+    assertEquals(1, statistics.getPuts());
+    assertTrue(statistics.getAverageLoadTime() >= 5, "load time " + statistics.getAverageLoadTime());
+    assertEquals(1, statistics.getEntryCount());
+    assertTrue(statistics.getEstimatedBytes() > 0);
+  }
+
+  @Test
+  void shouldTellEvictionsFromRemovals() {
+    CacheMetricsRegistry registry = new CacheMetricsRegistry();
+    Cache cache = new CacheBuilder("blog").size(2).metricsRegistry(registry).build();
+    CacheStatistics statistics = registry.getStatistics("blog");
+    assertNotNull(statistics);
+
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    cache.removeObject(4);
+    cache.removeObject("missing");
+
+    assertEquals(3, statistics.getEvictions());
+    assertEquals(1, statistics.getRemovals());
+    assertEquals(1, statistics.getEntryCount());
+
+    cache.clear();
+    assertEquals(1, statistics.getClears());
+    assertEquals(0, statistics.getEntryCount());
+  }
+
+  @Test
+  void shouldExposeStatisticsThroughJmx() throws Exception {
+    CacheMetricsRegistry registry = new CacheMetricsRegistry();
+    registry.setJmxDomain("org.apache.ibatis.test");
+    Cache cache = new CacheBuilder("jmx.blog").metricsRegistry(registry).build();
+    cache.getObject("key");
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName("org.apache.ibatis.test:type=Cache,name=" + ObjectName.quote("jmx.blog"));
+    try {
+      assertEquals(1L, server.getAttribute(name, "Misses"));
+    } finally {
+      registry.setJmxDomain(null);
+    }
+    assertFalse(server.isRegistered(name));
+  }
+
+}
@@ -0,0 +1,131 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.ibatis.cache.impl.OffHeapCache;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+class OffHeapCacheTest {
+
+  @Test
+  void shouldReturnCopiesOfCachedValues() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setCapacity(64 * 1024);
+    cache.setSlabSize(16 * 1024);
+    List<Author> authors = Arrays.asList(
+        new Author(1, "jim", "********", "jim@ibatis.apache.org", "", Section.NEWS),
+        new Author(2, "sally", "********", "sally@ibatis.apache.org", null, Section.VIDEOS));
+    cache.putObject(0, new ArrayList<>(authors));
+    Object cached = cache.getObject(0);
+    assertEquals(authors, cached);
+    assertNotSame(cached, cache.getObject(0));
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  void shouldRecycleOldestSlabWhenFull() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setCapacity(4 * 1024);
+    cache.setSlabSize(1024);
+    byte[] value = new byte[400];
+    for (int i = 0; i < 40; i++) {
+      cache.putObject(i, value);
+    }
+    assertNull(cache.getObject(0));
+    assertNotNull(cache.getObject(39));
+    assertTrue(cache.getSize() <= 4 * 2);
+  }
+
+  @Test
+  void shouldNotCacheValuesLargerThanSlab() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setSlabSize(1024);
+    cache.putObject(0, "small");
+    cache.putObject(0, new byte[2048]);
+    assertNull(cache.getObject(0));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void shouldRemoveAndFlushItemsOnDemand() {
+    Cache cache = new OffHeapCache("default");
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    cache.removeObject(0);
+    assertNull(cache.getObject(0));
+    assertEquals(1, cache.getObject(1));
+    cache.putObject(1, null);
+    assertNull(cache.getObject(1));
+    cache.clear();
+    assertNull(cache.getObject(4));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void shouldStoreSlabsInMappedFiles() throws Exception {
+    File directory = Files.createTempDirectory("offheap").toFile();
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setDirectory(directory.getAbsolutePath());
+    cache.setCapacity(8 * 1024);
+    cache.setSlabSize(4 * 1024);
+    cache.putObject("key", "value");
+    assertEquals("value", cache.getObject("key"));
+    assertEquals(1, directory.listFiles().length);
+  }
+
+  @Test
+  void shouldReadConsistentlyWhileSlabsAreRecycled() throws Exception {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setCapacity(8 * 1024);
+    cache.setSlabSize(2 * 1024);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 2000; i++) {
+            Integer key = i % 64;
+            Object value = cache.getObject(key);
+            if (value == null) {
+              cache.putObject(key, "value-" + key);
+            } else {
+              assertEquals("value-" + key, value);
+            }
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+}
@@ -0,0 +1,109 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import org.apache.ibatis.cache.decorators.RefreshAheadCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+class RefreshAheadCacheTest {
+
+  @Test
+  void shouldServeStaleValueWhileOneCallerReloads() {
+    ManualClockCache cache = new ManualClockCache();
+    cache.setJitter(0);
+    cache.setTimeToLive(1000);
+    cache.putObject("key", "old");
+
+    cache.now += 999;
+    assertEquals("old", cache.getObject("key"));
+    cache.now += 1;
+    assertNull(cache.getObject("key"));
+    assertEquals("old", cache.getObject("key"));
+    assertEquals("old", cache.getObject("key"));
+
+    cache.putObject("key", "new");
+    assertEquals("new", cache.getObject("key"));
+  }
+
+  @Test
+  void shouldLetAnotherCallerReloadAfterTimeout() {
+    ManualClockCache cache = new ManualClockCache();
+    cache.setJitter(0);
+    cache.setTimeToLive(1000);
+    cache.setReloadTimeout(100);
+    cache.putObject("key", "old");
+
+    cache.now += 1000;
+    assertNull(cache.getObject("key"));
+    cache.now += 99;
+    assertEquals("old", cache.getObject("key"));
+    cache.now += 1;
+    assertNull(cache.getObject("key"));
+    assertEquals("old", cache.getObject("key"));
+  }
+
+  @Test
+  void shouldMissOnceReloadingCallerRemovesTheEntry() {
+    ManualClockCache cache = new ManualClockCache();
+    cache.setTimeToLive(1000);
+    cache.putObject("key", "old");
+    cache.now += 1000;
+    assertNull(cache.getObject("key"));
+    // a rolled back session releases the key
+    cache.removeObject("key");
+    assertNull(cache.getObject("key"));
+  }
+
+  @Test
+  void shouldSpreadExpirationsWithJitter() {
+    ManualClockCache cache = new ManualClockCache();
+    cache.setTimeToLive(1000);
+    cache.setJitter(0.5);
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, i);
+    }
+    cache.now += 750;
+    int expired = 0;
+    for (int i = 0; i < 100; i++) {
+      if (cache.getObject(i) == null) {
+        expired++;
+      }
+    }
+    assertTrue(expired > 0 && expired < 100, "expired " + expired);
+  }
+
+  @Test
+  void shouldRejectInvalidJitter() {
+    RefreshAheadCache cache = new RefreshAheadCache(new PerpetualCache("default"));
+    assertThrows(IllegalArgumentException.class, () -> cache.setJitter(1));
+  }
+
+  private static class ManualClockCache extends RefreshAheadCache {
+    private long now = 1;
+
+    ManualClockCache() {
+      super(new PerpetualCache("default"));
+    }
+
+    @Override
+    protected long currentTime() {
+      return now;
+    }
+  }
+
+}
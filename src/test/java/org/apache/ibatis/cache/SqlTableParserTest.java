@@ -0,0 +1,71 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.ibatis.cache.invalidation.SqlTableParser;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+class SqlTableParserTest {
+
+  @Test
+  void shouldFindTablesOfQueries() {
+    assertEquals(tables("blog"), SqlTableParser.parse("select * from blog where id = ?"));
+    assertEquals(tables("blog", "author", "post"), SqlTableParser.parse(
+        "select b.id from Blog b join AUTHOR as a on b.author_id = a.id left outer join post p on p.blog_id = b.id"));
+    assertEquals(tables("blog", "author"), SqlTableParser.parse("select * from blog b, author a where b.author_id = a.id"));
+    assertEquals(tables("blog", "post"), SqlTableParser.parse(
+        "select * from blog where id in (select blog_id from post where subject = ?)"));
+    assertEquals(tables("blog"), SqlTableParser.parse("select * from \"public\".\"BLOG\" for update"));
+  }
+
+  @Test
+  void shouldFindTablesOfWrites() {
+    assertEquals(tables("author"), SqlTableParser.parse("insert into author (id, username) values (?, ?)"));
+    assertEquals(tables("author"), SqlTableParser.parse("update author set username = ? where id = ?"));
+    assertEquals(tables("author"), SqlTableParser.parse("delete from author where id = ?"));
+    assertEquals(tables("author", "author_backup"),
+        SqlTableParser.parse("insert into author select * from author_backup"));
+  }
+
+  @Test
+  void shouldSkipCommentsAndLiterals() {
+    assertEquals(tables("blog"), SqlTableParser.parse(
+        "select 'from author' /* from post */ from blog -- join comment\n where title <> 'it''s from tag'"));
+  }
+
+  @Test
+  void shouldReturnNullWhenNoTableIsFound() {
+    assertNull(SqlTableParser.parse("{call refresh_all(?)}"));
+    assertNull(SqlTableParser.parse("select 1"));
+  }
+
+  @Test
+  void shouldParseDeclaredTables() {
+    assertEquals(tables("blog", "author"), SqlTableParser.parseList(" Blog, dbo.author ,"));
+    assertNull(SqlTableParser.parseList(" "));
+    assertNull(SqlTableParser.parseList(null));
+  }
+
+  private static Set<String> tables(String... tables) {
+    return new HashSet<>(Arrays.asList(tables));
+  }
+
+}
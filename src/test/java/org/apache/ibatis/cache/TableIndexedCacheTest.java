@@ -0,0 +1,166 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.ibatis.cache.decorators.TableIndexedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+class TableIndexedCacheTest {
+
+  @Test
+  void shouldEvictOnlyDependentEntries() {
+    TableIndexedCache cache = new TableIndexedCache(new PerpetualCache("default"));
+    cache.putObject("blog", "blog", tables("blog"));
+    cache.putObject("author", "author", tables("author"));
+    cache.putObject("blogWithAuthor", "blogWithAuthor", tables("blog", "author"));
+
+    cache.invalidate(tables("author"));
+
+    assertEquals("blog", cache.getObject("blog"));
+    assertNull(cache.getObject("author"));
+    assertNull(cache.getObject("blogWithAuthor"));
+  }
+
+  @Test
+  void shouldEvictEntriesOfUnknownTablesOnAnyInvalidation() {
+    TableIndexedCache cache = new TableIndexedCache(new PerpetualCache("default"));
+    cache.putObject("blog", "blog", tables("blog"));
+    cache.putObject("unknown", "unknown");
+
+    cache.invalidate(tables("post"));
+
+    assertEquals("blog", cache.getObject("blog"));
+    assertNull(cache.getObject("unknown"));
+  }
+
+  @Test
+  void shouldRetrackEntriesPutAgain() {
+    TableIndexedCache cache = new TableIndexedCache(new PerpetualCache("default"));
+    cache.putObject("key", "value", tables("blog"));
+    cache.putObject("key", "value", tables("author"));
+
+    cache.invalidate(tables("blog"));
+    assertEquals("value", cache.getObject("key"));
+    cache.invalidate(tables("author"));
+    assertNull(cache.getObject("key"));
+  }
+
+  @Test
+  void shouldNotCacheEntriesWhenTooManyKeysAreTracked() {
+    TableIndexedCache cache = new TableIndexedCache(new PerpetualCache("default"));
+    cache.setMaxTrackedKeys(10);
+    for (int i = 0; i < 11; i++) {
+      cache.putObject(i, i, Collections.singleton("blog"));
+    }
+    assertEquals(10, cache.getSize());
+    assertEquals(0, cache.getObject(0));
+    assertNull(cache.getObject(10));
+
+    cache.invalidate(tables("blog"));
+    cache.putObject(10, 10, Collections.singleton("blog"));
+    assertEquals(10, cache.getObject(10));
+  }
+
+  @Test
+  void shouldPruneIndexWhenDelegateEvicts() {
+    Properties properties = new Properties();
+    properties.setProperty("maxTrackedKeys", "3");
+    TableAwareCache cache = (TableAwareCache) new CacheBuilder("default").size(2).tableInvalidation(true)
+        .properties(properties).build();
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i, Collections.singleton("blog"));
+    }
+    assertEquals(2, cache.getSize());
+    assertEquals(3, cache.getObject(3));
+    assertEquals(4, cache.getObject(4));
+
+    cache.invalidate(tables("blog"));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void shouldPruneIndexWhenDelegateEvictsOnAnotherThread() throws Exception {
+    TableIndexedCache.EvictionTracker tracker = new TableIndexedCache.EvictionTracker(new PerpetualCache("default"));
+    TableIndexedCache cache = new TableIndexedCache(tracker, tracker);
+    cache.setMaxTrackedKeys(1);
+    cache.putObject("blog", "blog", tables("blog"));
+    // like a soft cache dropping a collected entry on read
+    Thread reader = new Thread(() -> tracker.removeObject("blog"));
+    reader.start();
+    reader.join();
+
+    cache.putObject("author", "author", tables("author"));
+    assertEquals("author", cache.getObject("author"));
+  }
+
+  @Test
+  void shouldDeferInvalidationToCommit() {
+    TableIndexedCache cache = new TableIndexedCache(new PerpetualCache("default"));
+    cache.putObject("blog", "blog", tables("blog"));
+    cache.putObject("author", "author", tables("author"));
+    TransactionalCacheManager tcm = new TransactionalCacheManager();
+    CacheKey stale = new CacheKey(new Object[] { "stale" });
+    CacheKey fresh = new CacheKey(new Object[] { "fresh" });
+
+    tcm.putObject(cache, stale, "stale", tables("author"));
+    tcm.invalidate(cache, tables("author"));
+    tcm.putObject(cache, fresh, "fresh", tables("author"));
+    assertNull(tcm.getObject(cache, new CacheKey(new Object[] { "blog" })));
+    assertEquals("author", cache.getObject("author"));
+
+    tcm.commit();
+
+    assertEquals("blog", cache.getObject("blog"));
+    assertNull(cache.getObject("author"));
+    assertNull(cache.getObject(stale));
+    assertEquals("fresh", cache.getObject(fresh));
+  }
+
+  @Test
+  void shouldEvictDependentEntriesBelowBlockingCache() {
+    Cache cache = new CacheBuilder("default").blocking(true).tableInvalidation(true).build();
+    assertTrue(cache instanceof TableAwareCache);
+    CacheKey blog = new CacheKey(new Object[] { "blog" });
+    CacheKey author = new CacheKey(new Object[] { "author" });
+    TransactionalCacheManager tcm = new TransactionalCacheManager();
+    assertNull(tcm.getObject(cache, blog));
+    tcm.putObject(cache, blog, "blog", tables("blog"));
+    assertNull(tcm.getObject(cache, author));
+    tcm.putObject(cache, author, "author", tables("author"));
+    tcm.commit();
+
+    tcm.invalidate(cache, tables("author"));
+    tcm.commit();
+
+    assertEquals("blog", cache.getObject(blog));
+    assertNull(cache.getObject(author));
+    cache.removeObject(author);
+  }
+
+  private static Set<String> tables(String... tables) {
+    return new HashSet<>(Arrays.asList(tables));
+  }
+
+}
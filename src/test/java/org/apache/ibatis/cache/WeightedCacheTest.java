@@ -0,0 +1,142 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.ibatis.cache.decorators.WeightedCache;
+import org.apache.ibatis.cache.impl.ObjectSizeWeigher;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.mapping.CacheBuilder;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+class WeightedCacheTest {
+
+  @Test
+  void shouldRemoveLeastRecentlyUsedItemsBeyondMaximumWeight() {
+    WeightedCache cache = new WeightedCache(new PerpetualCache("default"));
+    cache.setWeigher((key, value) -> ((List<?>) value).size());
+    cache.setMaximumWeight(10);
+    cache.putObject(0, rows(4));
+    cache.putObject(1, rows(4));
+    assertNotNull(cache.getObject(0));
+    cache.putObject(2, rows(4));
+    assertNotNull(cache.getObject(0));
+    assertNull(cache.getObject(1));
+    assertNotNull(cache.getObject(2));
+    assertEquals(8, cache.getTotalWeight());
+  }
+
+  @Test
+  void shouldNotCacheEntriesHeavierThanMaximumWeight() {
+    WeightedCache cache = new WeightedCache(new PerpetualCache("default"));
+    cache.setWeigher((key, value) -> ((List<?>) value).size());
+    cache.setMaximumWeight(10);
+    cache.putObject(0, rows(2));
+    cache.putObject(1, rows(2));
+    cache.putObject(0, rows(11));
+    assertNull(cache.getObject(0));
+    assertNotNull(cache.getObject(1));
+    assertEquals(2, cache.getTotalWeight());
+  }
+
+  @Test
+  void shouldAlsoBoundEntryCount() {
+    WeightedCache cache = new WeightedCache(new PerpetualCache("default"));
+    cache.setSize(2);
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, rows(1));
+    }
+    assertEquals(2, cache.getSize());
+  }
+
+  @Test
+  void shouldRemoveAndFlushItemsOnDemand() {
+    WeightedCache cache = new WeightedCache(new PerpetualCache("default"));
+    cache.putObject(0, rows(3));
+    cache.putObject(1, rows(3));
+    cache.removeObject(0);
+    assertNull(cache.getObject(0));
+    assertEquals(new ObjectSizeWeigher().weigh(1, rows(3)), cache.getTotalWeight());
+    cache.clear();
+    assertNull(cache.getObject(1));
+    assertEquals(0, cache.getTotalWeight());
+  }
+
+  @Test
+  void shouldEstimateLargerResultsAsHeavier() {
+    ObjectSizeWeigher weigher = new ObjectSizeWeigher();
+    long small = weigher.sizeOf(authors(1));
+    long large = weigher.sizeOf(authors(100));
+    assertTrue(small > 0);
+    assertTrue(large > 50 * small);
+    assertEquals(24 + 16, weigher.sizeOf(new byte[24]));
+  }
+
+  @Test
+  void shouldCountSharedAndCyclicReferencesOnce() {
+    ObjectSizeWeigher weigher = new ObjectSizeWeigher();
+    Author author = new Author(1, "jim", "********", "jim@ibatis.apache.org", "", Section.NEWS);
+    List<Object> list = new ArrayList<>();
+    list.add(author);
+    long once = weigher.sizeOf(list);
+    list.add(author);
+    list.add(list);
+    assertTrue(weigher.sizeOf(list) - once < 64);
+  }
+
+  @Test
+  void shouldConfigureWeigherByClassName() {
+    Properties properties = new Properties();
+    properties.setProperty("maximumWeight", "3");
+    properties.setProperty("weigherType", RowCountWeigher.class.getName());
+    Cache cache = new CacheBuilder("default").addDecorator(WeightedCache.class).properties(properties).build();
+    cache.putObject(0, rows(2));
+    cache.putObject(1, rows(2));
+    assertNull(cache.getObject(0));
+    assertNotNull(cache.getObject(1));
+  }
+
+  private static List<Integer> rows(int count) {
+    List<Integer> rows = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      rows.add(i);
+    }
+    return rows;
+  }
+
+  private static List<Author> authors(int count) {
+    Author[] authors = new Author[count];
+    for (int i = 0; i < count; i++) {
+      authors[i] = new Author(i, "user" + i, "********", "user" + i + "@ibatis.apache.org", "bio of user " + i, Section.NEWS);
+    }
+    return Arrays.asList(authors);
+  }
+
+  public static class RowCountWeigher implements Weigher {
+    @Override
+    public long weigh(Object key, Object value) {
+      return ((List<?>) value).size();
+    }
+  }
+
+}
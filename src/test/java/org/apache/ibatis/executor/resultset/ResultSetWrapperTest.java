@@ -0,0 +1,75 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ResultSetWrapperTest {
+
+  @Mock
+  private ResultSet rs;
+  @Mock
+  private ResultSetMetaData rsmd;
+
+  @Test
+  void shouldResolveColumnIndexesOnce() throws Exception {
+    ResultSetWrapper rsw = newResultSetWrapper();
+    when(rs.findColumn("ID")).thenReturn(1);
+    when(rs.findColumn("P_ID")).thenReturn(2);
+    for (int i = 0; i < 3; i++) {
+      assertEquals(1, rsw.getColumnIndex("ID", null));
+      assertEquals(2, rsw.getColumnIndex("ID", "P_"));
+    }
+    verify(rs, times(1)).findColumn("ID");
+    verify(rs, times(1)).findColumn("P_ID");
+  }
+
+  @Test
+  void shouldReturnZeroForMissingColumns() throws Exception {
+    ResultSetWrapper rsw = newResultSetWrapper();
+    when(rs.findColumn("MISSING")).thenThrow(new SQLException("Column not found"));
+    assertEquals(0, rsw.getColumnIndex("MISSING", null));
+    assertEquals(0, rsw.getColumnIndex("MISSING", null));
+    assertEquals(0, rsw.getColumnIndex(null, "P_"));
+    verify(rs, times(1)).findColumn("MISSING");
+  }
+
+  private ResultSetWrapper newResultSetWrapper() throws SQLException {
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rsmd.getColumnCount()).thenReturn(2);
+    when(rsmd.getColumnLabel(1)).thenReturn("ID");
+    when(rsmd.getColumnLabel(2)).thenReturn("P_ID");
+    when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnType(2)).thenReturn(Types.INTEGER);
+    return new ResultSetWrapper(rs, new Configuration());
+  }
+
+}
@@ -0,0 +1,70 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class RowKeyTest {
+
+  private final Configuration configuration = new Configuration();
+  private final ResultMap blogMap = new ResultMap.Builder(configuration, "blog", Object.class, new ArrayList<>()).build();
+  private final ResultMap postMap = new ResultMap.Builder(configuration, "post", Object.class, new ArrayList<>()).build();
+
+  @Test
+  void shouldCompareIdKeysByResultMapColumnAndValue() {
+    RowKey key = RowKey.forId(blogMap, "ID", 1L);
+    assertEquals(key, RowKey.forId(blogMap, new String("ID"), 1L));
+    assertEquals(key.hashCode(), RowKey.forId(blogMap, "ID", 1L).hashCode());
+    assertNotEquals(key, RowKey.forId(blogMap, "ID", 2L));
+    assertNotEquals(key, RowKey.forId(blogMap, "AUTHOR_ID", 1L));
+    assertNotEquals(key, RowKey.forId(postMap, "ID", 1L));
+    assertNotEquals(key, RowKey.NULL_ROW_KEY);
+  }
+
+  @Test
+  void shouldCompareCombinedKeysWithTheirParents() {
+    RowKey blog1 = RowKey.forId(blogMap, "ID", 1L);
+    RowKey blog2 = RowKey.forId(blogMap, "ID", 2L);
+    RowKey post = RowKey.forId(postMap, "POST_ID", 10L);
+    assertEquals(post.withParent(blog1), post.withParent(RowKey.forId(blogMap, "ID", 1L)));
+    assertNotEquals(post.withParent(blog1), post.withParent(blog2));
+    assertNotEquals(post.withParent(blog1), post);
+  }
+
+  @Test
+  void shouldCompareValueKeys() {
+    CacheKey values = new CacheKey();
+    values.update("blog");
+    values.update("TITLE");
+    values.update("Title");
+    CacheKey sameValues = new CacheKey();
+    sameValues.update("blog");
+    sameValues.update("TITLE");
+    sameValues.update("Title");
+    assertEquals(RowKey.forValues(values), RowKey.forValues(sameValues));
+    assertEquals(RowKey.forValues(values).withParent(RowKey.forId(blogMap, "ID", 1L)),
+        RowKey.forValues(sameValues).withParent(RowKey.forId(blogMap, "ID", 1L)));
+    assertNotEquals(RowKey.forValues(values), RowKey.forId(blogMap, "TITLE", 0L));
+  }
+
+}
@@ -0,0 +1,59 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.Test;
+
+class StatementCacheTest {
+
+  @Test
+  void shouldCloseLeastRecentlyUsedStatementWhenFull() throws SQLException {
+    StatementCache cache = new StatementCache(2);
+    Statement first = mock(Statement.class);
+    Statement second = mock(Statement.class);
+    Statement third = mock(Statement.class);
+    cache.put("first", first);
+    cache.put("second", second);
+    assertSame(first, cache.get("first"));
+    cache.put("third", third);
+    assertEquals(2, cache.size());
+    assertNull(cache.get("second"));
+    verify(second).close();
+    verify(first, never()).close();
+    cache.clear();
+    verify(first).close();
+    verify(third).close();
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  void shouldKeepAllStatementsWhenUnbounded() throws SQLException {
+    StatementCache cache = new StatementCache(0);
+    for (int i = 0; i < 100; i++) {
+      cache.put("sql" + i, mock(Statement.class));
+    }
+    assertEquals(100, cache.size());
+  }
+
+}
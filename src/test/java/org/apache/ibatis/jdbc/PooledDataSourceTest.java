@@ -17,16 +17,28 @@ package org.apache.ibatis.jdbc;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.lang.management.ManagementFactory;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.datasource.pooled.PoolListener;
 import org.apache.ibatis.datasource.pooled.PooledDataSource;
 import org.hsqldb.jdbc.JDBCConnection;
 import org.junit.jupiter.api.Disabled;
@@ -75,6 +87,350 @@ class PooledDataSourceTest extends BaseDataTest {
     }
   }
 
+  @Test
+  void shouldProperlyMaintainPoolOf3ActiveAnd2IdleConnectionsInLockFreeMode() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolLockFreeEnabled(true);
+      runScript(ds, JPETSTORE_DDL);
+      ds.setDefaultAutoCommit(false);
+      ds.setPoolMaximumActiveConnections(3);
+      ds.setPoolMaximumIdleConnections(2);
+      ds.setPoolMaximumCheckoutTime(10000);
+      ds.setPoolPingConnectionsNotUsedFor(1);
+      ds.setPoolPingEnabled(true);
+      ds.setPoolPingQuery("SELECT * FROM PRODUCT");
+      ds.setPoolTimeToWait(10000);
+      List<Connection> connections = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        connections.add(ds.getConnection());
+      }
+      assertEquals(3, ds.getPoolState().getActiveConnectionCount());
+      for (Connection c : connections) {
+        c.close();
+      }
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(4, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+      assertEquals(0, ds.getPoolState().getHadToWaitCount());
+      assertEquals(0, ds.getPoolState().getClaimedOverdueConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldHandOffConnectionsBetweenThreadsInLockFreeMode() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    ds.setPoolLockFreeEnabled(true);
+    ds.setPoolMaximumActiveConnections(2);
+    ds.setPoolMaximumIdleConnections(2);
+    ds.setPoolTimeToWait(10000);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        futures.add(executor.submit(() -> {
+          for (int j = 0; j < 50; j++) {
+            try (Connection c = ds.getConnection()) {
+              assertTrue(c.isValid(1));
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertTrue(ds.getPoolState().getIdleConnectionCount() <= 2);
+      assertEquals(400, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+    } finally {
+      executor.shutdownNow();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldNotReturnConnectionTwiceInLockFreeMode() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    ds.setPoolLockFreeEnabled(true);
+    try {
+      Connection first = ds.getConnection();
+      first.close();
+      Connection second = ds.getConnection();
+      first.close();
+      assertEquals(1, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(1, ds.getPoolState().getBadConnectionCount());
+      assertTrue(second.isValid(1));
+      second.close();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldPrewarmMinimumIdleConnectionsInBackground() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMinimumIdleConnections(2);
+      ds.setPoolMaintenanceInterval(20);
+      waitUntil(() -> ds.getPoolState().getIdleConnectionCount() == 2);
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(0, ds.getPoolState().getRequestCount());
+    } finally {
+      ds.setPoolMaintenanceInterval(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldStopMaintenanceOnCloseAndRestartOnCheckout() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMinimumIdleConnections(2);
+      ds.setPoolMaintenanceInterval(20);
+      waitUntil(() -> ds.getPoolState().getIdleConnectionCount() == 2);
+      ds.close();
+      Thread.sleep(100);
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+      ds.getConnection().close();
+      waitUntil(() -> ds.getPoolState().getIdleConnectionCount() == 2);
+    } finally {
+      ds.setPoolMaintenanceInterval(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldEvictOverAgeIdleConnectionsInBackground() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolLockFreeEnabled(true);
+      ds.setPoolMaximumConnectionAge(50);
+      ds.getConnection().close();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+      ds.setPoolMaintenanceInterval(20);
+      waitUntil(() -> ds.getPoolState().getIdleConnectionCount() == 0);
+    } finally {
+      ds.setPoolMaintenanceInterval(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldReclaimOverdueConnectionInBackground() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumCheckoutTime(50);
+      ds.setPoolOverdueReclaimEnabled(true);
+      ds.setPoolMaintenanceInterval(20);
+      Connection leaked = ds.getConnection();
+      // the overdue count is updated before the connection is returned to the idle ones
+      waitUntil(() -> ds.getPoolState().getClaimedOverdueConnectionCount() == 1
+          && ds.getPoolState().getIdleConnectionCount() == 1);
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertThrows(SQLException.class, leaked::getAutoCommit);
+    } finally {
+      ds.setPoolMaintenanceInterval(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldValidateConnectionsWithIsValidInsteadOfPingQuery() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      // the default ping query is not valid SQL, a ping through it would discard the connection
+      ds.setPoolPingEnabled(true);
+      ds.setPoolPingUseIsValid(true);
+      ds.setPoolPingTimeout(1000);
+      ds.setPoolPingConnectionsNotUsedFor(0);
+      Connection c = ds.getConnection();
+      c.close();
+      Thread.sleep(10);
+      c = ds.getConnection();
+      assertTrue(c.isValid(1));
+      c.close();
+      assertEquals(2, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldRecordHistogramsAndNotifyListeners() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    AtomicInteger checkouts = new AtomicInteger();
+    AtomicInteger returns = new AtomicInteger();
+    ds.addPoolListener(new PoolListener() {
+      @Override
+      public void connectionCheckedOut(long waitMillis) {
+        checkouts.incrementAndGet();
+      }
+
+      @Override
+      public void connectionReturned(long holdMillis) {
+        returns.incrementAndGet();
+      }
+    });
+    try {
+      for (int i = 0; i < 3; i++) {
+        ds.getConnection().close();
+      }
+      assertEquals(3, checkouts.get());
+      assertEquals(3, returns.get());
+      assertEquals(3, ds.getPoolState().getCheckoutWaitHistogram().getCount());
+      assertEquals(3, ds.getPoolState().getHoldTimeHistogram().getCount());
+      assertEquals(0, ds.getPoolState().getExpiredWaitCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldNotifyListenersOutsideThePoolLockAndCountExpiredWaits() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    AtomicInteger lockedCallbacks = new AtomicInteger();
+    AtomicInteger expiredWaits = new AtomicInteger();
+    ds.addPoolListener(new PoolListener() {
+      @Override
+      public void connectionCheckedOut(long waitMillis) {
+        checkLock();
+      }
+
+      @Override
+      public void connectionReturned(long holdMillis) {
+        checkLock();
+      }
+
+      @Override
+      public void waitExpired(long waitMillis) {
+        checkLock();
+        expiredWaits.incrementAndGet();
+      }
+
+      private void checkLock() {
+        if (Thread.holdsLock(ds.getPoolState())) {
+          lockedCallbacks.incrementAndGet();
+        }
+      }
+    });
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolTimeToWait(20);
+      Connection held = ds.getConnection();
+      Future<?> waiting = executor.submit(() -> {
+        ds.getConnection().close();
+        return null;
+      });
+      waitUntil(() -> expiredWaits.get() >= 2);
+      held.close();
+      waiting.get(10, TimeUnit.SECONDS);
+      assertEquals(0, lockedCallbacks.get());
+      assertEquals(2, ds.getPoolState().getRequestCount());
+      assertTrue(ds.getPoolState().getExpiredWaitCount() >= 2);
+    } finally {
+      executor.shutdownNow();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldReportLeakedConnectionWithCheckoutTrace() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    List<Throwable> traces = new CopyOnWriteArrayList<>();
+    ds.addPoolListener(new PoolListener() {
+      @Override
+      public void connectionLeaked(long checkoutMillis, Throwable checkoutTrace) {
+        traces.add(checkoutTrace);
+      }
+    });
+    try {
+      ds.setPoolLockFreeEnabled(true);
+      ds.setPoolLeakDetectionThreshold(20);
+      ds.setPoolMaintenanceInterval(20);
+      Connection leaked = ds.getConnection();
+      waitUntil(() -> traces.size() == 1);
+      assertEquals(1, ds.getPoolState().getLeakedConnectionCount());
+      assertTrue(Arrays.stream(traces.get(0).getStackTrace())
+          .anyMatch(e -> e.getMethodName().equals("shouldReportLeakedConnectionWithCheckoutTrace")));
+      leaked.close();
+    } finally {
+      ds.setPoolMaintenanceInterval(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldRegisterPoolStateInJmx() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName("org.apache.ibatis.datasource.pooled:type=PoolState,name=\"jpetstore\"");
+    try {
+      ds.setPoolMBeanName("jpetstore");
+      ds.getConnection().close();
+      assertEquals(1L, server.getAttribute(name, "RequestCount"));
+      assertEquals(1, server.getAttribute(name, "IdleConnectionCount"));
+    } finally {
+      ds.setPoolMBeanName(null);
+      ds.forceCloseAll();
+    }
+    assertFalse(server.isRegistered(name));
+  }
+
+  @Test
+  void shouldReusePreparedStatementsOfPhysicalConnection() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      runScript(ds, JPETSTORE_DDL);
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolPreparedStatementCacheSize(1);
+      String sql = "SELECT * FROM PRODUCT WHERE PRODUCTID = ?";
+      Connection c = ds.getConnection();
+      PreparedStatement ps = c.prepareStatement(sql);
+      PreparedStatement physical = ps.unwrap(PreparedStatement.class);
+      int fetchSize = physical.getFetchSize();
+      ps.setFetchSize(fetchSize + 10);
+      ps.setString(1, "FI-SW-01");
+      ps.executeQuery().close();
+      // the cached statement is in use, so a new one is prepared
+      PreparedStatement other = c.prepareStatement(sql);
+      PreparedStatement otherPhysical = other.unwrap(PreparedStatement.class);
+      assertNotSame(physical, otherPhysical);
+      ps.close();
+      assertTrue(ps.isClosed());
+      assertThrows(SQLException.class, () -> ps.setString(1, "FI-SW-02"));
+      // a statement of the same SQL is already idle
+      other.close();
+      assertTrue(otherPhysical.isClosed());
+      c.close();
+
+      c = ds.getConnection();
+      PreparedStatement reused = c.prepareStatement(sql);
+      assertSame(physical, reused.unwrap(PreparedStatement.class));
+      assertEquals(fetchSize, reused.getFetchSize());
+      PreparedStatement all = c.prepareStatement("SELECT * FROM PRODUCT");
+      PreparedStatement evicted = all.unwrap(PreparedStatement.class);
+      all.close();
+      reused.close();
+      assertTrue(evicted.isClosed());
+      assertFalse(physical.isClosed());
+      c.close();
+
+      ds.forceCloseAll();
+      assertTrue(physical.isClosed());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
   @Test
   void shouldNotFailCallingToStringOverAnInvalidConnection() throws Exception {
     PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
@@ -144,4 +500,12 @@ class PooledDataSourceTest extends BaseDataTest {
       }
     }
   }
+
+  private void waitUntil(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for the pool maintenance");
+      Thread.sleep(10);
+    }
+  }
 }
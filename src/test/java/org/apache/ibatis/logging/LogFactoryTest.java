@@ -101,6 +101,7 @@ class LogFactoryTest {
 
   private void logSomething(Log log) {
     log.warn("Warning message.");
+    log.warn("Warning with Exception.", new Exception("Test exception."));
     log.debug("Debug message.");
     log.error("Error message.");
     log.error("Error with Exception.", new Exception("Test exception."));
@@ -18,11 +18,19 @@ package org.apache.ibatis.mapping;
 import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.decorators.RefreshAheadCache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.decorators.TinyLfuCache;
+import org.apache.ibatis.cache.impl.ConcurrentPerpetualCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.lang.reflect.Field;
+import java.util.Properties;
 
 import static com.googlecode.catchexception.apis.BDDCatchException.*;
 import static org.assertj.core.api.BDDAssertions.then;
@@ -43,6 +51,60 @@ class CacheBuilderTest {
       .hasMessage("Failed cache initialization for 'test' on 'org.apache.ibatis.mapping.CacheBuilderTest$InitializingFailureCache'");
   }
 
+  @Test
+  void testSkipSynchronizationForThreadSafeCaches() {
+    Cache cache = new CacheBuilder("test").implementation(ConcurrentPerpetualCache.class).build();
+
+    Assertions.assertThat(cache).isInstanceOf(LoggingCache.class);
+    Assertions.assertThat((Cache) unwrap(cache)).isInstanceOf(ConcurrentPerpetualCache.class);
+  }
+
+  @Test
+  void testSynchronizeThreadSafeCachesWithUnsafeDecorators() {
+    Cache cache = new CacheBuilder("test").implementation(ConcurrentPerpetualCache.class).addDecorator(LruCache.class).build();
+
+    Assertions.assertThat(cache).isInstanceOf(SynchronizedCache.class);
+  }
+
+  @Test
+  void testSkipSynchronizationForTinyLfuEviction() {
+    Cache cache = new CacheBuilder("test").implementation(ConcurrentPerpetualCache.class).addDecorator(TinyLfuCache.class).size(10).build();
+
+    Assertions.assertThat(cache).isInstanceOf(LoggingCache.class);
+    Assertions.assertThat((Cache) unwrap(cache)).isInstanceOf(TinyLfuCache.class);
+  }
+
+  @Test
+  void testSynchronizePerpetualCache() {
+    Cache cache = new CacheBuilder("test").implementation(PerpetualCache.class).build();
+
+    Assertions.assertThat(cache).isInstanceOf(SynchronizedCache.class);
+  }
+
+  @Test
+  void testRefreshAheadReplacesScheduledCache() {
+    Properties properties = new Properties();
+    properties.setProperty("refreshAhead", "true");
+    properties.setProperty("jitter", "0.25");
+    Cache cache = new CacheBuilder("test").clearInterval(60000L).properties(properties).build();
+
+    RefreshAheadCache refreshAheadCache = unwrap(unwrap(cache));
+    Assertions.assertThat(refreshAheadCache.getTimeToLive()).isEqualTo(60000L);
+    Assertions.assertThat(refreshAheadCache.getJitter()).isEqualTo(0.25);
+  }
+
+  @Test
+  void testApplyPropertiesToBlockingCache() {
+    Properties properties = new Properties();
+    properties.setProperty("coalescing", "true");
+    properties.setProperty("timeout", "500");
+    Cache cache = new CacheBuilder("test").blocking(true).properties(properties).build();
+
+    Assertions.assertThat(cache).isInstanceOf(BlockingCache.class);
+    Assertions.assertThat(((BlockingCache) cache).isCoalescing()).isTrue();
+    Assertions.assertThat(((BlockingCache) cache).getTimeout()).isEqualTo(500L);
+  }
+
   @SuppressWarnings("unchecked")
   private <T> T unwrap(Cache cache) {
     Field field;
@@ -18,8 +18,14 @@ package org.apache.ibatis.reflection;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
 import java.util.List;
 
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Blog;
+import org.apache.ibatis.domain.blog.Post;
+import org.apache.ibatis.reflection.invoker.GeneratedMethodInvoker;
+import org.apache.ibatis.reflection.invoker.Invoker;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import static com.googlecode.catchexception.apis.BDDCatchException.*;
@@ -218,4 +224,55 @@ class ReflectorTest {
     Reflector reflector = reflectorFactory.findForClass(Bean.class);
     assertTrue((Boolean)reflector.getGetInvoker("bool").invoke(new Bean(), new Byte[0]));
   }
+
+  @Test
+  void shouldCallPublicAccessorsThroughGeneratedInvokers() throws Exception {
+    ReflectorFactory reflectorFactory = new GeneratedAccessorReflectorFactory();
+    Reflector reflector = reflectorFactory.findForClass(Author.class);
+    Invoker setter = reflector.getSetInvoker("id");
+    Invoker getter = reflector.getGetInvoker("id");
+    assertTrue(setter instanceof GeneratedMethodInvoker);
+    assertTrue(getter instanceof GeneratedMethodInvoker);
+    Author author = new Author();
+    setter.invoke(author, new Object[] {101});
+    reflector.getSetInvoker("username").invoke(author, new Object[] {"jim"});
+    assertEquals(101, getter.invoke(author, new Object[0]));
+    assertEquals("jim", reflector.getGetInvoker("username").invoke(author, null));
+    assertEquals(int.class, reflector.getSetterType("id"));
+  }
+
+  @Test
+  void shouldFailLikeReflectionWithGeneratedInvokers() throws Exception {
+    Reflector reflector = new GeneratedAccessorReflectorFactory().findForClass(Author.class);
+    Invoker setter = reflector.getSetInvoker("id");
+    assertThrows(IllegalArgumentException.class, () -> setter.invoke(new Author(), new Object[] {null}));
+    assertThrows(IllegalArgumentException.class, () -> setter.invoke(new Author(), new Object[] {"1"}));
+    assertThrows(IllegalArgumentException.class, () -> setter.invoke("not an author", new Object[] {1}));
+    Reflector throwing = new GeneratedAccessorReflectorFactory().findForClass(ThrowingBean.class);
+    InvocationTargetException e = assertThrows(InvocationTargetException.class,
+        () -> throwing.getGetInvoker("value").invoke(new ThrowingBean(), null));
+    assertTrue(e.getTargetException() instanceof UnsupportedOperationException);
+  }
+
+  @Test
+  void shouldFallBackToReflectionForNonPublicClasses() throws Exception {
+    Reflector reflector = new GeneratedAccessorReflectorFactory().findForClass(Section.class);
+    assertFalse(reflector.getSetInvoker("id") instanceof GeneratedMethodInvoker);
+    Section section = new Section();
+    reflector.getSetInvoker("id").invoke(section, new Object[] {1L});
+    assertEquals(1L, reflector.getGetInvoker("id").invoke(section, null));
+  }
+
+  @Test
+  void shouldResolveGenericGetterTypesWithGeneratedInvokers() {
+    MetaClass meta = MetaClass.forClass(Blog.class, new GeneratedAccessorReflectorFactory());
+    assertTrue(meta.getGetInvoker("posts") instanceof GeneratedMethodInvoker);
+    assertEquals(Post.class, meta.getGetterType("posts[0]"));
+  }
+
+  public static class ThrowingBean {
+    public String getValue() {
+      throw new UnsupportedOperationException();
+    }
+  }
 }
@@ -0,0 +1,132 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.GeneratedAccessorReflectorFactory;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Micro-benchmark of {@link GeneratedMethodInvoker} against {@link MethodInvoker}. JMH is not part of this build, so
+ * it warms up and times the calls itself, and prints the median time of a call. Its name keeps it out of the test
+ * run, it is run on request:
+ *
+ * <pre>
+ * mvn test -Dtest=GeneratedMethodInvokerBenchmark
+ * </pre>
+ */
+class GeneratedMethodInvokerBenchmark {
+
+  private static final int WARMUP_ROUNDS = 5;
+  private static final int ROUNDS = 10;
+  private static final int CALLS = 2_000_000;
+  private static final int REFLECTORS = 1_000;
+
+  private interface Workload {
+    long run() throws Exception;
+  }
+
+  @Test
+  void compareWithReflection() throws Exception {
+    Author author = new Author(101, "jim", "********", "jim@ibatis.apache.org", "Something...", Section.NEWS);
+    Method getter = Author.class.getMethod("getUsername");
+    Method setter = Author.class.getMethod("setId", int.class);
+    Invoker reflectiveGetter = new MethodInvoker(getter);
+    Invoker generatedGetter = GeneratedMethodInvoker.forMethod(getter);
+    Invoker reflectiveSetter = new MethodInvoker(setter);
+    Invoker generatedSetter = GeneratedMethodInvoker.forMethod(setter);
+    assertTrue(generatedGetter instanceof GeneratedMethodInvoker);
+    assertTrue(generatedSetter instanceof GeneratedMethodInvoker);
+
+    report("getter, reflection", CALLS, () -> get(reflectiveGetter, author));
+    report("getter, generated", CALLS, () -> get(generatedGetter, author));
+    report("setter, reflection", CALLS, () -> set(reflectiveSetter, author));
+    report("setter, generated", CALLS, () -> set(generatedSetter, author));
+
+    MetaObject reflectiveMetaObject = metaObject(author, new DefaultReflectorFactory());
+    MetaObject generatedMetaObject = metaObject(author, new GeneratedAccessorReflectorFactory());
+    report("MetaObject get and set, reflection", CALLS, () -> getAndSet(reflectiveMetaObject));
+    report("MetaObject get and set, generated", CALLS, () -> getAndSet(generatedMetaObject));
+
+    report("new Reflector, reflection", REFLECTORS, () -> newReflectors(false));
+    report("new Reflector, generated", REFLECTORS, () -> newReflectors(true));
+  }
+
+  private static long get(Invoker invoker, Object target) throws Exception {
+    long sink = 0;
+    for (int i = 0; i < CALLS; i++) {
+      sink += invoker.invoke(target, null).hashCode();
+    }
+    return sink;
+  }
+
+  private static long set(Invoker invoker, Object target) throws Exception {
+    Object[] args = { 42 };
+    for (int i = 0; i < CALLS; i++) {
+      invoker.invoke(target, args);
+    }
+    return ((Author) target).getId();
+  }
+
+  private static long getAndSet(MetaObject metaObject) {
+    long sink = 0;
+    for (int i = 0; i < CALLS; i++) {
+      metaObject.setValue("id", i);
+      sink += (Integer) metaObject.getValue("id");
+    }
+    return sink;
+  }
+
+  private static long newReflectors(boolean generatedAccessors) {
+    long sink = 0;
+    for (int i = 0; i < REFLECTORS; i++) {
+      sink += new Reflector(Author.class, generatedAccessors).getGetablePropertyNames().length;
+    }
+    return sink;
+  }
+
+  private static MetaObject metaObject(Object object, ReflectorFactory reflectorFactory) {
+    return MetaObject.forObject(object, SystemMetaObject.DEFAULT_OBJECT_FACTORY,
+        SystemMetaObject.DEFAULT_OBJECT_WRAPPER_FACTORY, reflectorFactory);
+  }
+
+  private static void report(String name, int operations, Workload workload) throws Exception {
+    long sink = 0;
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      sink += workload.run();
+    }
+    long[] times = new long[ROUNDS];
+    for (int i = 0; i < ROUNDS; i++) {
+      long start = System.nanoTime();
+      sink += workload.run();
+      times[i] = System.nanoTime() - start;
+    }
+    Arrays.sort(times);
+    System.out.printf("%-36s %10.2f ns/op  (%d)%n", name, (double) times[ROUNDS / 2] / operations, sink & 1);
+  }
+
+}
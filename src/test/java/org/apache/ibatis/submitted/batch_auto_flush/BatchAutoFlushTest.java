@@ -0,0 +1,91 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_auto_flush;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.BatchExecutorException;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchAutoFlushTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_auto_flush/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/batch_auto_flush/CreateDB.sql");
+    sqlSessionFactory.getConfiguration().setMaxBatchSize(10);
+  }
+
+  @Test
+  void shouldExecuteBatchesWhenFull() {
+    insertAndCheckBatches();
+  }
+
+  @Test
+  void shouldReportFailureWithSuccessfulBatches() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 10; i++) {
+        mapper.insertItem(i, "item" + i);
+      }
+      for (int i = 0; i < 9; i++) {
+        // the ids of the first batch again
+        mapper.insertItem(i, "duplicate" + i);
+      }
+      PersistenceException e = assertThrows(PersistenceException.class, () -> mapper.insertItem(9, "duplicate9"));
+      BatchExecutorException cause = (BatchExecutorException) e.getCause();
+      assertTrue(cause.getMessage().contains("(batch index #2) failed. 1 prior sub executor(s)"));
+      assertEquals(1, cause.getSuccessfulBatchResults().size());
+      assertEquals(10, cause.getSuccessfulBatchResults().get(0).getUpdateCounts().length);
+    }
+  }
+
+  private void insertAndCheckBatches() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 25; i++) {
+        mapper.insertItem(i, "item" + i);
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(3, results.size());
+      assertEquals(10, results.get(0).getUpdateCounts().length);
+      assertEquals(10, results.get(1).getUpdateCounts().length);
+      assertEquals(5, results.get(2).getUpdateCounts().length);
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(25, sqlSession.getMapper(Mapper.class).countItems());
+    }
+  }
+
+}
@@ -0,0 +1,109 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_interleaving;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchInterleavingTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_interleaving/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/batch_interleaving/CreateDB.sql");
+  }
+
+  @Test
+  void shouldStartNewBatchOnEachSwitchByDefault() {
+    assertEquals(20, insertParentsAndChildren().size());
+  }
+
+  @Test
+  void shouldKeepOneBatchPerStatement() {
+    sqlSessionFactory.getConfiguration().setBatchInterleaving(true);
+    List<BatchResult> results = insertParentsAndChildren();
+    assertEquals(2, results.size());
+    assertEquals("org.apache.ibatis.submitted.batch_interleaving.Mapper.insertParent",
+        results.get(0).getMappedStatement().getId());
+    assertEquals(10, results.get(0).getUpdateCounts().length);
+    assertEquals(10, results.get(1).getUpdateCounts().length);
+  }
+
+  @Test
+  void shouldInterleaveWithAutoFlush() {
+    sqlSessionFactory.getConfiguration().setBatchInterleaving(true);
+    sqlSessionFactory.getConfiguration().setMaxBatchSize(4);
+    List<BatchResult> results = insertParentsAndChildren();
+    assertEquals(6, results.size());
+    assertEquals(4, results.get(0).getUpdateCounts().length);
+    assertEquals(3, results.get(1).getUpdateCounts().length);
+  }
+
+  @Test
+  void shouldNotMoveInsertsAcrossOtherStatements() {
+    sqlSessionFactory.getConfiguration().setBatchInterleaving(true);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertParent(1, "first");
+      mapper.insertChild(1, 1, "child");
+      mapper.insertParent(2, "second");
+      mapper.deleteParent(2);
+      mapper.insertParent(2, "third");
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(4, results.size());
+      assertEquals(2, results.get(0).getUpdateCounts().length);
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals("third", sqlSession.getMapper(Mapper.class).getParentName(2));
+    }
+  }
+
+  private List<BatchResult> insertParentsAndChildren() {
+    List<BatchResult> results;
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 10; i++) {
+        mapper.insertParent(i, "parent" + i);
+        mapper.insertChild(i, i, "child" + i);
+      }
+      results = sqlSession.flushStatements();
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(10, sqlSession.getMapper(Mapper.class).countChildren());
+    }
+    return results;
+  }
+
+}
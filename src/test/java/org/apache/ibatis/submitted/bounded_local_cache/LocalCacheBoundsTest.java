@@ -0,0 +1,87 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.bounded_local_cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.LocalCacheScope;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class LocalCacheBoundsTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/bounded_local_cache/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/bounded_local_cache/CreateDB.sql");
+  }
+
+  @Test
+  void shouldEvictLeastRecentlyUsedResultsBetweenQueries() {
+    // blog 1 loads the blog and its posts: two results
+    sqlSessionFactory.getConfiguration().setLocalCacheSize(2);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Blog blog = mapper.selectBlog(1);
+      assertCircular(blog);
+      assertSame(blog, mapper.selectBlog(1));
+      assertCircular(mapper.selectBlog(2));
+      assertNotSame(blog, mapper.selectBlog(1));
+    }
+  }
+
+  @Test
+  void shouldEvictResultsOverMaxBytes() {
+    sqlSessionFactory.getConfiguration().setLocalCacheMaxBytes(1);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Blog blog = mapper.selectBlog(1);
+      assertCircular(blog);
+      assertNotSame(blog, mapper.selectBlog(1));
+    }
+  }
+
+  @Test
+  void shouldResolveCircularReferencesWithPlaceholderScope() {
+    sqlSessionFactory.getConfiguration().setLocalCacheScope(LocalCacheScope.PLACEHOLDER);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Blog blog = mapper.selectBlog(1);
+      assertCircular(blog);
+      assertNotSame(blog, mapper.selectBlog(1));
+    }
+  }
+
+  private static void assertCircular(Blog blog) {
+    assertFalse(blog.getPosts().isEmpty());
+    for (Post post : blog.getPosts()) {
+      assertSame(blog, post.getBlog());
+    }
+  }
+
+}
@@ -0,0 +1,105 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.compiled_row_mappers;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.resultset.RowMapperCache;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CompiledRowMappersTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/compiled_row_mappers/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/compiled_row_mappers/CreateDB.sql");
+  }
+
+  @Test
+  void shouldAutoMapAndReuseRowMappersAcrossExecutions() {
+    RowMapperCache rowMapperCache = sqlSessionFactory.getConfiguration().getRowMapperCache();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertAuthors(sqlSession.getMapper(Mapper.class).selectAuthors());
+    }
+    assertEquals(1, rowMapperCache.size());
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertAuthors(sqlSession.getMapper(Mapper.class).selectAuthors());
+    }
+    assertEquals(1, rowMapperCache.size());
+  }
+
+  @Test
+  void shouldMapNestedResultMapsWithColumnPrefixes() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Blog> blogs = sqlSession.getMapper(Mapper.class).selectBlogs();
+      assertEquals(2, blogs.size());
+      Blog blog = blogs.get(0);
+      assertEquals("Blog 1", blog.getTitle());
+      assertEquals("johnny", blog.getAuthor().getNickName());
+      assertEquals(30, blog.getAuthor().getAge());
+      assertEquals(2, blog.getPosts().size());
+      assertEquals("Post 2", blog.getPosts().get(1).getBody());
+      assertEquals("Jane", blogs.get(1).getAuthor().getName());
+      assertTrue(blogs.get(1).getPosts().isEmpty());
+    }
+    // blog, author and post mappers
+    assertEquals(3, sqlSessionFactory.getConfiguration().getRowMapperCache().size());
+  }
+
+  @Test
+  void shouldSetNestedPropertiesThroughMetaObject() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Blog> blogs = sqlSession.getMapper(Mapper.class).selectFlatBlogs();
+      assertEquals(Integer.valueOf(1), blogs.get(0).getAuthor().getId());
+      assertEquals("John", blogs.get(0).getAuthor().getName());
+      assertEquals("Jane", blogs.get(1).getAuthor().getName());
+    }
+  }
+
+  @Test
+  void shouldCallSettersOnNulls() {
+    sqlSessionFactory.getConfiguration().setCallSettersOnNulls(true);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Author author = sqlSession.getMapper(Mapper.class).selectAuthors().get(1);
+      assertNull(author.getNickName());
+      assertEquals(0, author.getAge());
+    }
+  }
+
+  private static void assertAuthors(List<Author> authors) {
+    assertEquals(2, authors.size());
+    assertEquals("John", authors.get(0).getName());
+    assertEquals("johnny", authors.get(0).getNickName());
+    assertEquals(30, authors.get(0).getAge());
+    assertNull(authors.get(1).getNickName());
+    assertEquals(0, authors.get(1).getAge());
+  }
+
+}
@@ -0,0 +1,45 @@
+--
+--    Copyright 2009-2019 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+drop table post if exists;
+drop table blog if exists;
+drop table author if exists;
+
+create table author (
+  id int,
+  name varchar(20),
+  nick_name varchar(20),
+  age int
+);
+
+create table blog (
+  id int,
+  title varchar(20),
+  author_id int
+);
+
+create table post (
+  id int,
+  blog_id int,
+  body varchar(20)
+);
+
+insert into author (id, name, nick_name, age) values (1, 'John', 'johnny', 30);
+insert into author (id, name, nick_name, age) values (2, 'Jane', null, null);
+insert into blog (id, title, author_id) values (1, 'Blog 1', 1);
+insert into blog (id, title, author_id) values (2, 'Blog 2', 2);
+insert into post (id, blog_id, body) values (1, 1, 'Post 1');
+insert into post (id, blog_id, body) values (2, 1, 'Post 2');
@@ -0,0 +1,109 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.reuse_statement_cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ReuseStatementScope;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ReuseStatementCacheTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+  private PrepareCounter prepareCounter;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/reuse_statement_cache/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/reuse_statement_cache/CreateDB.sql");
+    prepareCounter = (PrepareCounter) sqlSessionFactory.getConfiguration().getInterceptors().get(0);
+  }
+
+  @Test
+  void shouldReuseStatementsWithinSession() {
+    selectAll();
+    assertEquals(3, prepareCounter.getCount());
+    selectAll();
+    assertEquals(6, prepareCounter.getCount());
+  }
+
+  @Test
+  void shouldCloseLeastRecentlyUsedStatements() {
+    sqlSessionFactory.getConfiguration().setReuseStatementCacheSize(2);
+    selectAll();
+    // the statement of selectName was closed by countItems
+    assertEquals(4, prepareCounter.getCount());
+  }
+
+  @Test
+  void shouldReuseStatementsOfPooledConnectionAcrossSessions() {
+    sqlSessionFactory.getConfiguration().setReuseStatementScope(ReuseStatementScope.CONNECTION);
+    selectAll();
+    assertEquals(3, prepareCounter.getCount());
+    selectAll();
+    assertEquals(3, prepareCounter.getCount());
+  }
+
+  @Test
+  void shouldCloseStatementsOfConnectionsClosedByPool() {
+    sqlSessionFactory.getConfiguration().setReuseStatementScope(ReuseStatementScope.CONNECTION);
+    selectAll();
+    assertEquals(3, prepareCounter.getCount());
+    ((PooledDataSource) sqlSessionFactory.getConfiguration().getEnvironment().getDataSource()).forceCloseAll();
+    selectAll();
+    assertEquals(6, prepareCounter.getCount());
+  }
+
+  @Test
+  void shouldKeepStatementsForSessionWhenConnectionIsNotPooled() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.setReuseStatementScope(ReuseStatementScope.CONNECTION);
+    configuration.setEnvironment(new Environment("unpooled", new JdbcTransactionFactory(),
+        new UnpooledDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:reuse_statement_cache", "sa", null)));
+    selectAll();
+    assertEquals(3, prepareCounter.getCount());
+    selectAll();
+    assertEquals(6, prepareCounter.getCount());
+  }
+
+  private void selectAll() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals("item1", mapper.selectName(1));
+      assertEquals(3, mapper.selectNames().size());
+      assertEquals(3, mapper.countItems());
+      assertEquals("item2", mapper.selectName(2));
+      assertEquals("item3", mapper.selectName(3));
+    }
+  }
+
+}
@@ -0,0 +1,101 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.table_invalidation;
+
+import java.io.Reader;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TableInvalidationTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/table_invalidation/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/table_invalidation/CreateDB.sql");
+  }
+
+  @Test
+  void shouldOnlyEvictEntriesReadFromWrittenTables() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Assertions.assertEquals("Author", mapper.getAuthorName(1));
+      Assertions.assertEquals("Book", mapper.getBookTitle(1));
+      Assertions.assertEquals("Book by Author", mapper.getBookWithAuthor(1));
+    }
+    // declares another table, so the cached book entries survive
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).updateBookTitleLoggedOnly(1, "Novel");
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).updateAuthorName(1, "Writer");
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Assertions.assertEquals("Writer", mapper.getAuthorName(1));
+      Assertions.assertEquals("Book", mapper.getBookTitle(1));
+      Assertions.assertEquals("Novel by Writer", mapper.getBookWithAuthor(1));
+    }
+  }
+
+  @Test
+  void shouldNotServeEntriesOfInvalidatedTablesBeforeCommit() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Assertions.assertEquals("Author", sqlSession.getMapper(Mapper.class).getAuthorName(1));
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.updateAuthorName(1, "Writer");
+      Assertions.assertEquals("Writer", mapper.getAuthorName(1));
+      sqlSession.rollback();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Assertions.assertEquals("Author", sqlSession.getMapper(Mapper.class).getAuthorName(1));
+    }
+  }
+
+  @Test
+  void shouldEvictEntriesOfWrittenTablesFromBlockingCache() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      BlockingMapper mapper = sqlSession.getMapper(BlockingMapper.class);
+      Assertions.assertEquals("Author", mapper.getAuthorName(1));
+      Assertions.assertEquals("Book", mapper.getBookTitle(1));
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(BlockingMapper.class).updateAuthorName(1, "Writer");
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      BlockingMapper mapper = sqlSession.getMapper(BlockingMapper.class);
+      Assertions.assertEquals("Writer", mapper.getAuthorName(1));
+      Assertions.assertEquals("Book", mapper.getBookTitle(1));
+    }
+  }
+
+}